@@ -0,0 +1,52 @@
+package benchmark;
+
+import chess.BoardType;
+import chess.ChessMatch;
+import chess.MoveList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detecção de cheque mate: gerar os movimentos legais de uma posição em cheque e verificar se há algum.
+ * Uso: java -jar game/bench/target/benchmarks.jar CheckmateBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class CheckmateBenchmark {
+    @Param({"MATRIX", "BITBOARD"})
+    BoardType boardType;
+
+    private ChessMatch[] matches;
+    private MoveList list;
+
+    @Setup
+    public void setup() {
+        matches = Positions.read(boardType, Positions.CHECKS);
+        list = new MoveList();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void mateDetection(Blackhole blackhole) {
+        for (ChessMatch match : matches) {
+            blackhole.consume(match.legalMoves(list) == 0);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package benchmark;
+
+import chess.BoardType;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.MoveList;
+import chess.engine.Evaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks JMH das operações centrais da ChessMatch sobre um conjunto fixo de posições de meio-jogo e de final,
+ * para as duas representações de tabuleiro. Os resultados são por posição (ou por movimento em performChessMove).
+ * Uso, a partir da raiz do projeto:
+ * mvn -B package
+ * java -jar game/bench/target/benchmarks.jar ChessMatchBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ChessMatchBenchmark {
+    private static final int MOVES = 2000;
+
+    @Param({"MATRIX", "BITBOARD"})
+    BoardType boardType;
+
+    @Param({"middlegame", "endgame"})
+    String positions;
+
+    private ChessMatch[] matches;
+    private List<List<ChessPosition>> sources;
+    private Evaluator evaluator;
+
+    @Setup
+    public void setup() {
+        matches = Positions.read(boardType, Positions.named(positions));
+        sources = new ArrayList<>();
+        for (ChessMatch match : matches) {
+            List<ChessPosition> list = new ArrayList<>();
+            for (ChessPiece[] row : match.getPieces()) {
+                for (ChessPiece p : row) {
+                    if (p != null && p.getColor() == match.getCurrentPlayer() && p.isThereAnyPossibleMove()) {
+                        list.add(p.getChessPosition());
+                    }
+                }
+            }
+            sources.add(list);
+        }
+        //Depois da primeira passada as estruturas de peões ficam na tabela de peões, como numa busca real
+        evaluator = new Evaluator();
+    }
+
+    /**
+     * Partidas e movimentos para performChessMove. Como o movimento altera a partida, cada invocação recebe
+     * partidas novas, montadas fora da medição.
+     */
+    @State(Scope.Thread)
+    public static class MoveBatch {
+        ChessMatch[] matches = new ChessMatch[MOVES];
+        int[] moves = new int[MOVES];
+
+        @Setup(Level.Invocation)
+        public void setup(ChessMatchBenchmark benchmark) {
+            String[] fens = Positions.named(benchmark.positions);
+            MoveList list = new MoveList();
+            for (int i = 0; i < MOVES; i++) {
+                matches[i] = Fen.read(fens[i % fens.length], benchmark.boardType);
+                matches[i].legalMoves(list);
+                moves[i] = list.get((i / fens.length) % list.size());
+            }
+        }
+    }
+
+    /**
+     * performChessMove com um movimento legal de cada posição. Com -prof gc a alocação por operação inclui a
+     * montagem das partidas do MoveBatch.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public void performChessMove(MoveBatch batch, Blackhole blackhole) {
+        for (int i = 0; i < MOVES; i++) {
+            blackhole.consume(batch.matches[i].performChessMove(batch.moves[i]));
+        }
+    }
+
+    /**
+     * possibleMoves de todas as peças do jogador da vez que têm algum movimento
+     */
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void possibleMoves(Blackhole blackhole) {
+        for (int i = 0; i < matches.length; i++) {
+            for (ChessPosition source : sources.get(i)) {
+                blackhole.consume(matches[i].possibleMoves(source));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void getPieces(Blackhole blackhole) {
+        for (ChessMatch match : matches) {
+            blackhole.consume(match.getPieces());
+        }
+    }
+
+    /**
+     * Avaliação estática das posições
+     */
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void evaluate(Blackhole blackhole) {
+        for (ChessMatch match : matches) {
+            blackhole.consume(evaluator.evaluate(match));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package benchmark;
+
+import chess.BoardType;
+import chess.ChessMatch;
+import chess.GameResult;
+import chess.MoveList;
+import chess.record.GameRecordReader;
+import chess.record.GameRecordWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Mede a leitura de arquivos de partidas: gera partidas aleatórias (ou usa um arquivo existente), percorre o
+ * arquivo inteiro lendo todos os movimentos e repete parte das partidas em ChessMatch para calcular estatísticas.
+ * Uso: GameRecordBenchmark [--file arquivo] [--games 100000] [--replay 2000] [--passes 5]
+ * Sem --file as partidas são geradas em um arquivo temporário, que é apagado no final.
+ */
+public class GameRecordBenchmark {
+    public static void main(String[] args) throws IOException {
+        Path file = null;
+        int games = 100_000;
+        int replay = 2_000;
+        int passes = 5;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--file": file = Paths.get(args[++i]); break;
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--replay": replay = Integer.parseInt(args[++i]); break;
+                case "--passes": passes = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        boolean temporary = (file == null);
+        if (temporary) {
+            file = Files.createTempFile("games", ".chgr");
+            long start = System.nanoTime();
+            generate(file, games);
+            System.out.printf("generated %d random games in %.1f s%n", games, (System.nanoTime() - start) / 1e9);
+        }
+
+        try (GameRecordReader reader = new GameRecordReader(file)) {
+            System.out.printf("%s: %d games, %d plies, %.1f MB%n", file, reader.getGames(), reader.getTotalPlies(),
+                    reader.getSize() / 1e6);
+
+            for (int pass = 1; pass <= passes; pass++) {
+                long[] checksum = new long[1];
+                long start = System.nanoTime();
+                reader.forEach(record -> {
+                    long sum = record.getResult().ordinal();
+                    for (int ply = 0; ply < record.getPlies(); ply++) {
+                        sum += record.getCompactMove(ply);
+                    }
+                    checksum[0] += sum;
+                });
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("scan %d: %.0f MB/s, %.0f games/s (checksum %d)%n", pass,
+                        reader.getSize() / 1e6 / seconds, reader.getGames() / seconds, checksum[0]);
+            }
+
+            int count = Math.min(replay, reader.getGames());
+            long[] results = new long[GameResult.values().length];
+            long[] plies = new long[1];
+            long start = System.nanoTime();
+            reader.forEach(0, count, record -> {
+                ChessMatch match = record.replay(BoardType.BITBOARD);
+                results[GameResult.of(match).ordinal()]++;
+                plies[0] += match.getPly();
+            });
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("replay: %d games in %.2f s (%.0f games/s, %.0f plies/s)%n", count, seconds,
+                    count / seconds, plies[0] / seconds);
+            for (GameResult result : GameResult.values()) {
+                System.out.printf("  %-8s %d%n", result.getToken(), results[result.ordinal()]);
+            }
+        } finally {
+            if (temporary) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Grava partidas com movimentos aleatórios até o fim da partida ou 200 meios-movimentos
+     */
+    private static void generate(Path file, int games) throws IOException {
+        Random random = new Random(1);
+        MoveList moves = new MoveList();
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            for (int game = 0; game < games; game++) {
+                ChessMatch match = new ChessMatch(BoardType.BITBOARD);
+                while (match.getPly() < 200 && !match.getCheckMate() && !match.getStalemate() && !match.getDraw()) {
+                    int count = match.legalMoves(moves);
+                    match.performChessMove(moves.get(random.nextInt(count)));
+                }
+                writer.write(match, GameResult.of(match));
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package benchmark;
+
+import chess.BoardType;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.PieceType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * possibleMovies() de todas as peças de um tipo nas posições de meio-jogo e de final. O resultado é por
+ * passada sobre todas as peças do tipo.
+ * Uso: java -jar game/bench/target/benchmarks.jar PieceMovesBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class PieceMovesBenchmark {
+    @Param({"MATRIX", "BITBOARD"})
+    BoardType boardType;
+
+    @Param({"PAWN", "KNIGHT", "BISHOP", "ROOK", "QUEEN", "KING"})
+    PieceType pieceType;
+
+    private ChessPiece[] pieces;
+
+    @Setup
+    public void setup() {
+        List<ChessPiece> list = new ArrayList<>();
+        List<ChessMatch> matches = new ArrayList<>(List.of(Positions.read(boardType, Positions.MIDDLEGAME)));
+        matches.addAll(List.of(Positions.read(boardType, Positions.ENDGAME)));
+        for (ChessMatch match : matches) {
+            for (ChessPiece[] row : match.getPieces()) {
+                for (ChessPiece p : row) {
+                    if (p != null && p.getType() == pieceType) {
+                        list.add(p);
+                    }
+                }
+            }
+        }
+        pieces = list.toArray(new ChessPiece[0]);
+    }
+
+    @Benchmark
+    public void possibleMovies(Blackhole blackhole) {
+        for (ChessPiece p : pieces) {
+            blackhole.consume(p.possibleMovies());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package benchmark;
+
+import chess.BoardType;
+import chess.ChessMatch;
+import chess.Fen;
+
+/**
+ * Conjunto fixo de posições de meio-jogo, de final e de cheque usadas pelos benchmarks
+ */
+final class Positions {
+    static final String[] MIDDLEGAME = {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+    };
+
+    static final String[] ENDGAME = {
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "8/5pk1/6p1/8/3R4/6P1/5PK1/3r4 w - - 0 40",
+            "8/8/4k3/8/2K5/8/3Q4/8 w - - 0 1",
+            "4k3/8/8/8/8/8/4P3/4K3 w - - 0 1",
+    };
+
+    //Posições com o rei do jogador da vez em cheque, com e sem cheque mate
+    static final String[] CHECKS = {
+            "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3",
+            "r1bqkb1r/pppp1Qpp/2n2n2/4p3/2B1P3/8/PPPP1PPP/RNB1K1NR b KQkq - 0 4",
+            "rnbqkbnr/ppp2ppp/3p4/1B2p3/4P3/8/PPPP1PPP/RNBQK1NR b KQkq - 1 3",
+            "4k3/8/8/8/8/8/3q4/4K3 w - - 0 1",
+    };
+
+    private Positions() {
+    }
+
+    /**
+     * Método que retorna as posições de um conjunto pelo nome usado nos @Param dos benchmarks
+     * @param name
+     * @return
+     */
+    static String[] named(String name) {
+        switch (name) {
+            case "middlegame": return MIDDLEGAME;
+            case "endgame": return ENDGAME;
+            case "checks": return CHECKS;
+            default: throw new IllegalArgumentException("Conjunto de posições desconhecido: " + name);
+        }
+    }
+
+    static ChessMatch[] read(BoardType boardType, String[] fens) {
+        ChessMatch[] matches = new ChessMatch[fens.length];
+        for (int i = 0; i < fens.length; i++) {
+            matches[i] = Fen.read(fens[i], boardType);
+        }
+        return matches;
+    }
+}
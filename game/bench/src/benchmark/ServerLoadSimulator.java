@@ -0,0 +1,256 @@
+package benchmark;
+
+import application.server.GameServer;
+import application.server.LatencyHistogram;
+import chess.pgn.RollingPgnWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simulador de carga do GameServer: mantém muitas partidas simultâneas, distribuídas em algumas conexões, e em cada
+ * uma pede os movimentos legais e joga um deles ao acaso até a partida terminar ou atingir o limite de meios-movimentos.
+ * Uma partida encerrada é substituída por uma nova enquanto houver tempo. No final são mostrados a vazão e os
+ * percentis da latência dos movimentos vistos pelo cliente e pelo servidor.
+ * Uso: ServerLoadSimulator [--port P] [--embedded] [--threads N] [--mailbox N] [--games 10000] [--connections 16]
+ * [--plies 80] [--seconds 30] [--archive pasta]
+ * --embedded: sobe um GameServer no próprio processo (com N threads e caixas de mensagens de capacidade N) em vez de
+ * usar um servidor na porta P
+ * --archive: com --embedded, grava as partidas encerradas em arquivos PGN na pasta
+ */
+public class ServerLoadSimulator {
+    private final int plies;
+    private final long deadline;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder completedGames = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private ServerLoadSimulator(int plies, long deadline) {
+        this.plies = plies;
+        this.deadline = deadline;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 7777;
+        boolean embedded = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int mailbox = GameServer.DEFAULT_MAILBOX_CAPACITY;
+        int games = 10_000;
+        int connections = 16;
+        int plies = 80;
+        int seconds = 30;
+        String archive = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--embedded": embedded = true; break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--mailbox": mailbox = Integer.parseInt(args[++i]); break;
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--connections": connections = Integer.parseInt(args[++i]); break;
+                case "--plies": plies = Integer.parseInt(args[++i]); break;
+                case "--seconds": seconds = Integer.parseInt(args[++i]); break;
+                case "--archive": archive = args[++i]; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        GameServer server = null;
+        RollingPgnWriter pgn = null;
+        if (embedded) {
+            server = new GameServer(0, threads, mailbox);
+            if (archive != null) {
+                pgn = new RollingPgnWriter(Paths.get(archive), "games", 64L << 20, 65536);
+                server.setArchive(pgn);
+            }
+            server.start();
+            port = server.getPort();
+        }
+
+        long start = System.nanoTime();
+        ServerLoadSimulator simulator = new ServerLoadSimulator(plies, start + seconds * 1_000_000_000L);
+        CountDownLatch finished = new CountDownLatch(games);
+        List<Connection> list = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            int slots = games / connections + (c < games % connections ? 1 : 0);
+            Connection connection = simulator.new Connection(new Socket("localhost", port), slots, finished, c);
+            list.add(connection);
+            connection.start();
+        }
+        if (!finished.await(seconds + 60L, TimeUnit.SECONDS)) {
+            System.out.println("Timed out waiting for the games to finish");
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        String stats = list.get(0).request("STATS");
+        for (Connection connection : list) {
+            connection.close();
+        }
+        System.out.printf("%d simultaneous games over %d connections, %.1f s%n", games, connections, elapsed);
+        System.out.printf("completed games %d, moves %d (%.0f moves/s), errors %d%n", simulator.completedGames.sum(),
+                simulator.moves.sum(), simulator.moves.sum() / elapsed, simulator.errors.sum());
+        System.out.printf("client move latency p50 %d us p99 %d us%n", simulator.latency.getPercentile(50),
+                simulator.latency.getPercentile(99));
+        System.out.println("server " + stats);
+        if (server != null) {
+            server.stop();
+        }
+        if (pgn != null) {
+            pgn.close();
+            System.out.printf("archived games %d dropped %d%n", pgn.getWritten(), pgn.getDropped());
+        }
+    }
+
+    /**
+     * Uma conexão com o servidor e as partidas que ela conduz. A tag de cada pedido é o índice da partida na conexão,
+     * e cada partida tem no máximo um pedido pendente, então a thread leitora pode responder sem nenhum lock.
+     */
+    private class Connection extends Thread {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+        private final Slot[] slots;
+        private final CountDownLatch finished;
+        private final Random random;
+        private volatile String statsResponse;
+        private final CountDownLatch statsReceived = new CountDownLatch(1);
+
+        Connection(Socket socket, int slots, CountDownLatch finished, int seed) throws IOException {
+            super("load-connection-" + seed);
+            setDaemon(true);
+            socket.setTcpNoDelay(true);
+            this.socket = socket;
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            this.slots = new Slot[slots];
+            this.finished = finished;
+            this.random = new Random(seed);
+            for (int i = 0; i < slots; i++) {
+                this.slots[i] = new Slot();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < slots.length; i++) {
+                    send(i, "NEW");
+                }
+                String line;
+                while ((line = in.readLine()) != null) {
+                    int space = line.indexOf(' ');
+                    String tag = line.substring(0, space);
+                    String response = line.substring(space + 1);
+                    if (tag.equals("stats")) {
+                        statsResponse = response;
+                        statsReceived.countDown();
+                        continue;
+                    }
+                    step(Integer.parseInt(tag), response);
+                }
+            } catch (IOException e) {
+                //Conexão fechada no final da simulação
+            }
+        }
+
+        /**
+         * Avança a partida de acordo com a resposta do seu último pedido
+         */
+        private void step(int index, String response) throws IOException {
+            Slot slot = slots[index];
+            if (response.startsWith("ERR")) {
+                errors.increment();
+            }
+            switch (slot.state) {
+                case NEW:
+                    slot.id = response.substring(3);
+                    slot.plies = 0;
+                    slot.state = Request.MOVES;
+                    send(index, "MOVES " + slot.id);
+                    break;
+                case MOVES: {
+                    String[] legal = response.substring(3).split(" ");
+                    slot.state = Request.MOVE;
+                    slot.sent = System.nanoTime();
+                    send(index, "MOVE " + slot.id + " " + legal[random.nextInt(legal.length)]);
+                    break;
+                }
+                case MOVE:
+                    latency.record(System.nanoTime() - slot.sent);
+                    moves.increment();
+                    slot.plies++;
+                    if (response.startsWith("OK PLAYING ") || response.startsWith("OK CHECK ")) {
+                        if (slot.plies < plies) {
+                            slot.state = Request.MOVES;
+                            send(index, "MOVES " + slot.id);
+                            break;
+                        }
+                    }
+                    slot.state = Request.CLOSE;
+                    send(index, "CLOSE " + slot.id);
+                    break;
+                case CLOSE:
+                    completedGames.increment();
+                    if (System.nanoTime() < deadline) {
+                        slot.state = Request.NEW;
+                        send(index, "NEW");
+                    } else {
+                        slot.state = Request.DONE;
+                        finished.countDown();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void send(int index, String request) throws IOException {
+            send(Integer.toString(index), request);
+        }
+
+        private void send(String tag, String request) throws IOException {
+            synchronized (out) {
+                out.write(tag);
+                out.write(' ');
+                out.write(request);
+                out.write('\n');
+                out.flush();
+            }
+        }
+
+        String request(String command) throws IOException, InterruptedException {
+            send("stats", command);
+            statsReceived.await(10, TimeUnit.SECONDS);
+            return statsResponse;
+        }
+
+        void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private enum Request {
+        NEW, MOVES, MOVE, CLOSE, DONE
+    }
+
+    private static class Slot {
+        private Request state = Request.NEW;
+        private String id;
+        private int plies;
+        private long sent;
+    }
+}
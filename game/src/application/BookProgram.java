@@ -0,0 +1,113 @@
+package application;
+
+import chess.BoardType;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.book.BookMove;
+import chess.book.OpeningBook;
+import chess.book.OpeningBookBuilder;
+import chess.book.PolyglotKey;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
+import chess.record.GameRecordReader;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Ferramenta de linha de comando do livro de aberturas.
+ * Uso: BookProgram build partidas.pgn|partidas.chgr livro.bin [--plies 24] [--min 2] [--keys random64.bin]
+ *      BookProgram probe livro.bin [--fen FEN] [--keys random64.bin]
+ * build: monta o livro com os primeiros meios-movimentos das partidas de um arquivo PGN ou de um arquivo de partidas
+ * probe: mostra os movimentos do livro para a posição (por padrão, a posição inicial)
+ * --min: quantidade mínima de partidas em que o movimento foi jogado
+ * --keys: outra tabela de chaves no lugar da Random64 do Polyglot (781 números de 64 bits em big-endian)
+ */
+public class BookProgram {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: BookProgram build games.pgn|games.chgr book.bin [--plies 24] [--min 2] "
+                    + "[--keys random64.bin]");
+            System.out.println("       BookProgram probe book.bin [--fen FEN] [--keys random64.bin]");
+            return;
+        }
+        String command = args[0];
+        Path input = Paths.get(args[1]);
+        Path output = null;
+        int plies = 24;
+        int min = 2;
+        String fen = Fen.START;
+        PolyglotKey keys = PolyglotKey.defaultKeys();
+        int first = 2;
+        if (command.equals("build")) {
+            output = Paths.get(args[2]);
+            first = 3;
+        }
+        for (int i = first; i < args.length; i++) {
+            switch (args[i]) {
+                case "--plies":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                case "--min":
+                    min = Integer.parseInt(args[++i]);
+                    break;
+                case "--keys":
+                    keys = PolyglotKey.load(Paths.get(args[++i]));
+                    break;
+                case "--fen":
+                    StringBuilder sb = new StringBuilder();
+                    while (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        sb.append(args[++i]).append(' ');
+                    }
+                    fen = sb.toString().trim();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (command.equals("build")) {
+            long start = System.nanoTime();
+            OpeningBookBuilder builder = new OpeningBookBuilder(keys, plies);
+            if (input.toString().endsWith(".pgn")) {
+                try (PgnReader reader = new PgnReader(new InputStreamReader(Files.newInputStream(input),
+                        StandardCharsets.UTF_8))) {
+                    PgnGame game;
+                    while ((game = reader.next()) != null) {
+                        try {
+                            ChessMatch match = game.replay(BoardType.BITBOARD);
+                            builder.addGame(game.getStartFen(), match.getMoveHistory(), game.getResult());
+                        } catch (RuntimeException e) {
+                            System.out.println("Skipping game " + game.getNumber() + ": " + e.getMessage());
+                        }
+                    }
+                }
+            } else {
+                try (GameRecordReader reader = new GameRecordReader(input)) {
+                    OpeningBookBuilder target = builder;
+                    reader.forEach(record -> target.addGame(record.getStartFen(),
+                            record.replay(BoardType.BITBOARD).getMoveHistory(), record.getResult()));
+                }
+            }
+            long games = builder.getGames();
+            int entries = builder.write(output, min);
+            System.out.printf("%d games, %d book entries written to %s in %.1f s%n", games, entries, output,
+                    (System.nanoTime() - start) / 1e9);
+        } else if (command.equals("probe")) {
+            try (OpeningBook book = new OpeningBook(input, keys)) {
+                List<BookMove> moves = book.getMoves(Fen.read(fen, BoardType.BITBOARD));
+                System.out.println(book.getEntries() + " entries, " + moves.size() + " moves for " + fen);
+                for (BookMove move : moves) {
+                    System.out.println(move);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown command: " + command);
+        }
+    }
+}
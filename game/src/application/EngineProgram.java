@@ -0,0 +1,167 @@
+package application;
+
+import chess.BoardType;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.Move;
+import chess.book.OpeningBook;
+import chess.engine.Analysis;
+import chess.engine.AnalysisUpdate;
+import chess.engine.Evaluator;
+import chess.engine.ParallelSearch;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import chess.tablebase.Tablebase;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.Flow;
+
+/**
+ * Ferramenta de linha de comando da busca: procura o melhor movimento de uma posição e mostra a profundidade
+ * atingida e a velocidade em nós por segundo.
+ * Uso: EngineProgram [--fen FEN] [--depth N] [--time MS] [--nodes N] [--hash MB] [--threads N] [--matrix]
+ *                     [--book livro.bin] [--tb diretório] [--multipv N] [--infinite]
+ * Sem nenhum limite, a busca vai até a profundidade 8. Com --book, se a posição estiver no livro de aberturas o
+ * movimento é sorteado do livro e não há busca. Com --tb, a busca consulta as tabelas de finais do diretório.
+ * Com --multipv ou --infinite a posição é analisada em uma thread, mostrando as N melhores linhas (1 por padrão) a
+ * cada linha buscada; com --infinite a análise só termina quando Enter é pressionado.
+ */
+public class EngineProgram {
+    public static void main(String[] args) throws IOException {
+        String fen = Fen.START;
+        int depth = 0;
+        long time = 0L;
+        long nodes = 0L;
+        int hash = 16;
+        int threads = 1;
+        String book = null;
+        String tablebaseDirectory = null;
+        int lines = 0;
+        boolean infinite = false;
+        BoardType boardType = BoardType.BITBOARD;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--fen":
+                    StringBuilder sb = new StringBuilder();
+                    while (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        sb.append(args[++i]).append(' ');
+                    }
+                    fen = sb.toString().trim();
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "--time":
+                    time = Long.parseLong(args[++i]);
+                    break;
+                case "--nodes":
+                    nodes = Long.parseLong(args[++i]);
+                    break;
+                case "--hash":
+                    hash = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--book":
+                    book = args[++i];
+                    break;
+                case "--tb":
+                    tablebaseDirectory = args[++i];
+                    break;
+                case "--multipv":
+                    lines = Integer.parseInt(args[++i]);
+                    break;
+                case "--infinite":
+                    infinite = true;
+                    break;
+                case "--matrix":
+                    boardType = BoardType.MATRIX;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (depth == 0 && time == 0L && nodes == 0L && !infinite) {
+            depth = 8;
+        }
+
+        ChessMatch match = Fen.read(fen, boardType);
+        if (book != null) {
+            try (OpeningBook openingBook = new OpeningBook(Paths.get(book))) {
+                int move = openingBook.pick(match, new Random());
+                if (move != Move.NONE) {
+                    System.out.println("book move " + Move.toString(move));
+                    return;
+                }
+            }
+        }
+        TranspositionTable table = new TranspositionTable(hash);
+        Tablebase tablebase = (tablebaseDirectory != null) ? new Tablebase(Paths.get(tablebaseDirectory)) : null;
+        SearchLimits limits = new SearchLimits(depth, time, nodes);
+        SearchResult result;
+        if (lines > 0 || infinite) {
+            result = analyze(match, table, tablebase, limits, Math.max(lines, 1), infinite);
+        } else {
+            ParallelSearch search = new ParallelSearch(threads, table);
+            search.setTablebase(tablebase);
+            result = search.search(match, limits);
+            search.shutdown();
+        }
+        System.out.println(result);
+        System.out.printf("tt probes %d hits %d collisions %d overwrites %d hashfull %d%n", table.getProbes(),
+                table.getHits(), table.getCollisions(), table.getOverwrites(), table.getHashFull());
+        if (tablebase != null) {
+            System.out.printf("tb position %s probes %d hits %d page hits %d page misses %d page evictions %d%n",
+                    tablebase.probe(match), tablebase.getProbes(), tablebase.getHits(), tablebase.getCacheHits(),
+                    tablebase.getCacheMisses(), tablebase.getCacheEvictions());
+            tablebase.close();
+        }
+    }
+
+    /**
+     * Análise multi-PV com uma thread, mostrando cada linha recebida pelo Flow.Subscriber
+     */
+    private static SearchResult analyze(ChessMatch match, TranspositionTable table, Tablebase tablebase,
+                                        SearchLimits limits, int lines, boolean infinite) throws IOException {
+        Search search = new Search(new Evaluator(), table);
+        search.setTablebase(tablebase);
+        try (Analysis analysis = new Analysis(search, match, limits, lines)) {
+            analysis.subscribe(new Flow.Subscriber<AnalysisUpdate>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(AnalysisUpdate update) {
+                    System.out.println(update);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    throwable.printStackTrace();
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+            analysis.start();
+            if (infinite) {
+                System.out.println("Press Enter to stop");
+                System.in.read();
+                analysis.stop();
+            }
+            return analysis.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while analyzing", e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package application;
+
+import chess.BoardType;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.Move;
+import chess.MoveList;
+import chess.engine.BatchEvaluator;
+import chess.engine.Search;
+import chess.movegen.MoveGenerator;
+import chess.record.GameRecordReader;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Ferramenta de linha de comando da avaliação em lote: avalia todas as posições de um arquivo de partidas.
+ * Uso: EvaluateProgram partidas.chgr [--threads N] [--batch N]
+ * --threads: paralelismo do fork-join (por padrão, um por processador)
+ * --batch: quantidade de posições de cada lote (por padrão, 1048576)
+ * A thread principal repete as partidas e empacota as posições; cada lote cheio é avaliado no pool. No final são
+ * mostrados a quantidade de posições, os mates, a média das avaliações do ponto de vista das brancas e a velocidade
+ * da avaliação.
+ */
+public class EvaluateProgram {
+    private static long positions;
+    private static long mates;
+    private static long whiteScore;
+    private static long evaluationNanos;
+
+    public static void main(String[] args) throws IOException {
+        String input = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int batchSize = 1 << 20;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--batch":
+                    batchSize = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    input = args[i];
+            }
+        }
+        if (input == null) {
+            System.out.println("Usage: EvaluateProgram games.chgr [--threads N] [--batch N]");
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        BatchEvaluator evaluator = new BatchEvaluator(pool);
+        long[] batch = new long[batchSize * BatchEvaluator.STRIDE];
+        int[] scores = new int[batchSize];
+        int[] count = new int[1];
+        long start = System.nanoTime();
+        try (GameRecordReader reader = new GameRecordReader(Paths.get(input))) {
+            MoveList moves = new MoveList();
+            reader.forEach(record -> {
+                String fen = record.getStartFen();
+                ChessMatch match = (fen == null) ? new ChessMatch(BoardType.BITBOARD) : Fen.read(fen, BoardType.BITBOARD);
+                for (int ply = 0; ; ply++) {
+                    BatchEvaluator.pack(match, batch, count[0]++);
+                    if (count[0] == scores.length) {
+                        evaluate(evaluator, batch, count[0], scores);
+                        count[0] = 0;
+                    }
+                    if (ply == record.getPlies()) {
+                        break;
+                    }
+                    match.legalMoves(moves);
+                    int move = Move.fromCompact(record.getCompactMove(ply), moves);
+                    if (move == Move.NONE) {
+                        throw new ChessException("Illegal move at ply " + (ply + 1) + " of game " + record.getIndex());
+                    }
+                    match.makeMove(move);
+                }
+            });
+            evaluate(evaluator, batch, count[0], scores);
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%,d positions in %.1f s, %,d mates, average %.1f cp for white%n", positions, seconds,
+                mates, positions == mates ? 0.0 : (double) whiteScore / (positions - mates));
+        System.out.printf("evaluation %.1f s, %,.0f positions/s%n", evaluationNanos / 1e9,
+                positions / Math.max(evaluationNanos / 1e9, 1e-9));
+    }
+
+    private static void evaluate(BatchEvaluator evaluator, long[] batch, int count, int[] scores) {
+        long start = System.nanoTime();
+        evaluator.evaluate(batch, count, scores);
+        evaluationNanos += System.nanoTime() - start;
+        for (int i = 0; i < count; i++) {
+            int score = (BatchEvaluator.side(batch, i) == MoveGenerator.WHITE) ? scores[i] : -scores[i];
+            if (Math.abs(score) == Search.MATE) {
+                mates++;
+            } else {
+                whiteScore += score;
+            }
+        }
+        positions += count;
+    }
+}
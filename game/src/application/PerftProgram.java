@@ -0,0 +1,100 @@
+package application;
+
+import chess.BoardType;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.perft.Perft;
+import chess.perft.PerftPosition;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Ferramenta de linha de comando do perft.
+ * Uso: PerftProgram [profundidade] [--fen FEN] [--divide] [--parallel] [--matrix] [--suite]
+ * --fen: posição inicial (por padrão, a posição inicial do xadrez)
+ * --divide: mostra a contagem de cada movimento da raiz
+ * --parallel: distribui os movimentos da raiz no fork-join
+ * --matrix: usa o tabuleiro em matriz em vez do BitBoard
+ * --suite: roda todas as posições de referência até a profundidade e confere as contagens
+ */
+public class PerftProgram {
+    public static void main(String[] args) {
+        int depth = 5;
+        String fen = Fen.START;
+        boolean divide = false;
+        boolean parallel = false;
+        boolean suite = false;
+        BoardType boardType = BoardType.BITBOARD;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--fen":
+                    StringBuilder sb = new StringBuilder();
+                    while (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        sb.append(args[++i]).append(' ');
+                    }
+                    fen = sb.toString().trim();
+                    break;
+                case "--divide":
+                    divide = true;
+                    break;
+                case "--parallel":
+                    parallel = true;
+                    break;
+                case "--matrix":
+                    boardType = BoardType.MATRIX;
+                    break;
+                case "--suite":
+                    suite = true;
+                    break;
+                default:
+                    depth = Integer.parseInt(args[i]);
+            }
+        }
+
+        if (suite) {
+            boolean ok = true;
+            for (PerftPosition position : PerftPosition.values()) {
+                int d = Math.min(depth, position.getMaxDepth());
+                long start = System.nanoTime();
+                long nodes = parallel
+                        ? Perft.parallel(position.getFen(), boardType, d, ForkJoinPool.commonPool())
+                        : Perft.perft(Fen.read(position.getFen(), boardType), d);
+                long expected = position.getExpected(d);
+                ok &= nodes == expected;
+                System.out.printf("%-18s depth %d: %,d (expected %,d) %s %s%n", position, d, nodes, expected,
+                        nodes == expected ? "OK" : "FAIL", speed(nodes, System.nanoTime() - start));
+            }
+            if (!ok) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        long start = System.nanoTime();
+        long nodes;
+        if (divide) {
+            Map<String, Long> result = parallel
+                    ? Perft.parallelDivide(fen, boardType, depth, ForkJoinPool.commonPool())
+                    : Perft.divide(Fen.read(fen, boardType), depth);
+            nodes = 0L;
+            for (Map.Entry<String, Long> entry : result.entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+            System.out.println();
+        } else if (parallel) {
+            nodes = Perft.parallel(fen, boardType, depth, ForkJoinPool.commonPool());
+        } else {
+            ChessMatch match = Fen.read(fen, boardType);
+            nodes = Perft.perft(match, depth);
+        }
+        System.out.printf("Nodes: %,d %s%n", nodes, speed(nodes, System.nanoTime() - start));
+    }
+
+    private static String speed(long nodes, long nanos) {
+        double seconds = nanos / 1e9;
+        return String.format("(%.3f s, %,.0f nodes/s)", seconds, nodes / Math.max(seconds, 1e-9));
+    }
+}
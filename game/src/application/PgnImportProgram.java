@@ -0,0 +1,68 @@
+package application;
+
+import chess.BoardType;
+import chess.pgn.ImportStats;
+import chess.pgn.PgnImporter;
+import chess.pgn.PgnReader;
+import chess.record.GameRecordWriter;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Ferramenta de linha de comando da importação de PGN.
+ * Uso: PgnImportProgram arquivo.pgn [--out partidas.chgr] [--quarantine invalidas.pgn] [--threads N] [--matrix]
+ * --out: grava as partidas válidas no formato binário de partidas
+ * --quarantine: grava as partidas inválidas, com o erro na tag ImportError
+ * --threads: paralelismo do fork-join (por padrão, um por processador)
+ * --matrix: usa o tabuleiro em matriz em vez do BitBoard
+ */
+public class PgnImportProgram {
+    public static void main(String[] args) throws IOException {
+        String input = null;
+        String out = null;
+        String quarantine = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        BoardType boardType = BoardType.BITBOARD;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out":
+                    out = args[++i];
+                    break;
+                case "--quarantine":
+                    quarantine = args[++i];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--matrix":
+                    boardType = BoardType.MATRIX;
+                    break;
+                default:
+                    input = args[i];
+            }
+        }
+        if (input == null) {
+            System.out.println("Usage: PgnImportProgram file.pgn [--out games.chgr] [--quarantine bad.pgn] "
+                    + "[--threads N] [--matrix]");
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (PgnReader reader = new PgnReader(new InputStreamReader(Files.newInputStream(Paths.get(input)),
+                StandardCharsets.UTF_8));
+             GameRecordWriter output = (out == null) ? null : new GameRecordWriter(Paths.get(out));
+             Writer bad = (quarantine == null) ? null
+                     : Files.newBufferedWriter(Paths.get(quarantine), StandardCharsets.UTF_8)) {
+            ImportStats stats = new PgnImporter(pool, boardType).importGames(reader, output, bad);
+            System.out.println(stats);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -13,7 +13,7 @@ public class Program {
         ChessMatch chessMatch = new ChessMatch();
         List<ChessPiece> captured = new ArrayList<>();
 
-        while (!chessMatch.getCheckMate()) {
+        while (!chessMatch.getCheckMate() && !chessMatch.getStalemate() && !chessMatch.getDraw()) {
             try {
                 UI.clearScreen();
                 UI.printMatch(chessMatch, captured);
@@ -0,0 +1,61 @@
+package application;
+
+import application.server.GameServer;
+import application.server.LatencyHistogram;
+import chess.pgn.RollingPgnWriter;
+import chess.tablebase.Tablebase;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Sobe o servidor de partidas em localhost e mostra as estatísticas periodicamente.
+ * Uso: ServerProgram [porta] [--threads N] [--mailbox N] [--archive pasta] [--tb diretório]
+ * Por padrão usa a porta 7777, uma thread de partidas por processador e caixas de mensagens de
+ * GameServer.DEFAULT_MAILBOX_CAPACITY comandos. Com --archive as partidas encerradas são gravadas em arquivos PGN
+ * rotativos de 64 MB na pasta. Com --tb as partidas que chegam a uma posição das tabelas de finais do diretório são
+ * adjudicadas.
+ */
+public class ServerProgram {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = 7777;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int mailbox = GameServer.DEFAULT_MAILBOX_CAPACITY;
+        String archive = null;
+        String tablebase = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--mailbox")) {
+                mailbox = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--archive")) {
+                archive = args[++i];
+            } else if (args[i].equals("--tb")) {
+                tablebase = args[++i];
+            } else {
+                port = Integer.parseInt(args[i]);
+            }
+        }
+
+        GameServer server = new GameServer(port, threads, mailbox);
+        RollingPgnWriter pgn = null;
+        if (archive != null) {
+            pgn = new RollingPgnWriter(Paths.get(archive), "games", 64L << 20, 65536);
+            server.setArchive(pgn);
+        }
+        if (tablebase != null) {
+            server.setTablebase(new Tablebase(Paths.get(tablebase)));
+        }
+        server.start();
+        System.out.println("Listening on localhost:" + server.getPort() + " with " + threads + " worker threads");
+        while (true) {
+            Thread.sleep(10_000L);
+            LatencyHistogram latency = server.getMoveLatency();
+            System.out.printf("games %d moves %d rejected %d move latency p50 %d us p99 %d us%n", server.getGames(),
+                    server.getMoves(), server.getRejected(), latency.getPercentile(50), latency.getPercentile(99));
+            if (pgn != null) {
+                System.out.printf("archived games %d dropped %d%n", pgn.getWritten(), pgn.getDropped());
+            }
+        }
+    }
+}
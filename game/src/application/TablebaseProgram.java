@@ -0,0 +1,64 @@
+package application;
+
+import chess.BoardType;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.Move;
+import chess.MoveList;
+import chess.tablebase.Tablebase;
+import chess.tablebase.TablebaseGenerator;
+import chess.tablebase.TablebaseResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Ferramenta de linha de comando das tabelas de finais.
+ * Uso: TablebaseProgram generate diretório KQvK KRvK KPvK ...
+ *      TablebaseProgram probe diretório FEN
+ * generate: gera as tabelas (e as tabelas menores de que elas dependem) que ainda não estiverem no diretório
+ * probe: mostra o resultado da posição e o resultado de cada movimento legal
+ */
+public class TablebaseProgram {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: TablebaseProgram generate directory KQvK KRvK KPvK ...");
+            System.out.println("       TablebaseProgram probe directory FEN");
+            return;
+        }
+        Path directory = Paths.get(args[1]);
+        if (args[0].equals("generate")) {
+            long start = System.nanoTime();
+            try (TablebaseGenerator generator = new TablebaseGenerator(directory, System.out)) {
+                for (int i = 2; i < args.length; i++) {
+                    generator.generate(args[i]);
+                }
+            }
+            System.out.printf("Done in %.1f s%n", (System.nanoTime() - start) / 1e9);
+        } else if (args[0].equals("probe")) {
+            StringBuilder fen = new StringBuilder();
+            for (int i = 2; i < args.length; i++) {
+                fen.append(args[i]).append(' ');
+            }
+            ChessMatch match = Fen.read(fen.toString().trim(), BoardType.BITBOARD);
+            try (Tablebase tablebase = new Tablebase(directory)) {
+                TablebaseResult result = tablebase.probe(match);
+                if (result == null) {
+                    System.out.println("Position not in the tablebases");
+                    return;
+                }
+                System.out.println(result);
+                MoveList moves = new MoveList();
+                int count = match.legalMoves(moves);
+                for (int i = 0; i < count; i++) {
+                    match.makeMove(moves.get(i));
+                    System.out.println(Move.toString(moves.get(i)) + " " + tablebase.probe(match));
+                    match.undoMove();
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown command: " + args[0]);
+        }
+    }
+}
@@ -72,7 +72,11 @@ public class UI {
         printCapturedPieces(captured);
         System.out.println();
         System.out.println("Turn: " + chessMatch.getTurn());
-        if (!chessMatch.getCheckMate()) {
+        if (chessMatch.getStalemate()) {
+            System.out.println("STALEMATE!");
+        } else if (chessMatch.getDraw()) {
+            System.out.println("DRAW!");
+        } else if (!chessMatch.getCheckMate()) {
             System.out.println("Waiting payler: " + chessMatch.getCurrentPlayer());
             //Verifica se a partida está em cheque
             if (chessMatch.getCheck()) {
@@ -0,0 +1,20 @@
+package application;
+
+import application.uci.UciEngine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Motor de xadrez no protocolo UCI pela entrada e saída padrão, para ser usado por interfaces gráficas e gerenciadores
+ * de torneios (ver UciEngine). É a alternativa ao Program, em que uma pessoa digita as casas no console.
+ * Uso: UciProgram
+ */
+public class UciProgram {
+    public static void main(String[] args) throws IOException {
+        BufferedReader input = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        new UciEngine(input, System.out).run();
+    }
+}
@@ -0,0 +1,96 @@
+package application.server;
+
+import chess.ChessMatch;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Partida hospedada no estilo ator: todos os comandos da partida passam pela sua caixa de mensagens e são executados
+ * um de cada vez, na ordem de chegada, por alguma thread do executor compartilhado. Como nunca há duas mensagens da
+ * mesma partida rodando ao mesmo tempo, a ChessMatch (que não é segura para várias threads) não precisa de locks, e
+ * uma partida parada não ocupa nenhuma thread, só a fila vazia.
+ * A caixa de mensagens é limitada: quando um cliente manda comandos mais rápido do que a partida os processa, tell
+ * recusa os excedentes em vez de deixar a fila crescer sem limite.
+ */
+public class GameActor {
+    /**
+     * Quantidade máxima de mensagens processadas de uma vez antes de devolver a thread ao executor, para que uma
+     * partida muito ativa não atrase as outras
+     */
+    private static final int BATCH = 32;
+
+    private final ChessMatch match;
+    private final Executor executor;
+    private final int capacity;
+    private final Queue<Consumer<ChessMatch>> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * @param match partida, que depois disso só deve ser acessada pelas mensagens
+     * @param executor executor compartilhado que processa as caixas de mensagens
+     * @param capacity quantidade máxima de mensagens esperando na caixa
+     */
+    public GameActor(ChessMatch match, Executor executor, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The mailbox capacity must be positive");
+        }
+        this.match = match;
+        this.executor = executor;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Coloca uma mensagem na caixa da partida. A mensagem recebe a partida e roda depois de todas as mensagens
+     * aceitas antes dela.
+     * @param message
+     * @return false se a caixa estiver cheia e a mensagem for recusada
+     */
+    public boolean tell(Consumer<ChessMatch> message) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return false;
+        }
+        mailbox.offer(message);
+        schedule();
+        return true;
+    }
+
+    /**
+     * @return quantidade de mensagens esperando na caixa
+     */
+    public int getPending() {
+        return size.get();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Processa até BATCH mensagens e se agenda de novo se ainda houver mensagens na caixa
+     */
+    private void drain() {
+        Consumer<ChessMatch> message;
+        for (int i = 0; i < BATCH && (message = mailbox.poll()) != null; i++) {
+            size.decrementAndGet();
+            try {
+                message.accept(match);
+            } catch (RuntimeException e) {
+                //As mensagens respondem os seus próprios erros; uma falha não pode parar a caixa de mensagens
+                System.err.println("Error processing game message: " + e);
+            }
+        }
+        scheduled.set(false);
+        if (!mailbox.isEmpty()) {
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,504 @@
+package application.server;
+
+import chess.BoardType;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Color;
+import chess.Fen;
+import chess.GameResult;
+import chess.Move;
+import chess.MoveList;
+import chess.pgn.RollingPgnWriter;
+import chess.tablebase.Tablebase;
+import chess.tablebase.TablebaseResult;
+import chess.tablebase.Wdl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Servidor local que hospeda várias partidas ao mesmo tempo, com um protocolo de texto sobre sockets.
+ * Cada linha enviada pelo cliente é um pedido "tag COMANDO argumentos", e cada pedido recebe uma linha de resposta
+ * "tag OK resultado" ou "tag ERR mensagem", com a mesma tag escolhida pelo cliente. As respostas de partidas diferentes
+ * podem chegar fora da ordem dos pedidos; as de uma mesma partida chegam na ordem.
+ * Comandos:
+ * NEW [FEN]: cria uma partida (na posição inicial ou na FEN) e responde o seu id
+ * MOVE id movimento: faz um movimento em notação de coordenadas (e2e4, e7e8q) e responde a situação da partida
+ * (PLAYING, CHECK, CHECKMATE, STALEMATE ou DRAW) seguida do movimento em SAN. Com tabelas de finais (ver
+ * setTablebase), uma partida que chega a uma posição das tabelas é adjudicada: a situação é ADJUDICATED, seguida do
+ * movimento e do resultado (1-0, 0-1 ou 1/2-1/2), e a partida não aceita mais movimentos até um UNDO
+ * MOVES id: responde os movimentos legais, separados por espaço
+ * FEN id: responde a posição em FEN
+ * UNDO id: desfaz o último movimento e responde a situação da partida
+ * PROMOTE id peça: troca a peça promovida no último movimento (B, N, R ou Q) e responde a situação da partida
+ * PROBE id: responde o resultado da posição pelas tabelas de finais, do ponto de vista de quem joga (WIN n, LOSS n ou
+ * DRAW, com n movimentos até o mate)
+ * CLOSE id: encerra a partida, gravando-a no arquivo de partidas do servidor, se houver (ver setArchive)
+ * As partidas que uma conexão criou e não encerrou são encerradas como no CLOSE quando ela é fechada, para que os
+ * clientes que se desconectam não deixem partidas esquecidas no servidor.
+ * STATS: responde a quantidade de partidas, de movimentos e de comandos recusados e os percentis 50 e 99 da latência
+ * dos movimentos, em us
+ * QUIT: fecha a conexão
+ * Cada partida é um GameActor: os comandos entram na caixa de mensagens da partida e são processados em ordem pelo
+ * pool de threads compartilhado, então a ChessMatch não precisa de nenhum lock e partidas paradas não ocupam threads.
+ * Quando a caixa de uma partida está cheia o comando é recusado com "ERR BUSY", e o cliente deve esperar as respostas
+ * pendentes antes de mandar mais comandos para ela.
+ * As respostas de cada conexão passam por uma fila própria (ver Outbox), escrita no socket por uma thread da conexão,
+ * então as threads das partidas nunca esperam por um cliente lento. Um cliente que deixa mais de
+ * DEFAULT_OUTBOX_CAPACITY respostas sem ler tem a conexão fechada.
+ */
+public class GameServer {
+    /**
+     * Capacidade padrão da caixa de mensagens de cada partida
+     */
+    public static final int DEFAULT_MAILBOX_CAPACITY = 64;
+
+    /**
+     * Quantidade máxima de respostas esperando para serem escritas em cada conexão
+     */
+    public static final int DEFAULT_OUTBOX_CAPACITY = 4096;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService workers;
+    private final int mailboxCapacity;
+    private final Map<Long, GameActor> games = new ConcurrentHashMap<>();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextId = new AtomicLong(1L);
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+    private final Map<Long, GameResult> adjudications = new ConcurrentHashMap<>();
+    private volatile RollingPgnWriter archive;
+    private volatile Tablebase tablebase;
+    private volatile boolean running;
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+
+    /**
+     * Lista de movimentos de cada thread do pool, usada pelos comandos enquanto rodam. Fica na thread e não na
+     * partida para que as partidas paradas ocupem menos memória.
+     */
+    private static final ThreadLocal<MoveList> MOVE_LISTS = ThreadLocal.withInitial(MoveList::new);
+
+    /**
+     * Cria o servidor escutando em localhost, com a capacidade padrão das caixas de mensagens
+     * @param port porta, ou 0 para uma porta livre qualquer
+     * @param threads quantidade de threads que processam as partidas
+     * @throws IOException
+     */
+    public GameServer(int port, int threads) throws IOException {
+        this(port, threads, DEFAULT_MAILBOX_CAPACITY);
+    }
+
+    /**
+     * Cria o servidor escutando em localhost
+     * @param port porta, ou 0 para uma porta livre qualquer
+     * @param threads quantidade de threads que processam as partidas
+     * @param mailboxCapacity quantidade máxima de comandos esperando em cada partida
+     * @throws IOException
+     */
+    public GameServer(int port, int threads, int mailboxCapacity) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The server needs at least one worker thread");
+        }
+        if (mailboxCapacity < 1) {
+            throw new IllegalArgumentException("The mailbox capacity must be positive");
+        }
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        AtomicInteger count = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "game-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.mailboxCapacity = mailboxCapacity;
+    }
+
+    /**
+     * Começa a aceitar conexões em uma thread própria
+     */
+    public void start() {
+        running = true;
+        Thread acceptor = daemonThreads("game-acceptor").newThread(this::acceptLoop);
+        acceptor.start();
+    }
+
+    /**
+     * Fecha as conexões e encerra os executores
+     */
+    public void stop() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            //O socket já está fechado
+        }
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+        workers.shutdown();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Define onde as partidas encerradas com CLOSE são gravadas em PGN. A gravação não bloqueia as threads das
+     * partidas (ver RollingPgnWriter).
+     * @param archive o escritor, ou null para não gravar
+     */
+    public void setArchive(RollingPgnWriter archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Define as tabelas de finais usadas para adjudicar as partidas e responder o comando PROBE
+     * @param tablebase as tabelas, ou null para não adjudicar
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getGames() {
+        return games.size();
+    }
+
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    /**
+     * @return quantidade de comandos recusados porque a caixa de mensagens da partida estava cheia
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public LatencyHistogram getMoveLatency() {
+        return moveLatency;
+    }
+
+    private void acceptLoop() {
+        AtomicInteger count = new AtomicInteger();
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                String name = "game-connection-" + count.incrementAndGet();
+                Outbox out = new Outbox(socket, DEFAULT_OUTBOX_CAPACITY);
+                daemonThreads(name + "-writer").newThread(out).start();
+                daemonThreads(name).newThread(() -> serve(socket, out)).start();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Error accepting connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Lê os pedidos de uma conexão. Os comandos de partida são colocados na caixa de mensagens da partida, e a
+     * resposta é colocada na fila da conexão quando forem processados; os demais são respondidos aqui. No final,
+     * encerra as partidas criadas pela conexão que continuam abertas.
+     * @param socket
+     * @param out fila das respostas da conexão, que fecha o socket depois de escrever as pendentes
+     */
+    private void serve(Socket socket, Outbox out) {
+        //Partidas criadas por esta conexão e ainda não encerradas. O CLOSE as retira na thread da partida
+        Set<Long> owned = ConcurrentHashMap.newKeySet();
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                long received = System.nanoTime();
+                String[] words = line.trim().split("\\s+", 3);
+                if (words.length < 2) {
+                    send(out, words[0], "ERR Invalid request");
+                    continue;
+                }
+                String tag = words[0];
+                String command = words[1].toUpperCase();
+                String arguments = (words.length > 2) ? words[2] : "";
+                if (command.equals("QUIT")) {
+                    send(out, tag, "OK");
+                    break;
+                }
+                handle(out, tag, command, arguments, received, owned);
+            }
+        } catch (SocketException e) {
+            //Conexão fechada pelo cliente ou pelo stop()
+        } catch (IOException e) {
+            System.err.println("Connection error: " + e.getMessage());
+        } finally {
+            connections.remove(socket);
+            out.close();
+            for (long gameId : owned) {
+                GameActor game = games.get(gameId);
+                //Pela caixa de mensagens, para rodar depois dos comandos pendentes; com a caixa cheia (ou o servidor
+                //parando) a partida é só descartada
+                try {
+                    if (game == null || !game.tell(match -> close(match, gameId))) {
+                        release(gameId);
+                    }
+                } catch (RejectedExecutionException e) {
+                    release(gameId);
+                }
+            }
+        }
+    }
+
+    private void handle(Outbox out, String tag, String command, String arguments, long received, Set<Long> owned) {
+        switch (command) {
+            case "NEW":
+                try {
+                    ChessMatch match = arguments.isEmpty() ? new ChessMatch(BoardType.BITBOARD)
+                            : Fen.read(arguments, BoardType.BITBOARD);
+                    long id = nextId.getAndIncrement();
+                    games.put(id, new GameActor(match, workers, mailboxCapacity));
+                    owned.add(id);
+                    send(out, tag, "OK " + id);
+                } catch (ChessException e) {
+                    send(out, tag, "ERR " + e.getMessage());
+                }
+                return;
+            case "STATS":
+                send(out, tag, String.format("OK games=%d moves=%d rejected=%d p50=%d p99=%d", getGames(),
+                        getMoves(), getRejected(), moveLatency.getPercentile(50), moveLatency.getPercentile(99)));
+                return;
+            case "MOVE":
+            case "MOVES":
+            case "FEN":
+            case "UNDO":
+            case "PROMOTE":
+            case "PROBE":
+            case "CLOSE":
+                break;
+            default:
+                send(out, tag, "ERR Unknown command: " + command);
+                return;
+        }
+
+        String[] args = arguments.split("\\s+");
+        long gameId;
+        try {
+            gameId = Long.parseLong(args[0]);
+        } catch (NumberFormatException e) {
+            send(out, tag, "ERR Invalid game id: " + args[0]);
+            return;
+        }
+        GameActor game = games.get(gameId);
+        if (game == null) {
+            send(out, tag, "ERR Unknown game: " + gameId);
+            return;
+        }
+        boolean accepted = game.tell(match -> {
+            try {
+                send(out, tag, "OK " + execute(match, gameId, command, args));
+                if (command.equals("CLOSE")) {
+                    owned.remove(gameId);
+                }
+            } catch (RuntimeException e) {
+                send(out, tag, "ERR " + e.getMessage());
+            }
+            if (command.equals("MOVE")) {
+                moveLatency.record(System.nanoTime() - received);
+            }
+        });
+        if (!accepted) {
+            rejected.increment();
+            send(out, tag, "ERR BUSY");
+        }
+    }
+
+    /**
+     * Executa um comando de partida. Roda como mensagem da partida, então nunca em paralelo com outro comando dela.
+     * @return o resultado da resposta
+     */
+    private String execute(ChessMatch match, long gameId, String command, String[] args) {
+        MoveList moveList = MOVE_LISTS.get();
+        switch (command) {
+            case "MOVE": {
+                if (args.length < 2) {
+                    throw new ChessException("Missing move");
+                }
+                GameResult adjudicated = adjudications.get(gameId);
+                if (adjudicated != null) {
+                    throw new ChessException("The game was adjudicated: " + adjudicated.getToken());
+                }
+                match.legalMoves(moveList);
+                int move = Move.parse(args[1], moveList);
+                if (move == Move.NONE) {
+                    throw new ChessException("Illegal move: " + args[1]);
+                }
+                match.performChessMove(move);
+                moves.increment();
+                GameResult result = adjudicate(match);
+                if (result != null) {
+                    adjudications.put(gameId, result);
+                    return "ADJUDICATED " + match.getLastMoveSan() + " " + result.getToken();
+                }
+                return status(match) + " " + match.getLastMoveSan();
+            }
+            case "MOVES": {
+                int count = match.legalMoves(moveList);
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) {
+                        sb.append(' ');
+                    }
+                    sb.append(Move.toString(moveList.get(i)));
+                }
+                return sb.toString();
+            }
+            case "FEN":
+                return Fen.write(match);
+            case "UNDO":
+                match.undoChessMove();
+                adjudications.remove(gameId);
+                return status(match);
+            case "PROMOTE":
+                if (args.length < 2) {
+                    throw new ChessException("Missing piece type");
+                }
+                if (match.getPromoted() == null) {
+                    throw new ChessException("There is no piece to be promoted");
+                }
+                match.replacePromotedPiece(args[1].toUpperCase());
+                return status(match);
+            case "PROBE": {
+                Tablebase tb = tablebase;
+                TablebaseResult result = (tb != null) ? tb.probe(match) : null;
+                if (result == null) {
+                    throw new ChessException("Position not in the tablebases");
+                }
+                return result.toString();
+            }
+            default:
+                close(match, gameId);
+                return "";
+        }
+    }
+
+    /**
+     * Encerra uma partida, gravando-a no arquivo de partidas. Roda como mensagem da partida; se ela já tiver sido
+     * encerrada (por exemplo um CLOSE seguido do fechamento da conexão) não faz nada.
+     * @param match
+     * @param gameId
+     */
+    private void close(ChessMatch match, long gameId) {
+        if (games.get(gameId) == null) {
+            return;
+        }
+        GameResult adjudicated = adjudications.get(gameId);
+        release(gameId);
+        RollingPgnWriter pgn = archive;
+        if (pgn != null && match.getPly() > 0) {
+            Map<String, String> tags = new HashMap<>();
+            tags.put("Event", "Game " + gameId);
+            tags.put("Date", DATE.format(LocalDate.now()));
+            if (!Fen.START.equals(match.getStartFen())) {
+                tags.put("SetUp", "1");
+                tags.put("FEN", match.getStartFen());
+            }
+            if (adjudicated != null) {
+                tags.put("Result", adjudicated.getToken());
+                tags.put("Termination", "adjudication");
+            }
+            pgn.append(match, tags);
+        }
+    }
+
+    /**
+     * Retira a partida e os seus dados do servidor
+     * @param gameId
+     */
+    private void release(long gameId) {
+        games.remove(gameId);
+        adjudications.remove(gameId);
+    }
+
+    /**
+     * @return o resultado da posição pelas tabelas de finais, ou null se não houver tabelas, a partida já tiver
+     * terminado ou a posição não estiver nelas
+     */
+    private GameResult adjudicate(ChessMatch match) {
+        Tablebase tb = tablebase;
+        if (tb == null || match.getCheckMate() || match.getStalemate() || match.getDraw()) {
+            return null;
+        }
+        TablebaseResult result = tb.probe(match);
+        if (result == null) {
+            return null;
+        }
+        if (result.getWdl() == Wdl.DRAW) {
+            return GameResult.DRAW;
+        }
+        boolean whiteWins = (result.getWdl() == Wdl.WIN) == (match.getCurrentPlayer() == Color.WHITE);
+        return whiteWins ? GameResult.WHITE_WINS : GameResult.BLACK_WINS;
+    }
+
+    private static String status(ChessMatch match) {
+        if (match.getCheckMate()) {
+            return "CHECKMATE";
+        }
+        if (match.getStalemate()) {
+            return "STALEMATE";
+        }
+        if (match.getDraw()) {
+            return "DRAW";
+        }
+        return match.getCheck() ? "CHECK" : "PLAYING";
+    }
+
+    /**
+     * Coloca uma resposta na fila da conexão, sem esperar pela escrita. Se a conexão estiver fechada a resposta é
+     * descartada.
+     */
+    private static void send(Outbox out, String tag, String response) {
+        out.send(tag + ' ' + response);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //Nada a fazer
+        }
+    }
+}
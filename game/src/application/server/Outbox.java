@@ -0,0 +1,112 @@
+package application.server;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fila das respostas de uma conexão, escritas no socket por uma thread da própria conexão (ver run). As threads das
+ * partidas só colocam as respostas na fila e nunca esperam pelo socket, então um cliente que para de ler não prende
+ * as threads compartilhadas. A fila é limitada: quando ela enche, o cliente não está acompanhando as respostas e a
+ * conexão é fechada.
+ */
+public class Outbox implements Runnable {
+    /**
+     * Marca do fim das respostas, colocada por close(). Comparada pela referência.
+     */
+    private static final String END = new String("");
+
+    private final Socket socket;
+    private final BlockingQueue<String> queue;
+    private volatile boolean closed;
+
+    /**
+     * @param socket conexão onde as respostas são escritas
+     * @param capacity quantidade máxima de respostas esperando para serem escritas
+     */
+    public Outbox(Socket socket, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The outbox capacity must be positive");
+        }
+        this.socket = socket;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Coloca uma linha na fila sem esperar. Se a fila estiver cheia a conexão é fechada.
+     * @param line
+     * @return false se a linha foi descartada porque a conexão está fechada ou foi fechada agora
+     */
+    public boolean send(String line) {
+        if (closed) {
+            return false;
+        }
+        if (!queue.offer(line)) {
+            abort();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Não aceita mais respostas. As que já estão na fila são escritas e depois o socket é fechado pela thread de
+     * escrita.
+     */
+    public void close() {
+        closed = true;
+        if (!queue.offer(END)) {
+            abort();
+        }
+    }
+
+    /**
+     * Fecha o socket na hora, descartando as respostas pendentes
+     */
+    public void abort() {
+        closed = true;
+        queue.clear();
+        queue.offer(END);
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //O socket já está fechado
+        }
+    }
+
+    /**
+     * Corpo da thread de escrita: escreve as respostas na ordem e só esvazia o buffer quando a fila fica vazia, para
+     * juntar as respostas que chegam juntas em uma escrita só
+     */
+    @Override
+    public void run() {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            while (true) {
+                String line = queue.take();
+                if (line == END) {
+                    break;
+                }
+                out.write(line);
+                out.write('\n');
+                if (queue.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            //A conexão foi fechada; as respostas pendentes são descartadas
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closed = true;
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //O socket já está fechado
+            }
+        }
+    }
+}
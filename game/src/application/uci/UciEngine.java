@@ -0,0 +1,450 @@
+package application.uci;
+
+import chess.BoardType;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Color;
+import chess.Fen;
+import chess.Move;
+import chess.MoveList;
+import chess.book.OpeningBook;
+import chess.engine.AnalysisUpdate;
+import chess.engine.Evaluator;
+import chess.engine.ParallelSearch;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import chess.tablebase.Tablebase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Motor de xadrez no protocolo UCI, para ser usado por interfaces gráficas e gerenciadores de torneios.
+ * A thread que chama run lê os comandos; cada "go" roda em uma thread de busca própria, então os comandos que chegam
+ * durante a busca (stop, isready) são respondidos na hora. Comandos suportados:
+ * uci: identificação e opções, seguidas de uciok
+ * isready: responde readyok
+ * setoption name Nome value valor: Hash (MB), Threads, MultiPV, BookFile (livro de aberturas) e TablebasePath
+ * (diretório das tabelas de finais)
+ * ucinewgame: limpa a tabela de transposição
+ * position startpos|fen FEN [moves m1 m2 ...]: define a posição, com os movimentos em notação de coordenadas
+ * go [wtime t] [btime t] [winc t] [binc t] [movestogo n] [movetime t] [depth n] [nodes n] [infinite]: busca a posição
+ * e responde bestmove. Durante a busca, cada linha completada é enviada em uma linha info
+ * stop: interrompe a busca, que responde bestmove com o resultado até ali
+ * quit: encerra o motor
+ * Com Threads maior que 1 e MultiPV igual a 1 a busca é a ParallelSearch, que só envia a linha info final; nos demais
+ * casos é a análise de uma Search (ver Search.analyze), que envia as linhas info a cada profundidade.
+ */
+public class UciEngine {
+    public static final String NAME = "Chess System";
+    public static final String AUTHOR = "Chess System contributors";
+
+    //Margem deixada no relógio para a comunicação com a interface
+    private static final long TIME_MARGIN = 50L;
+    //Quantidade de movimentos que se supõe faltar até o próximo controle de tempo, quando a interface não informa
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+
+    private final BufferedReader input;
+    private final PrintStream output;
+    private final Random random = new Random();
+
+    private ChessMatch match = new ChessMatch(BoardType.BITBOARD);
+    private int hash = 16;
+    private int threads = 1;
+    private int lines = 1;
+    private TranspositionTable table;
+    private Search search;
+    private ParallelSearch parallelSearch;
+    private OpeningBook book;
+    private Tablebase tablebase;
+
+    //Estado da busca em andamento, compartilhado com a thread de busca
+    private Thread searchThread;
+    private boolean infinite;
+    private boolean stopRequested;
+
+    /**
+     * @param input comandos da interface
+     * @param output respostas para a interface
+     */
+    public UciEngine(BufferedReader input, PrintStream output) {
+        this.input = input;
+        this.output = output;
+    }
+
+    /**
+     * Método que lê e executa os comandos até quit ou o fim da entrada
+     * @throws IOException
+     */
+    public void run() throws IOException {
+        try {
+            String line;
+            while ((line = input.readLine()) != null) {
+                line = line.trim();
+                if (line.equals("quit")) {
+                    break;
+                }
+                try {
+                    execute(line);
+                } catch (ChessException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                    send("info string " + e.getMessage());
+                } catch (IOException e) {
+                    send("info string Can't read file: " + e.getMessage());
+                }
+            }
+        } finally {
+            stopSearch();
+            if (parallelSearch != null) {
+                parallelSearch.shutdown();
+            }
+            if (book != null) {
+                book.close();
+            }
+            if (tablebase != null) {
+                tablebase.close();
+            }
+        }
+    }
+
+    private void execute(String line) throws IOException {
+        String[] tokens = line.split("\\s+");
+        switch (tokens[0]) {
+            case "uci":
+                send("id name " + NAME);
+                send("id author " + AUTHOR);
+                send("option name Hash type spin default 16 min 1 max 65536");
+                send("option name Threads type spin default 1 min 1 max 256");
+                send("option name MultiPV type spin default 1 min 1 max 256");
+                send("option name BookFile type string default <empty>");
+                send("option name TablebasePath type string default <empty>");
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "setoption":
+                stopSearch();
+                setOption(line);
+                break;
+            case "ucinewgame":
+                stopSearch();
+                if (table != null) {
+                    table.clear();
+                }
+                break;
+            case "position":
+                stopSearch();
+                position(tokens);
+                break;
+            case "go":
+                stopSearch();
+                go(tokens);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "":
+                break;
+            default:
+                send("info string Unknown command: " + tokens[0]);
+        }
+    }
+
+    /**
+     * setoption name Nome value valor. O nome e o valor podem ter espaços.
+     */
+    private void setOption(String line) throws IOException {
+        int nameIndex = line.indexOf(" name ");
+        if (nameIndex < 0) {
+            throw new IllegalArgumentException("Missing option name");
+        }
+        int valueIndex = line.indexOf(" value ");
+        String name = (valueIndex < 0) ? line.substring(nameIndex + 6).trim()
+                : line.substring(nameIndex + 6, valueIndex).trim();
+        String value = (valueIndex < 0) ? "" : line.substring(valueIndex + 7).trim();
+        switch (name.toLowerCase()) {
+            case "hash":
+                hash = Integer.parseInt(value);
+                table = null;
+                search = null;
+                discardParallelSearch();
+                break;
+            case "threads":
+                threads = Integer.parseInt(value);
+                discardParallelSearch();
+                break;
+            case "multipv":
+                lines = Integer.parseInt(value);
+                break;
+            case "bookfile":
+                if (book != null) {
+                    book.close();
+                    book = null;
+                }
+                if (!value.isEmpty() && !value.equals("<empty>")) {
+                    book = new OpeningBook(Paths.get(value));
+                }
+                break;
+            case "tablebasepath":
+                if (tablebase != null) {
+                    tablebase.close();
+                    tablebase = null;
+                }
+                if (!value.isEmpty() && !value.equals("<empty>")) {
+                    tablebase = new Tablebase(Paths.get(value));
+                }
+                if (search != null) {
+                    search.setTablebase(tablebase);
+                }
+                if (parallelSearch != null) {
+                    parallelSearch.setTablebase(tablebase);
+                }
+                break;
+            default:
+                send("info string Unknown option: " + name);
+        }
+    }
+
+    private void discardParallelSearch() {
+        if (parallelSearch != null) {
+            parallelSearch.shutdown();
+            parallelSearch = null;
+        }
+    }
+
+    /**
+     * position startpos|fen FEN [moves ...]. Os movimentos são feitos com makeMove, então o histórico fica na
+     * partida e a busca reconhece as repetições.
+     */
+    private void position(String[] tokens) {
+        int i = 1;
+        ChessMatch position;
+        if (tokens.length > 1 && tokens[1].equals("startpos")) {
+            position = new ChessMatch(BoardType.BITBOARD);
+            i = 2;
+        } else if (tokens.length > 1 && tokens[1].equals("fen")) {
+            StringBuilder fen = new StringBuilder();
+            for (i = 2; i < tokens.length && !tokens[i].equals("moves"); i++) {
+                fen.append(tokens[i]).append(' ');
+            }
+            position = Fen.read(fen.toString().trim(), BoardType.BITBOARD);
+        } else {
+            throw new IllegalArgumentException("Expected startpos or fen");
+        }
+        if (i < tokens.length && tokens[i].equals("moves")) {
+            MoveList moves = new MoveList();
+            for (i++; i < tokens.length; i++) {
+                position.legalMoves(moves);
+                int move = Move.parse(tokens[i], moves);
+                if (move == Move.NONE) {
+                    throw new ChessException("Illegal move: " + tokens[i]);
+                }
+                position.makeMove(move);
+            }
+        }
+        match = position;
+    }
+
+    private void go(String[] tokens) {
+        long whiteTime = 0L;
+        long blackTime = 0L;
+        long whiteIncrement = 0L;
+        long blackIncrement = 0L;
+        int movesToGo = 0;
+        long moveTime = 0L;
+        int depth = 0;
+        long nodes = 0L;
+        boolean infinite = false;
+        for (int i = 1; i < tokens.length; i++) {
+            switch (tokens[i]) {
+                case "wtime":
+                    whiteTime = Long.parseLong(tokens[++i]);
+                    break;
+                case "btime":
+                    blackTime = Long.parseLong(tokens[++i]);
+                    break;
+                case "winc":
+                    whiteIncrement = Long.parseLong(tokens[++i]);
+                    break;
+                case "binc":
+                    blackIncrement = Long.parseLong(tokens[++i]);
+                    break;
+                case "movestogo":
+                    movesToGo = Integer.parseInt(tokens[++i]);
+                    break;
+                case "movetime":
+                    moveTime = Long.parseLong(tokens[++i]);
+                    break;
+                case "depth":
+                    depth = Integer.parseInt(tokens[++i]);
+                    break;
+                case "nodes":
+                    nodes = Long.parseLong(tokens[++i]);
+                    break;
+                case "infinite":
+                    infinite = true;
+                    break;
+                default:
+                    //Opções não suportadas (ponder, searchmoves, mate) são ignoradas
+            }
+        }
+
+        boolean white = match.getCurrentPlayer() == Color.WHITE;
+        long time = moveTime;
+        if (time == 0L && (white ? whiteTime : blackTime) > 0L) {
+            time = timeFor(white ? whiteTime : blackTime, white ? whiteIncrement : blackIncrement, movesToGo);
+        }
+        SearchLimits limits = infinite ? SearchLimits.INFINITE : new SearchLimits(depth, time, nodes);
+
+        //Um movimento do livro é respondido sem busca
+        if (book != null && !infinite) {
+            int move = book.pick(match, random);
+            if (move != Move.NONE) {
+                send("bestmove " + Move.toString(move));
+                return;
+            }
+        }
+
+        //As buscas são criadas aqui, e não na thread de busca, para que stop sempre as encontre
+        if (table == null) {
+            table = new TranspositionTable(hash);
+        }
+        boolean parallel = threads > 1 && lines == 1;
+        if (parallel && parallelSearch == null) {
+            parallelSearch = new ParallelSearch(threads, table);
+            parallelSearch.setTablebase(tablebase);
+        } else if (!parallel && search == null) {
+            search = new Search(new Evaluator(), table);
+            search.setTablebase(tablebase);
+        }
+        //Descarta um stop que tenha chegado depois do fim da busca anterior
+        if (parallel) {
+            parallelSearch.clearStop();
+        } else {
+            search.clearStop();
+        }
+        ChessMatch position = match;
+        synchronized (this) {
+            this.infinite = infinite;
+            stopRequested = false;
+            searchThread = new Thread(() -> search(position, limits, parallel), "uci-search");
+            searchThread.setDaemon(true);
+            searchThread.start();
+        }
+    }
+
+    /**
+     * Tempo da jogada: uma fração igual do relógio para cada um dos movimentos restantes mais a maior parte do
+     * incremento, sem passar do relógio menos a margem
+     */
+    private static long timeFor(long clock, long increment, int movesToGo) {
+        long time = clock / ((movesToGo > 0) ? movesToGo : DEFAULT_MOVES_TO_GO) + increment * 3 / 4;
+        return Math.max(1L, Math.min(time, clock - TIME_MARGIN));
+    }
+
+    /**
+     * Corpo da thread de busca: busca, envia o resultado e, no modo infinito, só responde bestmove depois do stop.
+     * Um erro na busca é informado em uma linha info string e a resposta bestmove é enviada mesmo assim, com a melhor
+     * linha completada até ali (ou 0000), para que a interface não fique esperando até o fim do tempo.
+     */
+    private void search(ChessMatch position, SearchLimits limits, boolean parallel) {
+        //Melhor resultado da linha principal até o momento, atualizado pela própria thread de busca
+        SearchResult[] best = new SearchResult[1];
+        try {
+            if (parallel) {
+                best[0] = parallelSearch.search(position, limits);
+                send(info(1, best[0]));
+            } else {
+                best[0] = search.analyze(position, limits, lines, update -> {
+                    if (update.getLine() == 1) {
+                        best[0] = update.getResult();
+                    }
+                    info(update);
+                });
+            }
+        } catch (RuntimeException e) {
+            send("info string " + e);
+        } finally {
+            synchronized (this) {
+                while (infinite && !stopRequested) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            bestMove(best[0]);
+        }
+    }
+
+    private void bestMove(SearchResult result) {
+        if (result == null || result.getBestMove() == Move.NONE) {
+            send("bestmove 0000");
+            return;
+        }
+        int[] pv = result.getPrincipalVariation();
+        send("bestmove " + Move.toString(result.getBestMove())
+                + ((pv.length > 1) ? " ponder " + Move.toString(pv[1]) : ""));
+    }
+
+    private void info(AnalysisUpdate update) {
+        send(info(update.getLine(), update.getResult()));
+    }
+
+    private static String info(int line, SearchResult result) {
+        StringBuilder sb = new StringBuilder("info");
+        sb.append(" depth ").append(result.getDepth());
+        sb.append(" multipv ").append(line);
+        sb.append(result.isMate() ? " score mate " + result.getMateIn() : " score cp " + result.getScore());
+        sb.append(" nodes ").append(result.getNodes());
+        sb.append(" nps ").append(result.getNodesPerSecond());
+        sb.append(" time ").append(result.getElapsedMillis());
+        sb.append(" pv");
+        for (int move : result.getPrincipalVariation()) {
+            sb.append(' ').append(Move.toString(move));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Interrompe a busca em andamento, se houver, e espera ela enviar bestmove. A busca para na próxima verificação
+     * de nós, então a espera é curta.
+     */
+    private void stopSearch() {
+        Thread thread;
+        synchronized (this) {
+            thread = searchThread;
+            if (thread == null) {
+                return;
+            }
+            stopRequested = true;
+            notifyAll();
+        }
+        if (search != null) {
+            search.stop();
+        }
+        if (parallelSearch != null) {
+            parallelSearch.stop();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            searchThread = null;
+        }
+    }
+
+    private void send(String line) {
+        output.println(line);
+        output.flush();
+    }
+}
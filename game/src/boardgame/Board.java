@@ -67,6 +67,15 @@ public class Board {
         return aux;//retorna informando a peça que foi retirada
     }
 
+    /**
+     * Método que permite às subclasses que usam outra estrutura de armazenamento atualizarem a posição de uma peça
+     * @param piece
+     * @param position
+     */
+    protected void setPiecePosition(Piece piece, Position position) {
+        piece.position = position;
+    }
+
     /**
      * Verifica se a posição existe no tabuleiro
      * @param position
@@ -21,14 +21,33 @@ public abstract class Piece {
      */
     public abstract boolean[][] possibleMovies();
 
+    /**
+     * Movimentos possíveis da peça como máscara de bits, um bit por casa (linha * colunas + coluna).
+     * Válido para tabuleiros de até 64 casas. A implementação padrão converte a matriz de possibleMovies(); as
+     * subclasses que geram os movimentos diretamente como máscara devem sobrescrever este método.
+     * @return
+     */
+    public long possibleMovesMask() {
+        boolean[][] mat = possibleMovies();
+        long mask = 0L;
+        for (int i = 0; i < mat.length; i++) {
+            for (int j = 0; j < mat[i].length; j++) {
+                if (mat[i][j]) {
+                    mask |= 1L << (i * mat[i].length + j);
+                }
+            }
+        }
+        return mask;
+    }
+
     /**
      * Verifica se é possível mover a peça para uma determinada posição
-     * Implementa o método abstrato possibleMovies()
+     * Testa o bit da posição na máscara de movimentos possíveis
      * @param position
      * @return
      */
     public boolean possibleMove(Position position){
-        return possibleMovies()[position.getRow()][position.getColumn()];
+        return (possibleMovesMask() & 1L << (position.getRow() * board.getColumns() + position.getColumn())) != 0;
     }
 
     /**
@@ -36,14 +55,6 @@ public abstract class Piece {
      * @return
      */
     public boolean isThereAnyPossibleMove(){
-        boolean[][] mat = possibleMovies();
-        for (int i = 0; i < mat.length; i++) {
-            for (int j = 0; j < mat.length; j++) {
-                if (mat[i][j]) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return possibleMovesMask() != 0;
     }
 }
@@ -0,0 +1,221 @@
+package chess;
+
+import boardgame.Board;
+import boardgame.BoardException;
+import boardgame.Piece;
+import boardgame.Position;
+
+import java.util.Arrays;
+
+/**
+ * Tabuleiro de xadrez representado por máscaras de 64 bits (bitboards).
+ * Cada casa é identificada pelo índice linha * 8 + coluna, ou seja, o bit 0 é a casa a8 e o bit 63 é a casa h1.
+ * Além das máscaras por cor e por tipo de peça, mantém um vetor de 64 posições para saber qual peça está em cada casa.
+ */
+public class BitBoard extends Board {
+    private Piece[] squares = new Piece[64];
+    private long[] colorMasks = new long[2];
+    private long[] pieceMasks = new long[12];
+
+    public BitBoard() {
+        super(8, 8);
+    }
+
+    /**
+     * Converte linha e coluna da matriz no índice da casa
+     * @param row
+     * @param column
+     * @return
+     */
+    public static int square(int row, int column) {
+        return row << 3 | column;
+    }
+
+    /**
+     * Índice da máscara de uma peça de determinada cor e tipo
+     * @param color
+     * @param type
+     * @return
+     */
+    public static int maskIndex(Color color, PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    /**
+     * Máscara das casas ocupadas de um tabuleiro 8x8 qualquer. Para o BitBoard é uma consulta direta; para o
+     * tabuleiro em matriz as 64 casas são percorridas.
+     * @param board
+     * @return
+     */
+    public static long occupancyOf(Board board) {
+        if (board instanceof BitBoard) {
+            return ((BitBoard) board).occupancy();
+        }
+        long mask = 0L;
+        for (int square = 0; square < 64; square++) {
+            if (board.piece(square >> 3, square & 7) != null) {
+                mask |= 1L << square;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Máscara das casas ocupadas pelas peças de uma cor em um tabuleiro 8x8 qualquer
+     * @param board
+     * @param color
+     * @return
+     */
+    public static long occupancyOf(Board board, Color color) {
+        if (board instanceof BitBoard) {
+            return ((BitBoard) board).occupancy(color);
+        }
+        long mask = 0L;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece p = (ChessPiece) board.piece(square >> 3, square & 7);
+            if (p != null && p.getColor() == color) {
+                mask |= 1L << square;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Máscara das casas ocupadas pelas peças de uma cor e tipo em um tabuleiro 8x8 qualquer
+     * @param board
+     * @param color
+     * @param type
+     * @return
+     */
+    public static long piecesOf(Board board, Color color, PieceType type) {
+        if (board instanceof BitBoard) {
+            return ((BitBoard) board).pieces(color, type);
+        }
+        long mask = 0L;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece p = (ChessPiece) board.piece(square >> 3, square & 7);
+            if (p != null && p.getColor() == color && p.getType() == type) {
+                mask |= 1L << square;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Máscaras de um tabuleiro 8x8 qualquer, indexadas por maskIndex(cor, tipo). Para o BitBoard o próprio vetor
+     * interno é retornado (e não deve ser modificado); para o tabuleiro em matriz o vetor informado é preenchido
+     * percorrendo as 64 casas.
+     * @param board
+     * @param masks vetor de 12 posições usado quando o tabuleiro não é um BitBoard
+     * @return
+     */
+    public static long[] masksOf(Board board, long[] masks) {
+        if (board instanceof BitBoard) {
+            return ((BitBoard) board).pieceMasks;
+        }
+        Arrays.fill(masks, 0L);
+        for (int square = 0; square < 64; square++) {
+            ChessPiece p = (ChessPiece) board.piece(square >> 3, square & 7);
+            if (p != null) {
+                masks[maskIndex(p.getColor(), p.getType())] |= 1L << square;
+            }
+        }
+        return masks;
+    }
+
+    /**
+     * @return máscara com todas as casas ocupadas
+     */
+    public long occupancy() {
+        return colorMasks[0] | colorMasks[1];
+    }
+
+    /**
+     * @param color
+     * @return máscara com as casas ocupadas pelas peças de uma cor
+     */
+    public long occupancy(Color color) {
+        return colorMasks[color.ordinal()];
+    }
+
+    /**
+     * @param color
+     * @param type
+     * @return máscara com as casas ocupadas pelas peças de uma cor e tipo
+     */
+    public long pieces(Color color, PieceType type) {
+        return pieceMasks[maskIndex(color, type)];
+    }
+
+    /**
+     * Retorna a peça de uma casa sem validar o índice
+     * @param square
+     * @return
+     */
+    public Piece piece(int square) {
+        return squares[square];
+    }
+
+    @Override
+    public Piece piece(int row, int column) {
+        if (!exists(row, column)) {
+            throw new BoardException("Position not on the board");
+        }
+        return squares[square(row, column)];
+    }
+
+    @Override
+    public Piece piece(Position position) {
+        return piece(position.getRow(), position.getColumn());
+    }
+
+    @Override
+    public void placePiece(Piece piece, Position position) {
+        if (thereIsAPiece(position)) {
+            throw new BoardException("There is already a piece on position " + position);
+        }
+        int square = square(position.getRow(), position.getColumn());
+        ChessPiece chessPiece = (ChessPiece) piece;
+        long bit = 1L << square;
+        squares[square] = piece;
+        colorMasks[chessPiece.getColor().ordinal()] |= bit;
+        pieceMasks[maskIndex(chessPiece.getColor(), chessPiece.getType())] |= bit;
+        setPiecePosition(piece, position);
+    }
+
+    @Override
+    public Piece removePiece(Position position) {
+        if (!positionExists(position)) {
+            throw new BoardException("Position not on the board");
+        }
+        int square = square(position.getRow(), position.getColumn());
+        Piece aux = squares[square];
+        if (aux == null) {
+            return null;
+        }
+        ChessPiece chessPiece = (ChessPiece) aux;
+        long bit = 1L << square;
+        colorMasks[chessPiece.getColor().ordinal()] &= ~bit;
+        pieceMasks[maskIndex(chessPiece.getColor(), chessPiece.getType())] &= ~bit;
+        squares[square] = null;
+        setPiecePosition(aux, null);
+        return aux;
+    }
+
+    @Override
+    public boolean positionExists(Position position) {
+        return exists(position.getRow(), position.getColumn());
+    }
+
+    @Override
+    public boolean thereIsAPiece(Position position) {
+        if (!positionExists(position)) {
+            throw new BoardException("Position not on the board");
+        }
+        return (occupancy() & 1L << square(position.getRow(), position.getColumn())) != 0;
+    }
+
+    private static boolean exists(int row, int column) {
+        return ((row | column) & ~7) == 0;
+    }
+}
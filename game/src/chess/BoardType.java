@@ -0,0 +1,11 @@
+package chess;
+
+/**
+ * Representações de tabuleiro disponíveis para uma partida de xadrez
+ * MATRIX: matriz de peças original (Board)
+ * BITBOARD: máscaras de 64 bits por cor e tipo de peça (BitBoard)
+ */
+public enum BoardType {
+    MATRIX,
+    BITBOARD;
+}
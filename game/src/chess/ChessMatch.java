@@ -3,23 +3,69 @@ package chess;
 import boardgame.Board;
 import boardgame.Piece;
 import boardgame.Position;
+import chess.movegen.MoveGenerator;
 import chess.pieces.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Essa classe é o coração do jogo de xadrez. É nessa classe que teremos as regras do jogo.
  */
 public class ChessMatch {
+    /**
+     * Posições das 64 casas, compartilhadas pelos movimentos internos para não alocar uma nova Position a cada jogada
+     */
+    private static final Position[] POSITIONS = new Position[64];
+    private static final int STACK_CAPACITY = 32;
+    private static final PieceType[] TYPES = PieceType.values();
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            POSITIONS[square] = new Position(square >> 3, square & 7);
+        }
+    }
+
     private int turn;
+    private int halfMoveClock;
     private Color currentPlayer;
     private Board board;
     private boolean check;
     private boolean checkMate;
+    private boolean stalemate;
+    private boolean draw;
     private ChessPiece enPassantVulnerable;
     private ChessPiece promoted;
+    private MoveList moveBuffer = new MoveList();
+    private long hash;
+    //Somas das tabelas de peça-casa e fase da partida (ver PieceSquare), mantidas junto com a chave de Zobrist
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
+    //Máscaras de bits das peças, indexadas por BitBoard.maskIndex e mantidas a cada peça colocada ou retirada, para
+    //que cheques, ataques e a chave do en passant não precisem varrer o tabuleiro (em especial o tabuleiro em matriz)
+    private long[] masks = new long[12];
+
+    //Histórico dos movimentos da partida. Cada movimento tem um registro para desfazê-lo, guardado em arrays
+    //paralelos: a peça capturada, o peão vulnerável ao en passant e o contador de meios-movimentos anteriores, o peão
+    //promovido e a chave de Zobrist da posição antes do movimento (os direitos de roque voltam junto com a contagem
+    //de movimentos das peças). Os movimentos entre ply e historySize foram desfeitos e podem ser refeitos.
+    //A SAN de cada movimento é guardada quando ele é feito por performChessMove; makeMove deixa a SAN vazia.
+    private int ply;
+    private int historySize;
+    private int[] moveStack = new int[STACK_CAPACITY];
+    private Piece[] capturedStack = new Piece[STACK_CAPACITY];
+    private ChessPiece[] enPassantStack = new ChessPiece[STACK_CAPACITY];
+    private ChessPiece[] pawnStack = new ChessPiece[STACK_CAPACITY];
+    private int[] halfMoveStack = new int[STACK_CAPACITY];
+    private long[] keyStack = new long[STACK_CAPACITY];
+    private String[] sanStack = new String[STACK_CAPACITY];
+    //Chaves das posições anteriores ao início do histórico, recebidas de uma cópia (ver fork), da mais antiga para a
+    //mais recente. Participam da detecção de repetições como se estivessem antes do primeiro registro de keyStack.
+    private long[] priorKeys = new long[0];
+    //Posição em que o histórico começa: a inicial padrão, a FEN lida (ver Fen.read) ou a posição copiada (ver fork)
+    private String startFen = Fen.START;
 
     private List<Piece> piecesOnTheBoard = new ArrayList<>();
     private List<Piece> capturedPieces = new ArrayList<>();
@@ -29,16 +75,141 @@ public class ChessMatch {
      * Cria o tabuleiro de xadrez e chama o setup
      */
     public ChessMatch() {
-        board = new Board(8,8);
-        turn = 1;
-        currentPlayer = Color.WHITE;
+        this(BoardType.MATRIX);
+    }
+
+    /**
+     * Cria o tabuleiro de xadrez com a representação escolhida e chama o setup
+     * @param boardType
+     */
+    public ChessMatch(BoardType boardType) {
+        this(boardType, Color.WHITE, 1);
         initialSetup();
     }
 
+    /**
+     * Cria uma partida com o tabuleiro vazio, para que as peças sejam colocadas por quem a criou (ver Fen)
+     * @param boardType
+     * @param currentPlayer
+     * @param turn
+     */
+    ChessMatch(BoardType boardType, Color currentPlayer, int turn) {
+        board = (boardType == BoardType.BITBOARD) ? new BitBoard() : new Board(8,8);
+        this.turn = turn;
+        this.currentPlayer = currentPlayer;
+    }
+
+    /**
+     * Monta uma partida a partir de uma cópia do estado (ver ChessSnapshot.toMatch). Como na leitura de FEN, os
+     * direitos de roque são representados pela contagem de movimentos do rei e das torres.
+     * @param snapshot
+     * @param boardType
+     */
+    ChessMatch(ChessSnapshot snapshot, BoardType boardType) {
+        this(boardType, snapshot.getCurrentPlayer(), snapshot.getTurn());
+        int rights = snapshot.getCastlingRights();
+        for (int index = 0; index < 12; index++) {
+            Color color = (index < 6) ? Color.BLACK : Color.WHITE;
+            PieceType type = TYPES[index % 6];
+            for (long bits = snapshot.getPieces(index); bits != 0; bits &= bits - 1) {
+                int square = Long.numberOfTrailingZeros(bits);
+                ChessPiece piece = newPiece(type, color);
+                placeNewPiece(piece, square);
+                if (type == PieceType.PAWN && (square >> 3) != (color == Color.WHITE ? 6 : 1)) {
+                    piece.increaseMoveCount();
+                } else if ((type == PieceType.KING || type == PieceType.ROOK) && !hasCastlingRight(square, rights)) {
+                    piece.increaseMoveCount();
+                }
+            }
+        }
+        int enPassant = snapshot.getEnPassantSquare();
+        if (enPassant >= 0) {
+            enPassantVulnerable = (ChessPiece) board.piece(position((enPassant >> 3) == 2 ? 3 : 4, enPassant & 7));
+        }
+        halfMoveClock = snapshot.getHalfMoveClock();
+        priorKeys = snapshot.getHistoryKeys();
+        check = snapshot.getCheck();
+        checkMate = snapshot.getCheckMate();
+        stalemate = snapshot.getStalemate();
+        startFen = Fen.write(this);
+    }
+
+    /**
+     * @param square
+     * @param rights
+     * @return true se o rei ou a torre nesta casa ainda participa de algum roque
+     */
+    private static boolean hasCastlingRight(int square, int rights) {
+        switch (square) {
+            case 60: return (rights & (MoveGenerator.WHITE_KINGSIDE | MoveGenerator.WHITE_QUEENSIDE)) != 0;
+            case 63: return (rights & MoveGenerator.WHITE_KINGSIDE) != 0;
+            case 56: return (rights & MoveGenerator.WHITE_QUEENSIDE) != 0;
+            case 4: return (rights & (MoveGenerator.BLACK_KINGSIDE | MoveGenerator.BLACK_QUEENSIDE)) != 0;
+            case 7: return (rights & MoveGenerator.BLACK_KINGSIDE) != 0;
+            case 0: return (rights & MoveGenerator.BLACK_QUEENSIDE) != 0;
+            default: return false;
+        }
+    }
+
+    /**
+     * Cópia imutável do estado atual, sem referências ao tabuleiro ou às peças. Custa a cópia das 12 máscaras de
+     * bits e das chaves das posições desde a última captura ou movimento de peão, independente da quantidade de peças.
+     * @return
+     */
+    public ChessSnapshot snapshot() {
+        int first = Math.max(-priorKeys.length, ply - halfMoveClock);
+        long[] historyKeys = new long[ply - first];
+        for (int i = first; i < ply; i++) {
+            historyKeys[i - first] = historyKey(i);
+        }
+        return new ChessSnapshot(getPieceMasks(), currentPlayer, turn, halfMoveClock, getCastlingRights(),
+                getEnPassantSquare(), getZobristKey(), historyKeys, check, checkMate, stalemate);
+    }
+
+    /**
+     * Cria uma partida independente na mesma posição e com a mesma representação de tabuleiro, que pode ser alterada
+     * (ou usada em outra thread) sem afetar esta. Os movimentos não são copiados, mas as chaves das posições desde a
+     * última captura ou movimento de peão sim, então a cópia reconhece as repetições com a partida original.
+     * @return
+     */
+    public ChessMatch fork() {
+        return snapshot().toMatch(getBoardType());
+    }
+
+    /**
+     * @return a representação do tabuleiro usada pela partida
+     */
+    public BoardType getBoardType() {
+        return (board instanceof BitBoard) ? BoardType.BITBOARD : BoardType.MATRIX;
+    }
+
     public int getTurn() {
         return turn;
     }
 
+    /**
+     * @return quantidade de meios-movimentos desde a última captura ou o último movimento de peão (regra dos 50
+     * movimentos)
+     */
+    public int getHalfMoveClock() {
+        return halfMoveClock;
+    }
+
+    void setHalfMoveClock(int halfMoveClock) {
+        this.halfMoveClock = halfMoveClock;
+    }
+
+    /**
+     * @return FEN da posição em que a partida começou, a partir da qual o histórico de movimentos é reproduzido
+     */
+    public String getStartFen() {
+        return startFen;
+    }
+
+    void setStartFen(String startFen) {
+        this.startFen = startFen;
+    }
+
     public Color getCurrentPlayer() {
         return currentPlayer;
     }
@@ -55,10 +226,180 @@ public class ChessMatch {
         return checkMate;
     }
 
+    /**
+     * @return true se o jogador atual não está em cheque e não tem nenhum movimento legal (empate por afogamento)
+     */
+    public boolean getStalemate() {
+        return stalemate;
+    }
+
     public ChessPiece getPromoted(){
         return promoted;
     }
 
+    /**
+     * @return true se a partida terminou empatada por tripla repetição ou pela regra dos 50 movimentos (o afogamento
+     * é indicado por getStalemate())
+     */
+    public boolean getDraw() {
+        return draw;
+    }
+
+    /**
+     * @return quantidade de movimentos no histórico até a posição atual
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * @return quantidade de peças no tabuleiro, incluindo os reis
+     */
+    public int getPieceCount() {
+        return piecesOnTheBoard.size();
+    }
+
+    /**
+     * Soma das tabelas de meio-jogo de PieceSquare para todas as peças do tabuleiro (material e posição), do ponto de
+     * vista das brancas. É mantida incrementalmente a cada peça colocada ou retirada do tabuleiro, inclusive por
+     * makeMove, undoMove e replacePromotedPiece, então não custa percorrer o tabuleiro.
+     * @return
+     */
+    public int getMiddlegameScore() {
+        return middlegameScore;
+    }
+
+    /**
+     * Soma das tabelas de final de PieceSquare para todas as peças do tabuleiro, mantida como getMiddlegameScore()
+     * @return
+     */
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * @return a fase da partida pelas peças no tabuleiro, de PieceSquare.MAX_PHASE (posição inicial) a 0 (só reis e
+     * peões)
+     */
+    public int getGamePhase() {
+        return phase;
+    }
+
+    /**
+     * @return os movimentos da partida até a posição atual, codificados como int (ver Move)
+     */
+    public int[] getMoveHistory() {
+        return Arrays.copyOf(moveStack, ply);
+    }
+
+    /**
+     * Os movimentos da partida até a posição atual em SAN (ver San), com os sufixos de cheque e de cheque mate.
+     * A SAN dos movimentos feitos com makeMove, que não a calcula, é calculada reproduzindo o histórico em outra
+     * partida a partir da posição inicial (ver getStartFen), sem alterar esta.
+     * @return
+     */
+    public String[] getSanHistory() {
+        String[] history = Arrays.copyOf(sanStack, ply);
+        int first = 0;
+        while (first < ply && history[first] != null) {
+            first++;
+        }
+        if (first == ply) {
+            return history;
+        }
+        ChessMatch replay = Fen.read(startFen, BoardType.BITBOARD);
+        MoveList moves = new MoveList();
+        for (int i = 0; i < ply; i++) {
+            int move = moveStack[i];
+            if (history[i] != null) {
+                replay.makeMove(move);
+                continue;
+            }
+            replay.legalMoves(moves);
+            String san = San.toString(move, replay, moves);
+            replay.makeMove(move);
+            boolean inCheck = replay.isInCheck();
+            history[i] = san + San.suffix(inCheck, inCheck && replay.legalMoves(moves) == 0);
+        }
+        return history;
+    }
+
+    /**
+     * @return o último movimento da partida em SAN, ou null se não houver movimentos
+     */
+    public String getLastMoveSan() {
+        if (ply == 0) {
+            return null;
+        }
+        String san = sanStack[ply - 1];
+        return (san != null) ? san : getSanHistory()[ply - 1];
+    }
+
+    public boolean canUndo() {
+        return ply > 0;
+    }
+
+    public boolean canRedo() {
+        return ply < historySize;
+    }
+
+    /**
+     * Verifica se a posição atual já ocorreu antes na partida, comparando as chaves de Zobrist guardadas no histórico.
+     * Só são comparadas as posições com o mesmo jogador da vez desde a última captura ou movimento de peão, já que
+     * esses movimentos não podem ser desfeitos.
+     * @return true se a posição se repetiu pelo menos uma vez
+     */
+    public boolean isRepetition() {
+        return repetitions(1) >= 1;
+    }
+
+    /**
+     * @return true se a posição atual ocorreu pelo menos três vezes na partida
+     */
+    public boolean isThreefoldRepetition() {
+        return repetitions(2) >= 2;
+    }
+
+    /**
+     * @return true se já se passaram 50 movimentos de cada jogador sem captura nem movimento de peão
+     */
+    public boolean isFiftyMoveRule() {
+        return halfMoveClock >= 100;
+    }
+
+    private int repetitions(int enough) {
+        long key = getZobristKey();
+        int count = 0;
+        int limit = Math.max(-priorKeys.length, ply - halfMoveClock);
+        for (int i = ply - 2; i >= limit && count < enough; i -= 2) {
+            if (historyKey(i) == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param index posição no histórico; os índices negativos são as posições anteriores recebidas da cópia
+     * @return a chave da posição antes do movimento daquele índice
+     */
+    private long historyKey(int index) {
+        return (index >= 0) ? keyStack[index] : priorKeys[priorKeys.length + index];
+    }
+
+    /**
+     * Chave de Zobrist de 64 bits da posição atual (colocação das peças, vez, direitos de roque e en passant).
+     * A parte da colocação das peças é mantida incrementalmente a cada peça colocada ou retirada do tabuleiro; o
+     * restante depende só do estado da partida e é combinado aqui em tempo constante, com as máscaras de peões que
+     * também são mantidas a cada peça colocada ou retirada (nenhuma varredura do tabuleiro).
+     * @return
+     */
+    public long getZobristKey() {
+        int side = currentPlayer.ordinal();
+        return hash ^ Zobrist.state(masks[BitBoard.maskIndex(currentPlayer, PieceType.PAWN)], side,
+                getEnPassantSquare(), getCastlingRights());
+    }
+
     /**
      * @return matriz de peças da partida de xadrez
      */
@@ -83,50 +424,233 @@ public class ChessMatch {
         return board.piece(position).possibleMovies();
     }
 
+    /**
+     * Preenche a lista informada com todos os movimentos legais do jogador atual, codificados como int (ver Move).
+     * A lista é reutilizável: ela é limpa antes da geração e nenhum objeto é alocado no processo.
+     * No cheque mate o jogador da vez é o perdedor, que não tem movimentos.
+     * @param moves
+     * @return a quantidade de movimentos legais
+     */
+    public int legalMoves(MoveList moves) {
+        return legalMoves(sideToMove(), moves);
+    }
+
+    /**
+     * Gera os movimentos legais de uma cor com o gerador de máscaras, que já considera peças cravadas, cheques,
+     * casas atacadas no roque e o en passant, sem fazer e desfazer movimentos no tabuleiro
+     * @param color
+     * @param moves
+     * @return
+     */
+    private int legalMoves(Color color, MoveList moves) {
+        return MoveGenerator.generate(masks, color.ordinal(), getEnPassantSquare(),
+                getCastlingRights(), moves);
+    }
+
+    /**
+     * Máscaras de bits das peças da partida, indexadas por BitBoard.maskIndex. São mantidas pela própria partida a
+     * cada peça colocada ou retirada, nos dois tipos de tabuleiro, então nenhuma varredura é feita aqui. O array é o
+     * da partida: não deve ser alterado e acompanha os movimentos seguintes.
+     * @return
+     */
+    public long[] getPieceMasks() {
+        return masks;
+    }
+
+    /**
+     * Verifica se o rei do jogador da vez está em cheque na posição atual. Diferente de getCheck(), que só é
+     * atualizado por performChessMove e pela leitura de FEN, também vale para as posições alcançadas com makeMove(int).
+     * No cheque mate o jogador da vez é o perdedor.
+     * @return
+     */
+    public boolean isInCheck() {
+        return testCheck(sideToMove());
+    }
+
+    /**
+     * No cheque mate a vez não passa para o oponente (ver updateStatus), mas é ele quem estaria para jogar
+     * @return a cor que joga na posição atual
+     */
+    private Color sideToMove() {
+        return checkMate ? opponent(currentPlayer) : currentPlayer;
+    }
+
+    /**
+     * @return a casa de destino de uma captura en passant, ou -1 se não houver peão vulnerável
+     */
+    public int getEnPassantSquare() {
+        if (enPassantVulnerable == null) {
+            return -1;
+        }
+        int square = enPassantVulnerable.getSquare();
+        return (enPassantVulnerable.getColor() == Color.WHITE) ? square + 8 : square - 8;
+    }
+
+    /**
+     * Os direitos de roque são derivados da contagem de movimentos do rei e das torres nas casas iniciais
+     * @return combinação das constantes de roque do MoveGenerator
+     */
+    public int getCastlingRights() {
+        int rights = 0;
+        if (canCastle(7, 4, 7)) rights |= MoveGenerator.WHITE_KINGSIDE;
+        if (canCastle(7, 4, 0)) rights |= MoveGenerator.WHITE_QUEENSIDE;
+        if (canCastle(0, 4, 7)) rights |= MoveGenerator.BLACK_KINGSIDE;
+        if (canCastle(0, 4, 0)) rights |= MoveGenerator.BLACK_QUEENSIDE;
+        return rights;
+    }
+
+    private boolean canCastle(int row, int kingColumn, int rookColumn) {
+        ChessPiece king = (ChessPiece) board.piece(row, kingColumn);
+        ChessPiece rook = (ChessPiece) board.piece(row, rookColumn);
+        return king instanceof King && king.getMoveCount() == 0 && rook instanceof Rook && rook.getMoveCount() == 0
+                && rook.getColor() == king.getColor();
+    }
+
+    /**
+     * Procura o movimento legal com a origem e o destino informados. Nas promoções é escolhida a dama, que pode ser
+     * trocada depois com replacePromotedPiece.
+     * @param source
+     * @param target
+     * @return o movimento codificado, ou -1 se não houver movimento legal
+     */
+    private int findLegalMove(Position source, Position target) {
+        int from = BitBoard.square(source.getRow(), source.getColumn());
+        int to = BitBoard.square(target.getRow(), target.getColumn());
+        int count = legalMoves(currentPlayer, moveBuffer);
+        for (int i = 0; i < count; i++) {
+            int move = moveBuffer.get(i);
+            if (Move.from(move) == from && Move.to(move) == to) {
+                PieceType promotion = Move.promotion(move);
+                if (promotion == null || promotion == PieceType.QUEEN) {
+                    return move;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Executa um movimento codificado (ver Move), como os gerados por legalMoves. Se o movimento for uma promoção, a
+     * peça escolhida no movimento substitui o peão.
+     * @param move
+     * @return a peça capturada
+     */
+    public ChessPiece performChessMove(int move) {
+        validateGameNotOver();
+        if (legalMoves(currentPlayer, moveBuffer) > 0 && moveBuffer.contains(move)) {
+            return playMove(move);
+        }
+        throw new ChessException("Invalid move: " + Move.toString(move));
+    }
+
     public ChessPiece performChessMove(ChessPosition sourcePosition, ChessPosition targetPosition){
+        validateGameNotOver();
         Position source = sourcePosition.toPosition();//Converte em posição da matriz
         Position target = targetPosition.toPosition();//Converte em posição da matriz
 
         //Validação para verificar se na posição havia realmente uma peça
         validateSourcePosition(source);
         validateTargetPosition(source, target);
-        Piece capturedPiece = makeMove(source, target);
 
-        //Validação para verificar se o movimento do jogador o colocou em cheque
+        //O movimento é possível para a peça; se não estiver entre os legais, é por causa da segurança do rei
+        int move = findLegalMove(source, target);
+        if (move == -1) {
+            throw new ChessException(illegalMoveReason(source, target));
+        }
+        return playMove(move);
+    }
+
+    /**
+     * Motivo pelo qual um movimento possível para a peça não é legal: o roque passaria por uma casa atacada, o rei já
+     * está em cheque e o movimento não o tira dele, ou o movimento deixaria o rei em cheque
+     * @param source
+     * @param target
+     * @return
+     */
+    private String illegalMoveReason(Position source, Position target) {
+        ChessPiece piece = (ChessPiece) board.piece(source);
+        if (piece.getType() == PieceType.KING && Math.abs(target.getColumn() - source.getColumn()) == 2) {
+            return "Illegal move: you can't castle out of, through or into check";
+        }
         if (testCheck(currentPlayer)) {
-            undoMove(source, target, capturedPiece);
-            throw new ChessException("You can't put yourself in check");
+            return "Illegal move: you must get out of check";
         }
+        return "Illegal move: you can't put yourself in check";
+    }
 
-        ChessPiece movedPiece = (ChessPiece)board.piece(target);
+    /**
+     * Faz um movimento legal da partida, registrando-o no histórico, e atualiza a situação da partida
+     * @param move
+     * @return a peça capturada
+     */
+    private ChessPiece playMove(int move) {
+        //Quem chama acabou de gerar os movimentos legais da posição em moveBuffer, usados na desambiguação da SAN
+        String san = San.toString(move, this, moveBuffer);
+        Piece capturedPiece = pushMove(move);
+        historySize = ply;
+        updateStatus(move);
+        sanStack[ply - 1] = san + San.suffix(check, checkMate);
+        return (ChessPiece) capturedPiece;
+    }
 
+    /**
+     * Atualiza a peça promovida, o cheque, o cheque mate e os empates depois de um movimento da partida.
+     * No cheque mate a vez não passa para o oponente: o jogador atual continua sendo o vencedor.
+     * @param move
+     */
+    private void updateStatus(int move) {
         //#specialmove promotion
-        promoted = null;
-        if (movedPiece instanceof Pawn) {
-            if ((movedPiece.getColor() == Color.WHITE && target.getRow() == 0) || (movedPiece.getColor() == Color.BLACK && target.getRow() == 7)) {
-                promoted = (ChessPiece) board.piece(target);
-                promoted = replacePromotedPiece("Q");
-            }
-        }
+        promoted = (Move.promotion(move) != null) ? (ChessPiece) board.piece(POSITIONS[Move.to(move)]) : null;
+        updateStatus();
+    }
 
+    /**
+     * Atualiza o cheque, o cheque mate e os empates da posição atual, com o jogador atual sendo quem está para jogar.
+     * Também é usado ao montar a partida a partir de uma FEN, para que uma partida retomada informe a sua situação.
+     */
+    void updateStatus() {
         //Validação que verifica se o oponente ficou em cheque
-        check = (testCheck(opponent(currentPlayer))) ? true : false;//se true, a partida está em cheque
+        check = testCheck(currentPlayer);
 
-        //Se o rei do oponente ficou em cheque mate, então passa a variável checkMate para true
-        if (testCheckMate(opponent(currentPlayer))) {
-            checkMate = true;
-        } else {
-            nextTurn();
+        //Se o oponente não tiver nenhum movimento legal, a partida termina em cheque mate (se estiver em cheque) ou
+        //em afogamento
+        boolean noLegalMoves = legalMoves(currentPlayer, moveBuffer) == 0;
+        checkMate = noLegalMoves && check;
+        stalemate = noLegalMoves && !check;
+        draw = !noLegalMoves && (isThreefoldRepetition() || isFiftyMoveRule());
+        if (checkMate) {
+            previousTurn();
         }
+    }
 
-        //#specialmove en passant
-        if (movedPiece instanceof Pawn && (target.getRow() == source.getRow() - 2 || target.getRow() == source.getRow() + 2)) {
-            enPassantVulnerable = movedPiece;
-        } else {
-            enPassantVulnerable = null;
+    /**
+     * Desfaz o último movimento da partida, voltando também a situação de cheque
+     */
+    public void undoChessMove() {
+        if (ply == 0) {
+            throw new ChessException("There is no move to undo");
+        }
+        if (checkMate) {
+            nextTurn();
         }
+        undoMove();
+        promoted = null;
+        checkMate = false;
+        check = testCheck(currentPlayer);
+        stalemate = false;
+        draw = false;
+    }
 
-        return (ChessPiece) capturedPiece;
+    /**
+     * Refaz o último movimento desfeito com undoChessMove
+     */
+    public void redoChessMove() {
+        if (ply == historySize) {
+            throw new ChessException("There is no move to redo");
+        }
+        int move = moveStack[ply];
+        pushMove(move);
+        updateStatus(move);
     }
 
     public ChessPiece replacePromotedPiece(String type) {
@@ -137,13 +661,27 @@ public class ChessMatch {
             return promoted;
         }
         Position pos = promoted.getChessPosition().toPosition();
-        Piece p = board.removePiece(pos);
+        Piece p = removePiece(pos);
         piecesOnTheBoard.remove(p);
 
         ChessPiece newPiece =  newPiece(type, promoted.getColor());
-        board.placePiece(newPiece, pos);
+        placePiece(newPiece, pos);
         piecesOnTheBoard.add(newPiece);
 
+        //O movimento no histórico passa a ter a peça escolhida, para ser refeito corretamente, e a situação da partida
+        //é avaliada de novo com ela (uma dama pode dar cheque mate onde um cavalo não dá)
+        int last = moveStack[ply - 1];
+        moveStack[ply - 1] = last & ~(7 << 12) | newPiece.getType().ordinal() << 12;
+        if (checkMate) {
+            nextTurn();
+            checkMate = false;
+        }
+        updateStatus(moveStack[ply - 1]);
+        String san = sanStack[ply - 1];
+        if (san != null) {
+            sanStack[ply - 1] = san.substring(0, san.indexOf('=') + 1) + newPiece.getType().getLetter()
+                    + San.suffix(check, checkMate);
+        }
         return newPiece;
     }
 
@@ -154,6 +692,130 @@ public class ChessMatch {
         return new Queen(board, color);
     }
 
+    /**
+     * Cria uma peça de qualquer tipo ligada ao tabuleiro (e, para o rei e o peão, à partida)
+     * @param type
+     * @param color
+     * @return
+     */
+    ChessPiece newPiece(PieceType type, Color color) {
+        switch (type) {
+            case PAWN: return new Pawn(board, color, this);
+            case KNIGHT: return new Knight(board, color);
+            case BISHOP: return new Bishop(board, color);
+            case ROOK: return new Rook(board, color);
+            case KING: return new King(board, color, this);
+            default: return new Queen(board, color);
+        }
+    }
+
+    void setEnPassantVulnerable(ChessPiece enPassantVulnerable) {
+        this.enPassantVulnerable = enPassantVulnerable;
+    }
+
+    /**
+     * Faz um movimento codificado (ver Move) sem as validações e a atualização de cheque/cheque mate de
+     * performChessMove. É usado por quem percorre a árvore de movimentos (perft, busca) e deve receber apenas
+     * movimentos gerados por legalMoves na posição atual. Pode ser desfeito com undoMove(); os movimentos desfeitos
+     * antes dele deixam de poder ser refeitos.
+     * @param move
+     */
+    public void makeMove(int move) {
+        pushMove(move);
+        historySize = ply;
+        sanStack[ply - 1] = null;
+    }
+
+    /**
+     * Refaz o último movimento desfeito com undoMove(), sem a atualização de cheque/cheque mate
+     */
+    public void redoMove() {
+        if (ply == historySize) {
+            throw new IllegalStateException("There is no move to redo");
+        }
+        pushMove(moveStack[ply]);
+    }
+
+    /**
+     * Faz o movimento e empilha o seu registro no histórico
+     * @param move
+     * @return a peça capturada
+     */
+    private Piece pushMove(int move) {
+        if (ply == moveStack.length) {
+            growStack();
+        }
+        Position source = POSITIONS[Move.from(move)];
+        Position target = POSITIONS[Move.to(move)];
+        keyStack[ply] = getZobristKey();
+        moveStack[ply] = move;
+        enPassantStack[ply] = enPassantVulnerable;
+        halfMoveStack[ply] = halfMoveClock;
+        Piece capturedPiece = makeMove(source, target);
+        capturedStack[ply] = capturedPiece;
+
+        ChessPiece movedPiece = (ChessPiece) board.piece(target);
+
+        //#specialmove promotion
+        PieceType promotion = Move.promotion(move);
+        if (promotion != null) {
+            removePiece(target);
+            piecesOnTheBoard.remove(movedPiece);
+            ChessPiece newPiece = newPiece(promotion, movedPiece.getColor());
+            placePiece(newPiece, target);
+            piecesOnTheBoard.add(newPiece);
+            pawnStack[ply] = movedPiece;
+        }
+
+        //#specialmove en passant
+        enPassantVulnerable = Move.isDoublePush(move) ? movedPiece : null;
+
+        ply++;
+        nextTurn();
+        return capturedPiece;
+    }
+
+    /**
+     * Desfaz o último movimento do histórico, sem a atualização de cheque/cheque mate (ver undoChessMove)
+     */
+    public void undoMove() {
+        if (ply == 0) {
+            throw new IllegalStateException("There is no move to undo");
+        }
+        ply--;
+        previousTurn();
+        int move = moveStack[ply];
+        Position source = POSITIONS[Move.from(move)];
+        Position target = POSITIONS[Move.to(move)];
+        enPassantVulnerable = enPassantStack[ply];
+        halfMoveClock = halfMoveStack[ply];
+
+        //#specialmove promotion
+        ChessPiece pawn = pawnStack[ply];
+        if (pawn != null) {
+            Piece promotedPiece = removePiece(target);
+            piecesOnTheBoard.remove(promotedPiece);
+            placePiece(pawn, target);
+            piecesOnTheBoard.add(pawn);
+            pawnStack[ply] = null;
+        }
+
+        undoMove(source, target, capturedStack[ply], Move.isEnPassant(move));
+        capturedStack[ply] = null;
+        enPassantStack[ply] = null;
+    }
+
+    private void growStack() {
+        int capacity = moveStack.length * 2;
+        moveStack = Arrays.copyOf(moveStack, capacity);
+        capturedStack = Arrays.copyOf(capturedStack, capacity);
+        enPassantStack = Arrays.copyOf(enPassantStack, capacity);
+        pawnStack = Arrays.copyOf(pawnStack, capacity);
+        halfMoveStack = Arrays.copyOf(halfMoveStack, capacity);
+        keyStack = Arrays.copyOf(keyStack, capacity);
+        sanStack = Arrays.copyOf(sanStack, capacity);
+    }
+
     /**
      * Valida a posição no destino da peça
      * Se para a peça de origem a posição de destino não é um movimento possível, não posso mover minha peça para lá
@@ -173,10 +835,10 @@ public class ChessMatch {
      * @return retorna a peça capturada
      */
     private Piece makeMove(Position source, Position target) {
-        ChessPiece p = (ChessPiece) board.removePiece(source);//Remove a peça da posição de origem
+        ChessPiece p = (ChessPiece) removePiece(source);//Remove a peça da posição de origem
         p.increaseMoveCount();
-        Piece capturedPiece = board.removePiece(target);//Remove a possível peça que esteja na posição de destino
-        board.placePiece(p, target);
+        Piece capturedPiece = removePiece(target);//Remove a possível peça que esteja na posição de destino
+        placePiece(p, target);
 
         if (capturedPiece != null) {
             piecesOnTheBoard.remove(capturedPiece);
@@ -185,19 +847,19 @@ public class ChessMatch {
 
         //#specialmove castling kingside rook
         if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() + 3);
-            Position targetT = new Position(source.getRow(), source.getColumn() + 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(sourceT);
-            board.placePiece(rook, targetT);
+            Position sourceT = position(source.getRow(), source.getColumn() + 3);
+            Position targetT = position(source.getRow(), source.getColumn() + 1);
+            ChessPiece rook = (ChessPiece) removePiece(sourceT);
+            placePiece(rook, targetT);
             rook.increaseMoveCount();
         }
 
         //#specialmove castling queeside rook
         if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() - 4);
-            Position targetT = new Position(source.getRow(), source.getColumn() - 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(sourceT);
-            board.placePiece(rook, targetT);
+            Position sourceT = position(source.getRow(), source.getColumn() - 4);
+            Position targetT = position(source.getRow(), source.getColumn() - 1);
+            ChessPiece rook = (ChessPiece) removePiece(sourceT);
+            placePiece(rook, targetT);
             rook.increaseMoveCount();
         }
 
@@ -206,15 +868,18 @@ public class ChessMatch {
             if (source.getColumn() != target.getColumn() && capturedPiece == null) {
                 Position pawPosition;
                 if (p.getColor() == Color.WHITE) {
-                    pawPosition = new Position(target.getRow() + 1, target.getColumn());
+                    pawPosition = position(target.getRow() + 1, target.getColumn());
                 } else {
-                    pawPosition = new Position(target.getRow() - 1, target.getColumn());
+                    pawPosition = position(target.getRow() - 1, target.getColumn());
                 }
-                capturedPiece = board.removePiece(pawPosition);
+                capturedPiece = removePiece(pawPosition);
                 capturedPieces.add(capturedPiece);
                 piecesOnTheBoard.remove(capturedPiece);
             }
         }
+
+        //Regra dos 50 movimentos: o contador volta a zero a cada captura ou movimento de peão
+        halfMoveClock = (p instanceof Pawn || capturedPiece != null) ? 0 : halfMoveClock + 1;
         return capturedPiece;
     }
 
@@ -223,51 +888,100 @@ public class ChessMatch {
      * @param source
      * @param target
      * @param capturedPiece
+     * @param enPassant
      */
-    private void undoMove(Position source, Position target, Piece capturedPiece) {
-        ChessPiece p = (ChessPiece) board.removePiece(target);//Remove a peça da posição do destino
+    private void undoMove(Position source, Position target, Piece capturedPiece, boolean enPassant) {
+        ChessPiece p = (ChessPiece) removePiece(target);//Remove a peça da posição do destino
         p.decreaseMoveCount();
-        board.placePiece(p, source);//Devolve a peça removida na linha anterior para a posição de origem
+        placePiece(p, source);//Devolve a peça removida na linha anterior para a posição de origem
 
         if (capturedPiece != null) {
-            board.placePiece(capturedPiece, target);
+            placePiece(capturedPiece, target);
             capturedPieces.remove(capturedPiece);
             piecesOnTheBoard.add(capturedPiece);
         }
 
         //#specialmove castling kingside rook
         if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() + 3);
-            Position targetT = new Position(source.getRow(), source.getColumn() + 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(targetT);
-            board.placePiece(rook, sourceT);
+            Position sourceT = position(source.getRow(), source.getColumn() + 3);
+            Position targetT = position(source.getRow(), source.getColumn() + 1);
+            ChessPiece rook = (ChessPiece) removePiece(targetT);
+            placePiece(rook, sourceT);
             rook.decreaseMoveCount();
         }
 
         //#specialmove castling queeside rook
         if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() - 4);
-            Position targetT = new Position(source.getRow(), source.getColumn() - 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(targetT);
-            board.placePiece(rook, sourceT);
+            Position sourceT = position(source.getRow(), source.getColumn() - 4);
+            Position targetT = position(source.getRow(), source.getColumn() - 1);
+            ChessPiece rook = (ChessPiece) removePiece(targetT);
+            placePiece(rook, sourceT);
             rook.decreaseMoveCount();
         }
 
         //#specialmove en passant
         if (p instanceof Pawn) {
-            if (source.getColumn() != target.getColumn() && capturedPiece == enPassantVulnerable) {
-                ChessPiece pawn = (ChessPiece)board.removePiece(target);
+            if (enPassant) {
+                ChessPiece pawn = (ChessPiece)removePiece(target);
                 Position pawPosition;
                 if (p.getColor() == Color.WHITE) {
-                    pawPosition = new Position(3, target.getColumn());
+                    pawPosition = position(3, target.getColumn());
                 } else {
-                    pawPosition = new Position(4, target.getColumn());
+                    pawPosition = position(4, target.getColumn());
                 }
-                board.placePiece(pawn, pawPosition);
+                placePiece(pawn, pawPosition);
             }
         }
     }
 
+    /**
+     * Coloca uma peça no tabuleiro atualizando a chave de Zobrist e as somas de peça-casa da posição
+     * @param piece
+     * @param position
+     */
+    private void placePiece(Piece piece, Position position) {
+        board.placePiece(piece, position);
+        ChessPiece p = (ChessPiece) piece;
+        int index = BitBoard.maskIndex(p.getColor(), p.getType());
+        int square = BitBoard.square(position.getRow(), position.getColumn());
+        hash ^= Zobrist.piece(index, square);
+        masks[index] ^= 1L << square;
+        middlegameScore += PieceSquare.middlegame(index, square);
+        endgameScore += PieceSquare.endgame(index, square);
+        phase += PieceSquare.phase(index);
+    }
+
+    /**
+     * Remove uma peça do tabuleiro atualizando a chave de Zobrist e as somas de peça-casa da posição
+     * @param position
+     * @return a peça retirada
+     */
+    private Piece removePiece(Position position) {
+        Piece piece = board.removePiece(position);
+        if (piece != null) {
+            ChessPiece p = (ChessPiece) piece;
+            int index = BitBoard.maskIndex(p.getColor(), p.getType());
+            int square = BitBoard.square(position.getRow(), position.getColumn());
+            hash ^= Zobrist.piece(index, square);
+            masks[index] ^= 1L << square;
+            middlegameScore -= PieceSquare.middlegame(index, square);
+            endgameScore -= PieceSquare.endgame(index, square);
+            phase -= PieceSquare.phase(index);
+        }
+        return piece;
+    }
+
+    /**
+     * Valida que a partida não terminou em cheque mate ou afogamento. Depois do cheque mate a vez fica com o vencedor,
+     * que ainda teria movimentos. Os empates por repetição e pela regra dos 50 movimentos não encerram a partida
+     * sozinhos (precisam ser reclamados), então as partidas gravadas podem continuar depois deles.
+     */
+    private void validateGameNotOver() {
+        if (checkMate || stalemate) {
+            throw new ChessException("The game is over");
+        }
+    }
+
     /**
      * Valida a posição de origem da peça
      * @param position
@@ -290,11 +1004,26 @@ public class ChessMatch {
      * @param row
      * @param piece
      */
-    private void placeNewPiece(char column, int row, ChessPiece piece) {
-        board.placePiece(piece, new ChessPosition(column, row).toPosition());
+    void placeNewPiece(char column, int row, ChessPiece piece) {
+        placePiece(piece, new ChessPosition(column, row).toPosition());
+        piecesOnTheBoard.add(piece);
+    }
+
+    private void placeNewPiece(ChessPiece piece, int square) {
+        placePiece(piece, POSITIONS[square]);
         piecesOnTheBoard.add(piece);
     }
 
+    /**
+     * Retorna a posição compartilhada de uma casa do tabuleiro
+     * @param row
+     * @param column
+     * @return
+     */
+    private static Position position(int row, int column) {
+        return POSITIONS[row << 3 | column];
+    }
+
     /**
      * Método que troca o turno
      */
@@ -303,6 +1032,14 @@ public class ChessMatch {
         currentPlayer = (currentPlayer == Color.WHITE) ? Color.BLACK : Color.WHITE;
     }
 
+    /**
+     * Método que volta o turno (usado ao desfazer um movimento)
+     */
+    private void previousTurn(){
+        turn --;
+        currentPlayer = (currentPlayer == Color.WHITE) ? Color.BLACK : Color.WHITE;
+    }
+
     /**
      * Método que recebe uma cor e retorna o oponente dessa cor
      * @param color
@@ -312,68 +1049,36 @@ public class ChessMatch {
         return (color == Color.WHITE) ? Color.BLACK : Color.WHITE;
     }
 
-    private ChessPiece king(Color color) {
-        List<Piece> list = piecesOnTheBoard.stream().filter(x -> ((ChessPiece)x).getColor() == color).collect(Collectors.toList());
-        for (Piece p : list) {
-            if (p instanceof King) {
-                return (ChessPiece)p;
-            }
-        }
-        throw new IllegalArgumentException("There is no " + color + "king on the board");
+    /**
+     * Método que verifica se uma casa está sendo atacada por alguma peça de uma determinada cor
+     * @param position
+     * @param color cor das peças atacantes
+     * @return
+     */
+    public boolean isSquareAttacked(ChessPosition position, Color color) {
+        Position p = position.toPosition();
+        return isSquareAttacked(BitBoard.square(p.getRow(), p.getColumn()), color);
     }
 
     /**
-     * Método que verifica se um rei de uma determinada cor está em cheque
-     * @param color
+     * Verifica os ataques a partir da própria casa: uma peça do tipo X ataca a casa se estiver em uma das casas que
+     * uma peça X colocada na casa atacaria. Assim não é preciso gerar os movimentos de todas as peças do oponente.
+     * @param square
+     * @param color cor das peças atacantes
      * @return
      */
-    private boolean testCheck(Color color) {
-        Position kingPosition = king(color).getChessPosition().toPosition();
-        List<Piece> opponentPieces = piecesOnTheBoard.stream().filter(x -> ((ChessPiece)x).getColor() == opponent(color)).collect(Collectors.toList());
-        for (Piece p : opponentPieces) {
-            boolean[][] mat = p.possibleMovies();
-            if (mat[kingPosition.getRow()][kingPosition.getColumn()]) {
-                return true;
-            }
-        }
-        return false;
+    private boolean isSquareAttacked(int square, Color color) {
+        long occupied = MoveGenerator.occupancy(masks, 0) | MoveGenerator.occupancy(masks, 1);
+        return MoveGenerator.attackers(masks, square, color.ordinal(), occupied) != 0;
     }
 
     /**
-     * Método que verifica se um rei de uma determinada cor está em cheque mate
+     * Método que verifica se um rei de uma determinada cor está em cheque
      * @param color
      * @return
      */
-    private boolean testCheckMate(Color color) {
-        //Primeiro verificamos se o rei está em cheque. Se não estiver em cheque, então ele também não estará em cheque
-        // mate.
-        if (!testCheck(color)) {
-            return false;
-        }
-        //Se uma peça de determinada cor não tiver nenhum movimento possível para tirar um rei da posição de cheque,
-        // então o rei está em cheque mate.
-        List<Piece> list = piecesOnTheBoard.stream().filter(x -> ((ChessPiece)x).getColor() == color).collect(Collectors.toList());
-        //Se houver alguma peça na lista "list" que possui algum movimento que retire o rei da posição de cheque, então
-        //retorna falso (não está em cheque mate).
-        for (Piece p : list) {
-            boolean[][] mat = p.possibleMovies();
-            for (int i = 0; i < board.getRows(); i++) {
-                for (int j = 0; j < board.getColumns(); j++) {
-                    if (mat[i][j]) {
-                        Position source = ((ChessPiece)p).getChessPosition().toPosition();
-                        Position target = new Position(i, j);
-                        Piece capturedPiece = makeMove(source, target);
-                        boolean testCheck = testCheck(color);
-                        undoMove(source, target, capturedPiece);
-
-                        if (!testCheck) {
-                            return false;
-                        }
-                    }
-                }
-            }
-        }
-        return true;
+    private boolean testCheck(Color color) {
+        return MoveGenerator.checkers(getPieceMasks(), color.ordinal()) != 0;
     }
 
     /**
@@ -17,6 +17,11 @@ public abstract class ChessPiece extends Piece {
         return color;
     }
 
+    /**
+     * @return o tipo da peça, usado pelas representações de tabuleiro baseadas em máscaras de bits
+     */
+    public abstract PieceType getType();
+
     public int getMoveCount(){
         return moveCount;
     }
@@ -38,4 +43,48 @@ public abstract class ChessPiece extends Piece {
         return p != null && p.getColor() != color;
     }
 
+    /**
+     * Cada peça de xadrez gera seus movimentos diretamente como máscara de bits (ver chess.movegen.Attacks)
+     * @return
+     */
+    @Override
+    public abstract long possibleMovesMask();
+
+    /**
+     * Converte a máscara de movimentos possíveis na matriz usada pela interface
+     * @return
+     */
+    @Override
+    public boolean[][] possibleMovies() {
+        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
+        long mask = possibleMovesMask();
+        while (mask != 0) {
+            int square = Long.numberOfTrailingZeros(mask);
+            mat[square >> 3][square & 7] = true;
+            mask &= mask - 1;
+        }
+        return mat;
+    }
+
+    /**
+     * @return índice da casa em que a peça está (linha * 8 + coluna)
+     */
+    public int getSquare() {
+        return BitBoard.square(position.getRow(), position.getColumn());
+    }
+
+    /**
+     * @return máscara com todas as casas ocupadas do tabuleiro
+     */
+    protected long occupiedSquares() {
+        return BitBoard.occupancyOf(getBoard());
+    }
+
+    /**
+     * @return máscara com as casas ocupadas pelas peças da mesma cor
+     */
+    protected long ownSquares() {
+        return BitBoard.occupancyOf(getBoard(), color);
+    }
+
 }
@@ -0,0 +1,135 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Cópia imutável e compacta do estado de uma partida: as máscaras de bits das peças, a vez, os contadores de turno,
+ * os direitos de roque, a casa de en passant e a situação de cheque. Não guarda nenhuma referência ao tabuleiro ou às
+ * peças, então pode ser mantida indefinidamente (por exemplo no histórico de uma interface) e compartilhada entre
+ * threads. Uma partida independente é montada de volta com toMatch.
+ * Também guarda as chaves de Zobrist das posições anteriores desde a última captura ou movimento de peão (no máximo
+ * halfMoveClock chaves), para que a partida montada ainda reconheça as repetições com posições de antes da cópia.
+ */
+public final class ChessSnapshot {
+    private final long[] pieces;
+    private final Color currentPlayer;
+    private final int turn;
+    private final int halfMoveClock;
+    private final int castlingRights;
+    private final int enPassantSquare;
+    private final long zobristKey;
+    private final long[] historyKeys;
+    private final boolean check;
+    private final boolean checkMate;
+    private final boolean stalemate;
+
+    ChessSnapshot(long[] pieces, Color currentPlayer, int turn, int halfMoveClock, int castlingRights,
+                  int enPassantSquare, long zobristKey, long[] historyKeys, boolean check, boolean checkMate,
+                  boolean stalemate) {
+        this.pieces = pieces.clone();
+        this.currentPlayer = currentPlayer;
+        this.turn = turn;
+        this.halfMoveClock = halfMoveClock;
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.zobristKey = zobristKey;
+        this.historyKeys = historyKeys;
+        this.check = check;
+        this.checkMate = checkMate;
+        this.stalemate = stalemate;
+    }
+
+    /**
+     * Monta uma nova partida, independente de qualquer outra, na posição guardada
+     * @param boardType
+     * @return
+     */
+    public ChessMatch toMatch(BoardType boardType) {
+        return new ChessMatch(this, boardType);
+    }
+
+    /**
+     * @param index índice da máscara (ver BitBoard.maskIndex)
+     * @return as casas ocupadas pelas peças daquela cor e tipo
+     */
+    public long getPieces(int index) {
+        return pieces[index];
+    }
+
+    public long getPieces(Color color, PieceType type) {
+        return pieces[BitBoard.maskIndex(color, type)];
+    }
+
+    public Color getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    public int getHalfMoveClock() {
+        return halfMoveClock;
+    }
+
+    /**
+     * @return combinação das constantes de roque do MoveGenerator
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * @return a casa de destino de uma captura en passant, ou -1
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * @return chaves das posições anteriores que ainda podem se repetir, da mais antiga para a mais recente (não deve
+     * ser alterado)
+     */
+    long[] getHistoryKeys() {
+        return historyKeys;
+    }
+
+    public boolean getCheck() {
+        return check;
+    }
+
+    public boolean getCheckMate() {
+        return checkMate;
+    }
+
+    public boolean getStalemate() {
+        return stalemate;
+    }
+
+    /**
+     * Duas cópias são iguais quando representam a mesma posição (peças, vez, roque e en passant), independente dos
+     * contadores de turno e do histórico
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ChessSnapshot)) {
+            return false;
+        }
+        ChessSnapshot other = (ChessSnapshot) o;
+        return zobristKey == other.zobristKey && currentPlayer == other.currentPlayer
+                && castlingRights == other.castlingRights && enPassantSquare == other.enPassantSquare
+                && Arrays.equals(pieces, other.pieces);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(zobristKey);
+    }
+}
@@ -0,0 +1,247 @@
+package chess;
+
+import chess.movegen.MoveGenerator;
+import chess.pieces.King;
+import chess.pieces.Pawn;
+import chess.pieces.Rook;
+
+/**
+ * Leitura e escrita de posições no formato FEN (Forsyth-Edwards Notation), por exemplo:
+ * rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1
+ * A partida é montada diretamente com as peças na posição, sem repetir os movimentos que levaram até ela.
+ */
+public final class Fen {
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    //Letra de cada peça, indexada por BitBoard.maskIndex (pretas em minúsculas)
+    private static final char[] LETTERS = {'p', 'n', 'b', 'r', 'q', 'k', 'P', 'N', 'B', 'R', 'Q', 'K'};
+
+    private Fen() {
+    }
+
+    /**
+     * Monta uma partida com o tabuleiro em matriz a partir de uma FEN
+     * @param fen
+     * @return
+     */
+    public static ChessMatch read(String fen) {
+        return read(fen, BoardType.MATRIX);
+    }
+
+    /**
+     * Monta uma partida a partir de uma FEN.
+     * Os direitos de roque são representados pela contagem de movimentos: o rei e as torres que ainda podem rocar
+     * ficam com contagem zero, os demais com contagem um.
+     * São recusadas as posições impossíveis de alcançar que quebrariam a geração de movimentos: peões na primeira ou
+     * na última fileira e o rei de quem não está para jogar em cheque. O cheque, o cheque mate e os empates da
+     * posição são calculados como depois de um movimento da partida.
+     * @param fen
+     * @param boardType
+     * @return
+     */
+    public static ChessMatch read(String fen, BoardType boardType) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2) {
+            throw new ChessException("Invalid FEN: " + fen);
+        }
+        Color currentPlayer = parseColor(fields[1], fen);
+        int halfMoves = (fields.length > 4) ? parseNumber(fields[4], fen) : 0;
+        int fullMoves = (fields.length > 5) ? parseNumber(fields[5], fen) : 1;
+        int turn = 2 * (Math.max(fullMoves, 1) - 1) + (currentPlayer == Color.WHITE ? 1 : 2);
+
+        ChessMatch match = new ChessMatch(boardType, currentPlayer, turn);
+        match.setHalfMoveClock(Math.max(halfMoves, 0));
+        ChessPiece[][] placed = new ChessPiece[8][8];
+        int[] kings = new int[2];
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != 8) {
+            throw new ChessException("Invalid FEN: " + fen);
+        }
+        for (int row = 0; row < 8; row++) {
+            int column = 0;
+            for (char c : ranks[row].toCharArray()) {
+                if (c >= '1' && c <= '8') {
+                    column += c - '0';
+                    continue;
+                }
+                PieceType type = PieceType.fromLetter(c);
+                if (type == null || column > 7) {
+                    throw new ChessException("Invalid FEN: " + fen);
+                }
+                if (type == PieceType.PAWN && (row == 0 || row == 7)) {
+                    throw new ChessException("Invalid FEN: pawns can't be on the first or the last rank");
+                }
+                Color color = Character.isUpperCase(c) ? Color.WHITE : Color.BLACK;
+                ChessPiece piece = match.newPiece(type, color);
+                match.placeNewPiece((char) ('a' + column), 8 - row, piece);
+                placed[row][column] = piece;
+                if (type == PieceType.KING) {
+                    kings[color.ordinal()]++;
+                }
+                column++;
+            }
+            if (column != 8) {
+                throw new ChessException("Invalid FEN: " + fen);
+            }
+        }
+        if (kings[0] != 1 || kings[1] != 1) {
+            throw new ChessException("Invalid FEN: each side must have exactly one king");
+        }
+
+        String castling = (fields.length > 2) ? fields[2] : "-";
+        setCastlingRights(placed, castling);
+        setPawnMoveCounts(placed);
+
+        String enPassant = (fields.length > 3) ? fields[3] : "-";
+        if (!enPassant.equals("-")) {
+            if (enPassant.length() != 2 || enPassant.charAt(0) < 'a' || enPassant.charAt(0) > 'h') {
+                throw new ChessException("Invalid FEN: " + fen);
+            }
+            int column = enPassant.charAt(0) - 'a';
+            //O peão vulnerável está na casa à frente da casa de en passant, do ponto de vista de quem o capturaria
+            int row = (currentPlayer == Color.WHITE) ? 3 : 4;
+            ChessPiece pawn = placed[row][column];
+            if (pawn instanceof Pawn && pawn.getColor() != currentPlayer) {
+                match.setEnPassantVulnerable(pawn);
+            }
+        }
+
+        //O rei de quem acabou de jogar não pode estar em cheque: o jogador da vez poderia capturá-lo
+        if (MoveGenerator.checkers(match.getPieceMasks(), 1 - currentPlayer.ordinal()) != 0) {
+            throw new ChessException("Invalid FEN: the side not to move is in check");
+        }
+        match.updateStatus();
+        match.setStartFen(write(match));
+        return match;
+    }
+
+    /**
+     * Escreve a posição atual da partida em FEN. As peças são lidas das máscaras de bits da partida, casa a casa,
+     * sem montar a matriz de peças de getPieces().
+     * @param match
+     * @return
+     */
+    public static String write(ChessMatch match) {
+        long[] masks = match.getPieceMasks();
+        StringBuilder sb = new StringBuilder(90);
+        for (int row = 0; row < 8; row++) {
+            if (row > 0) {
+                sb.append('/');
+            }
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                long bit = 1L << (row << 3 | column);
+                int index = 0;
+                while (index < 12 && (masks[index] & bit) == 0) {
+                    index++;
+                }
+                if (index == 12) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                sb.append(LETTERS[index]);
+            }
+            if (empty > 0) {
+                sb.append((char) ('0' + empty));
+            }
+        }
+
+        //No cheque mate a vez não passa para o oponente, mas na FEN é ele quem está para jogar
+        Color currentPlayer = match.getCurrentPlayer();
+        int turn = match.getTurn();
+        if (match.getCheckMate()) {
+            currentPlayer = (currentPlayer == Color.WHITE) ? Color.BLACK : Color.WHITE;
+            turn++;
+        }
+        sb.append(' ').append(currentPlayer == Color.WHITE ? 'w' : 'b').append(' ');
+
+        int rights = match.getCastlingRights();
+        if (rights == 0) {
+            sb.append('-');
+        } else {
+            if ((rights & MoveGenerator.WHITE_KINGSIDE) != 0) sb.append('K');
+            if ((rights & MoveGenerator.WHITE_QUEENSIDE) != 0) sb.append('Q');
+            if ((rights & MoveGenerator.BLACK_KINGSIDE) != 0) sb.append('k');
+            if ((rights & MoveGenerator.BLACK_QUEENSIDE) != 0) sb.append('q');
+        }
+
+        int enPassant = match.getEnPassantSquare();
+        sb.append(' ');
+        if (enPassant < 0) {
+            sb.append('-');
+        } else {
+            sb.append(Move.squareName(enPassant));
+        }
+
+        sb.append(' ').append(match.getHalfMoveClock()).append(' ').append((turn + 1) / 2);
+        return sb.toString();
+    }
+
+    private static void setCastlingRights(ChessPiece[][] placed, String castling) {
+        for (ChessPiece[] row : placed) {
+            for (ChessPiece piece : row) {
+                if (piece instanceof King || piece instanceof Rook) {
+                    piece.increaseMoveCount();
+                }
+            }
+        }
+        for (char c : castling.toCharArray()) {
+            int row = Character.isUpperCase(c) ? 7 : 0;
+            Color color = Character.isUpperCase(c) ? Color.WHITE : Color.BLACK;
+            int rookColumn;
+            if (Character.toUpperCase(c) == 'K') {
+                rookColumn = 7;
+            } else if (Character.toUpperCase(c) == 'Q') {
+                rookColumn = 0;
+            } else {
+                continue;
+            }
+            ChessPiece king = placed[row][4];
+            ChessPiece rook = placed[row][rookColumn];
+            if (king instanceof King && king.getColor() == color && rook instanceof Rook && rook.getColor() == color) {
+                if (king.getMoveCount() > 0) {
+                    king.decreaseMoveCount();
+                }
+                if (rook.getMoveCount() > 0) {
+                    rook.decreaseMoveCount();
+                }
+            }
+        }
+    }
+
+    /**
+     * Peões fora da fileira inicial já se moveram pelo menos uma vez
+     * @param placed
+     */
+    private static void setPawnMoveCounts(ChessPiece[][] placed) {
+        for (int row = 0; row < 8; row++) {
+            for (ChessPiece piece : placed[row]) {
+                if (piece instanceof Pawn && row != (piece.getColor() == Color.WHITE ? 6 : 1)) {
+                    piece.increaseMoveCount();
+                }
+            }
+        }
+    }
+
+    private static Color parseColor(String field, String fen) {
+        if (field.equals("w")) {
+            return Color.WHITE;
+        }
+        if (field.equals("b")) {
+            return Color.BLACK;
+        }
+        throw new ChessException("Invalid FEN: " + fen);
+    }
+
+    private static int parseNumber(String field, String fen) {
+        try {
+            return Integer.parseInt(field);
+        } catch (NumberFormatException e) {
+            throw new ChessException("Invalid FEN: " + fen);
+        }
+    }
+}
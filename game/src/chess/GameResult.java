@@ -0,0 +1,61 @@
+package chess;
+
+/**
+ * Resultado de uma partida, com o símbolo usado no PGN
+ */
+public enum GameResult {
+    UNKNOWN("*"),
+    WHITE_WINS("1-0"),
+    BLACK_WINS("0-1"),
+    DRAW("1/2-1/2");
+
+    private static final GameResult[] VALUES = values();
+
+    private final String token;
+
+    GameResult(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @param token símbolo do PGN
+     * @return o resultado, ou null se o símbolo não for um resultado
+     */
+    public static GameResult fromToken(String token) {
+        for (GameResult result : VALUES) {
+            if (result.token.equals(token)) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param ordinal
+     * @return o resultado com aquele ordinal, ou UNKNOWN se estiver fora do intervalo
+     */
+    public static GameResult fromOrdinal(int ordinal) {
+        return (ordinal >= 0 && ordinal < VALUES.length) ? VALUES[ordinal] : UNKNOWN;
+    }
+
+    /**
+     * Resultado pela situação atual da partida: no cheque mate vence o jogador atual (a vez não passa para o
+     * perdedor), o afogamento e os empates por repetição ou pela regra dos 50 movimentos são empate, e uma partida
+     * em andamento não tem resultado
+     * @param match
+     * @return
+     */
+    public static GameResult of(ChessMatch match) {
+        if (match.getCheckMate()) {
+            return match.getCurrentPlayer() == Color.WHITE ? WHITE_WINS : BLACK_WINS;
+        }
+        if (match.getStalemate() || match.getDraw()) {
+            return DRAW;
+        }
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,149 @@
+package chess;
+
+/**
+ * Codificação compacta de um movimento em um int, para que as listas de movimentos não precisem alocar objetos.
+ * bits 0-5: casa de origem (linha * 8 + coluna, como no BitBoard)
+ * bits 6-11: casa de destino
+ * bits 12-14: tipo da peça de promoção (ordinal de PieceType), 0 quando não há promoção
+ * bits 15-18: flags (captura, avanço duplo de peão, en passant, roque)
+ * Os 15 bits mais baixos identificam o movimento em uma posição; é a forma compacta usada nos arquivos de partidas.
+ */
+public final class Move {
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int DOUBLE_PUSH = 1 << 16;
+    public static final int EN_PASSANT = 1 << 17;
+    public static final int CASTLING = 1 << 18;
+
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private Move() {
+    }
+
+    /**
+     * Monta um movimento codificado
+     * @param from
+     * @param to
+     * @param promotion tipo da peça de promoção ou null
+     * @param flags
+     * @return
+     */
+    public static int of(int from, int to, PieceType promotion, int flags) {
+        return from | to << 6 | (promotion == null ? 0 : promotion.ordinal() << 12) | flags;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * @param move
+     * @return o tipo da peça de promoção ou null quando o movimento não é uma promoção
+     */
+    public static PieceType promotion(int move) {
+        int type = (move >>> 12) & 7;
+        return type == 0 ? null : TYPES[type];
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastling(int move) {
+        return (move & CASTLING) != 0;
+    }
+
+    /**
+     * Converte o índice de uma casa para a coordenada do xadrez
+     * @param square
+     * @return
+     */
+    public static String squareName(int square) {
+        return "" + (char) ('a' + (square & 7)) + (8 - (square >> 3));
+    }
+
+    /**
+     * Procura em uma lista o movimento escrito em notação de coordenadas (como em toString)
+     * @param text
+     * @param moves
+     * @return o movimento encontrado, ou NONE se o texto não corresponder a nenhum movimento da lista
+     */
+    public static int parse(String text, MoveList moves) {
+        if (text.length() < 4 || text.length() > 5) {
+            return NONE;
+        }
+        int from = parseSquare(text.charAt(0), text.charAt(1));
+        int to = parseSquare(text.charAt(2), text.charAt(3));
+        PieceType promotion = (text.length() == 5) ? PieceType.fromLetter(text.charAt(4)) : null;
+        if (from < 0 || to < 0 || (text.length() == 5 && promotion == null)) {
+            return NONE;
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (from(move) == from && to(move) == to && promotion(move) == promotion) {
+                return move;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Forma compacta de 16 bits do movimento: só a origem, o destino e a promoção (bits 0-14). As flags não são
+     * guardadas porque são reconstruídas pelo gerador de movimentos (ver fromCompact).
+     * @param move
+     * @return
+     */
+    public static short toCompact(int move) {
+        return (short) (move & 0x7FFF);
+    }
+
+    /**
+     * Procura em uma lista o movimento com a forma compacta dada
+     * @param compact valor gerado por toCompact
+     * @param moves movimentos legais da posição
+     * @return o movimento completo, que pode ser passado para performChessMove, ou NONE se não estiver na lista
+     */
+    public static int fromCompact(int compact, MoveList moves) {
+        int code = compact & 0x7FFF;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if ((move & 0x7FFF) == code) {
+                return move;
+            }
+        }
+        return NONE;
+    }
+
+    private static int parseSquare(char column, char row) {
+        if (column < 'a' || column > 'h' || row < '1' || row > '8') {
+            return -1;
+        }
+        return ('8' - row) << 3 | (column - 'a');
+    }
+
+    /**
+     * @param move
+     * @return o movimento em notação de coordenadas, por exemplo "e2e4" ou "e7e8q"
+     */
+    public static String toString(int move) {
+        String s = squareName(from(move)) + squareName(to(move));
+        PieceType promotion = promotion(move);
+        if (promotion != null) {
+            s += Character.toLowerCase(promotion.getLetter());
+        }
+        return s;
+    }
+}
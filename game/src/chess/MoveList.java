@@ -0,0 +1,49 @@
+package chess;
+
+/**
+ * Lista reutilizável de movimentos codificados (ver Move). O vetor é alocado uma única vez e a lista é limpa a cada
+ * geração, de forma que gerar movimentos não aloca nada.
+ */
+public class MoveList {
+    public static final int CAPACITY = 256;
+
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(CAPACITY);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,38 @@
+package chess;
+
+public enum PieceType {
+    PAWN('P'),
+    KNIGHT('N'),
+    BISHOP('B'),
+    ROOK('R'),
+    QUEEN('Q'),
+    KING('K');
+
+    private final char letter;
+
+    PieceType(char letter) {
+        this.letter = letter;
+    }
+
+    /**
+     * @return a letra da peça em inglês, a mesma usada no toString das peças
+     */
+    public char getLetter() {
+        return letter;
+    }
+
+    /**
+     * Método que retorna o tipo de peça correspondente a uma letra (maiúscula ou minúscula)
+     * @param letter
+     * @return o tipo ou null se a letra não corresponder a nenhuma peça
+     */
+    public static PieceType fromLetter(char letter) {
+        char upper = Character.toUpperCase(letter);
+        for (PieceType type : values()) {
+            if (type.letter == upper) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
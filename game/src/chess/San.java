@@ -0,0 +1,235 @@
+package chess;
+
+/**
+ * Notação algébrica padrão (SAN), a usada no PGN: "e4", "Nbd7", "exd6", "R1a3", "O-O", "e8=Q+".
+ * Um movimento em SAN só pode ser interpretado junto com a posição, porque a origem é deduzida dos movimentos legais.
+ */
+public final class San {
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private San() {
+    }
+
+    /**
+     * Interpreta um movimento em SAN na posição atual da partida
+     * @param san
+     * @param match
+     * @return o movimento codificado (ver Move), que pode ser passado para performChessMove
+     * @throws ChessException se o texto não for SAN válido ou não corresponder a exatamente um movimento legal
+     */
+    public static int parse(String san, ChessMatch match) {
+        return parse(san, 0, san.length(), match, new MoveList());
+    }
+
+    /**
+     * Interpreta o trecho [start, end) do texto como um movimento em SAN na posição atual da partida, sem alocar
+     * nada além de uma eventual exceção. Os sufixos de cheque e de anotação (+, #, !, ?) são ignorados, o roque pode
+     * ser escrito com letras O ou com zeros e a peça da promoção pode vir com ou sem "=".
+     * @param text
+     * @param start
+     * @param end
+     * @param match
+     * @param moves lista que recebe os movimentos legais da posição
+     * @return o movimento codificado (ver Move)
+     * @throws ChessException se o trecho não for SAN válido ou não corresponder a exatamente um movimento legal
+     */
+    public static int parse(CharSequence text, int start, int end, ChessMatch match, MoveList moves) {
+        int last = end;
+        while (last > start && isSuffix(text.charAt(last - 1))) {
+            last--;
+        }
+        if (last - start < 2) {
+            throw invalid(text, start, end);
+        }
+        int count = match.legalMoves(moves);
+
+        char first = text.charAt(start);
+        if (first == 'O' || first == '0') {
+            return castling(text, start, last, end, moves, count);
+        }
+
+        PieceType promotion = null;
+        char letter = text.charAt(last - 1);
+        if (letter == 'Q' || letter == 'R' || letter == 'B' || letter == 'N') {
+            promotion = PieceType.fromLetter(letter);
+            last--;
+            if (text.charAt(last - 1) == '=') {
+                last--;
+            }
+        } else if (text.charAt(last - 2) == '=') {
+            promotion = PieceType.fromLetter(letter);
+            last -= 2;
+        }
+
+        PieceType piece = PieceType.PAWN;
+        int index = start;
+        if (first == 'K' || first == 'Q' || first == 'R' || first == 'B' || first == 'N') {
+            piece = PieceType.fromLetter(first);
+            index++;
+        }
+        if (last - index < 2 || (promotion != null && (piece != PieceType.PAWN || promotion == PieceType.KING))) {
+            throw invalid(text, start, end);
+        }
+        int to = square(text.charAt(last - 2), text.charAt(last - 1));
+        if (to < 0) {
+            throw invalid(text, start, end);
+        }
+
+        //Desambiguação: coluna e/ou linha de origem, ignorando o x da captura
+        int fromColumn = -1;
+        int fromRow = -1;
+        for (int i = index; i < last - 2; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromColumn = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRow = '8' - c;
+            } else if (c != 'x' && c != ':' && c != '-') {
+                throw invalid(text, start, end);
+            }
+        }
+
+        long pieces = match.getPieceMasks()[BitBoard.maskIndex(match.getCurrentPlayer(), piece)];
+        int found = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = moves.get(i);
+            int from = Move.from(move);
+            if (Move.to(move) != to || (pieces >>> from & 1L) == 0L
+                    || (fromColumn >= 0 && (from & 7) != fromColumn) || (fromRow >= 0 && (from >> 3) != fromRow)) {
+                continue;
+            }
+            //Uma promoção sem a peça indicada é interpretada como promoção a dama
+            PieceType movePromotion = Move.promotion(move);
+            if (movePromotion != promotion && (promotion != null || movePromotion != PieceType.QUEEN)) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                throw new ChessException("Ambiguous move: " + text.subSequence(start, end));
+            }
+            found = move;
+        }
+        if (found == Move.NONE) {
+            throw new ChessException("Illegal move: " + text.subSequence(start, end));
+        }
+        return found;
+    }
+
+    /**
+     * Escreve um movimento em SAN, sem o sufixo de cheque (ver suffix). A desambiguação usa só o necessário: a
+     * coluna de origem, se ela bastar, senão a linha, senão as duas.
+     * @param move movimento legal na posição atual da partida
+     * @param match partida na posição antes do movimento
+     * @param moves movimentos legais da posição atual
+     * @return
+     */
+    public static String toString(int move, ChessMatch match, MoveList moves) {
+        if (Move.isCastling(move)) {
+            return ((Move.to(move) & 7) == 6) ? "O-O" : "O-O-O";
+        }
+        long[] masks = match.getPieceMasks();
+        int color = match.getCurrentPlayer().ordinal();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        PieceType piece = PieceType.PAWN;
+        for (PieceType type : TYPES) {
+            if ((masks[color * 6 + type.ordinal()] >>> from & 1L) != 0L) {
+                piece = type;
+                break;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(8);
+        if (piece == PieceType.PAWN) {
+            if (Move.isCapture(move)) {
+                sb.append((char) ('a' + (from & 7)));
+            }
+        } else {
+            sb.append(piece.getLetter());
+            //Outras peças do mesmo tipo que também podem ir para a casa de destino
+            long pieces = masks[color * 6 + piece.ordinal()];
+            boolean ambiguous = false;
+            boolean sameColumn = false;
+            boolean sameRow = false;
+            for (int i = 0; i < moves.size(); i++) {
+                int other = moves.get(i);
+                int otherFrom = Move.from(other);
+                if (Move.to(other) == to && otherFrom != from && (pieces >>> otherFrom & 1L) != 0L) {
+                    ambiguous = true;
+                    sameColumn |= (otherFrom & 7) == (from & 7);
+                    sameRow |= (otherFrom >> 3) == (from >> 3);
+                }
+            }
+            if (ambiguous) {
+                if (!sameColumn) {
+                    sb.append((char) ('a' + (from & 7)));
+                } else if (!sameRow) {
+                    sb.append((char) ('8' - (from >> 3)));
+                } else {
+                    sb.append(Move.squareName(from));
+                }
+            }
+        }
+        if (Move.isCapture(move)) {
+            sb.append('x');
+        }
+        sb.append(Move.squareName(to));
+        PieceType promotion = Move.promotion(move);
+        if (promotion != null) {
+            sb.append('=').append(promotion.getLetter());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param check
+     * @param checkMate
+     * @return o sufixo de um movimento em SAN: "#" para cheque mate, "+" para cheque ou vazio
+     */
+    public static String suffix(boolean check, boolean checkMate) {
+        return checkMate ? "#" : (check ? "+" : "");
+    }
+
+    private static int castling(CharSequence text, int start, int last, int end, MoveList moves, int count) {
+        int length = last - start;
+        if ((length != 3 && length != 5) || !isCastlingText(text, start, last)) {
+            throw invalid(text, start, end);
+        }
+        int column = (length == 3) ? 6 : 2;
+        for (int i = 0; i < count; i++) {
+            int move = moves.get(i);
+            if (Move.isCastling(move) && (Move.to(move) & 7) == column) {
+                return move;
+            }
+        }
+        throw new ChessException("Illegal move: " + text.subSequence(start, end));
+    }
+
+    /**
+     * Verifica se o trecho alterna O (ou 0) e hífen, como em O-O e O-O-O
+     */
+    private static boolean isCastlingText(CharSequence text, int start, int last) {
+        for (int i = start; i < last; i++) {
+            char c = text.charAt(i);
+            boolean expected = ((i - start) % 2 == 0) ? (c == 'O' || c == '0') : c == '-';
+            if (!expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSuffix(char c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
+
+    private static int square(char column, char row) {
+        if (column < 'a' || column > 'h' || row < '1' || row > '8') {
+            return -1;
+        }
+        return ('8' - row) << 3 | (column - 'a');
+    }
+
+    private static ChessException invalid(CharSequence text, int start, int end) {
+        return new ChessException("Invalid SAN move: " + text.subSequence(start, end));
+    }
+}
@@ -0,0 +1,147 @@
+package chess;
+
+import chess.movegen.Attacks;
+import chess.movegen.MoveGenerator;
+
+/**
+ * Chaves aleatórias de 64 bits para o hash de Zobrist das posições.
+ * A chave de uma posição é o XOR das chaves de cada peça em sua casa, da vez das pretas, dos direitos de roque e da
+ * coluna de en passant. Como o XOR é reversível, a chave pode ser atualizada a cada peça colocada ou retirada.
+ * A semente é fixa para que a mesma posição tenha sempre a mesma chave, inclusive entre execuções diferentes.
+ */
+public final class Zobrist {
+    private static final long[] PIECES = new long[12 * 64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT = new long[8];
+    private static final long SIDE;
+
+    static {
+        long random = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < PIECES.length; i++) {
+            random = next(random);
+            PIECES[i] = random;
+        }
+        long[] rights = new long[4];
+        for (int i = 0; i < rights.length; i++) {
+            random = next(random);
+            rights[i] = random;
+        }
+        //A chave de uma combinação de direitos de roque é o XOR das chaves de cada direito
+        for (int i = 0; i < CASTLING.length; i++) {
+            for (int bit = 0; bit < rights.length; bit++) {
+                if ((i & 1 << bit) != 0) {
+                    CASTLING[i] ^= rights[bit];
+                }
+            }
+        }
+        for (int i = 0; i < EN_PASSANT.length; i++) {
+            random = next(random);
+            EN_PASSANT[i] = random;
+        }
+        SIDE = next(random);
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param color
+     * @param type
+     * @param square índice da casa (linha * 8 + coluna)
+     * @return a chave de uma peça em uma casa
+     */
+    public static long piece(Color color, PieceType type, int square) {
+        return PIECES[BitBoard.maskIndex(color, type) << 6 | square];
+    }
+
+    /**
+     * @param maskIndex índice da máscara da peça (cor * 6 + tipo, como no BitBoard)
+     * @param square
+     * @return
+     */
+    public static long piece(int maskIndex, int square) {
+        return PIECES[maskIndex << 6 | square];
+    }
+
+    /**
+     * @return a chave usada quando as pretas estão na vez
+     */
+    public static long side() {
+        return SIDE;
+    }
+
+    /**
+     * @param rights combinação das constantes de roque do MoveGenerator
+     * @return
+     */
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * @param column coluna da casa de en passant
+     * @return
+     */
+    public static long enPassant(int column) {
+        return EN_PASSANT[column];
+    }
+
+    /**
+     * Calcula a chave completa de uma posição a partir das máscaras. A coluna de en passant só entra na chave quando
+     * algum peão da cor que joga pode de fato fazer a captura, para que posições iguais tenham a mesma chave.
+     * @param pieces máscaras indexadas por cor * 6 + tipo
+     * @param side cor que joga (Color.ordinal())
+     * @param enPassantSquare casa de destino do en passant ou -1
+     * @param castlingRights
+     * @return
+     */
+    public static long compute(long[] pieces, int side, int enPassantSquare, int castlingRights) {
+        long key = 0L;
+        for (int i = 0; i < 12; i++) {
+            long mask = pieces[i];
+            while (mask != 0) {
+                key ^= piece(i, Long.numberOfTrailingZeros(mask));
+                mask &= mask - 1;
+            }
+        }
+        return key ^ state(pieces, side, enPassantSquare, castlingRights);
+    }
+
+    /**
+     * Parte da chave que não depende da colocação das peças: vez, direitos de roque e en passant
+     * @param pieces
+     * @param side
+     * @param enPassantSquare
+     * @param castlingRights
+     * @return
+     */
+    public static long state(long[] pieces, int side, int enPassantSquare, int castlingRights) {
+        return state(pieces[side * 6 + PieceType.PAWN.ordinal()], side, enPassantSquare, castlingRights);
+    }
+
+    /**
+     * Parte da chave que não depende da colocação das peças, quando só os peões da cor que joga são conhecidos
+     * @param pawns peões da cor que joga, usados para saber se a captura en passant é possível
+     * @param side
+     * @param enPassantSquare
+     * @param castlingRights
+     * @return
+     */
+    public static long state(long pawns, int side, int enPassantSquare, int castlingRights) {
+        long key = CASTLING[castlingRights];
+        if (side == MoveGenerator.BLACK) {
+            key ^= SIDE;
+        }
+        if (enPassantSquare >= 0 && (Attacks.pawn(1 - side, enPassantSquare) & pawns) != 0) {
+            key ^= EN_PASSANT[enPassantSquare & 7];
+        }
+        return key;
+    }
+
+    private static long next(long x) {
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        return x;
+    }
+}
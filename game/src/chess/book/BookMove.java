@@ -0,0 +1,32 @@
+package chess.book;
+
+import chess.Move;
+
+/**
+ * Movimento do livro de aberturas para uma posição, com o seu peso (quanto maior, mais vezes ele é escolhido)
+ */
+public final class BookMove {
+    private final int move;
+    private final int weight;
+
+    public BookMove(int move, int weight) {
+        this.move = move;
+        this.weight = weight;
+    }
+
+    /**
+     * @return o movimento codificado (ver Move)
+     */
+    public int getMove() {
+        return move;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return Move.toString(move) + " " + weight;
+    }
+}
@@ -0,0 +1,180 @@
+package chess.book;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Livro de aberturas no formato .bin do Polyglot, lido de um arquivo mapeado em memória, sem carregar o livro no heap.
+ * O arquivo é uma sequência de entradas de ENTRY_SIZE bytes em big-endian, ordenadas pela chave sem sinal:
+ * a chave da posição (ver PolyglotKey, 8 bytes), o movimento (2 bytes), o peso (2 bytes) e um campo de aprendizado
+ * (4 bytes, ignorado). As entradas de uma posição são encontradas com uma busca binária.
+ * O movimento do Polyglot tem a coluna e a linha de destino (bits 0-2 e 3-5, com a linha 0 sendo a primeira
+ * fileira), a coluna e a linha de origem (bits 6-8 e 9-11) e a promoção (bits 12-14: cavalo 1, bispo 2, torre 3,
+ * dama 4, os mesmos ordinais de PieceType). O roque é escrito como o rei indo para a casa da torre (e1h1).
+ * Só são feitas leituras absolutas no buffer, então o livro pode ser consultado por várias threads ao mesmo tempo.
+ */
+public class OpeningBook implements Closeable {
+    static final int ENTRY_SIZE = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int entries;
+    private final PolyglotKey keys;
+
+    /**
+     * Abre um livro com a tabela de chaves padrão do Polyglot, como os livros .bin de outros programas
+     * @param path
+     * @throws IOException
+     */
+    public OpeningBook(Path path) throws IOException {
+        this(path, PolyglotKey.defaultKeys());
+    }
+
+    /**
+     * @param path
+     * @param keys tabela de chaves com que o livro foi montado
+     * @throws IOException se o arquivo não tiver um número inteiro de entradas ou passar de 2 GB
+     */
+    public OpeningBook(Path path, PolyglotKey keys) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size % ENTRY_SIZE != 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a Polyglot book: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+            entries = (int) (size / ENTRY_SIZE);
+            this.keys = keys;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return quantidade de entradas do livro
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * @param match
+     * @return os movimentos do livro para a posição atual que são legais nela, na ordem do arquivo
+     */
+    public List<BookMove> getMoves(ChessMatch match) {
+        List<BookMove> moves = new ArrayList<>();
+        long key = keys.key(match);
+        MoveList legal = new MoveList();
+        match.legalMoves(legal);
+        for (int i = lowerBound(key); i < entries && keyAt(i) == key; i++) {
+            int move = decodeMove(moveAt(i), legal);
+            if (move != Move.NONE) {
+                moves.add(new BookMove(move, weightAt(i)));
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Sorteia um movimento do livro para a posição atual, com probabilidade proporcional ao peso
+     * @param match
+     * @param random
+     * @return o movimento codificado (ver Move), ou Move.NONE se a posição não estiver no livro
+     */
+    public int pick(ChessMatch match, Random random) {
+        List<BookMove> moves = getMoves(match);
+        int total = 0;
+        for (BookMove move : moves) {
+            total += move.getWeight();
+        }
+        if (total == 0) {
+            return Move.NONE;
+        }
+        int r = random.nextInt(total);
+        for (BookMove move : moves) {
+            r -= move.getWeight();
+            if (r < 0) {
+                return move.getMove();
+            }
+        }
+        return Move.NONE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Converte um movimento para o formato do Polyglot
+     * @param move movimento codificado (ver Move)
+     * @return
+     */
+    public static int encodeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (Move.isCastling(move)) {
+            //O rei vai para a casa da torre
+            to = (to & 7) == 6 ? to + 1 : to - 2;
+        }
+        int promotion = (move >>> 12) & 7;
+        return (to & 7) | (7 - (to >> 3)) << 3 | (from & 7) << 6 | (7 - (from >> 3)) << 9 | promotion << 12;
+    }
+
+    /**
+     * Procura entre os movimentos legais o que corresponde a um movimento do Polyglot
+     * @param polyglotMove
+     * @param legal movimentos legais da posição
+     * @return o movimento codificado (ver Move), ou Move.NONE se ele não for legal
+     */
+    public static int decodeMove(int polyglotMove, MoveList legal) {
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            if (encodeMove(move) == polyglotMove) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * @return o índice da primeira entrada com chave maior ou igual à chave dada (comparando sem sinal)
+     */
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(int index) {
+        return buffer.getLong(index * ENTRY_SIZE);
+    }
+
+    private int moveAt(int index) {
+        return buffer.getShort(index * ENTRY_SIZE + 8) & 0xFFFF;
+    }
+
+    private int weightAt(int index) {
+        return buffer.getShort(index * ENTRY_SIZE + 10) & 0xFFFF;
+    }
+}
@@ -0,0 +1,255 @@
+package chess.book;
+
+import chess.BoardType;
+import chess.ChessMatch;
+import chess.Color;
+import chess.Fen;
+import chess.GameResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Monta livros de aberturas no formato do OpeningBook a partir de partidas. Para cada posição dos primeiros
+ * movimentos de cada partida é contado o movimento jogado, com a pontuação do jogador que o fez: 2 pela vitória, 1 pelo
+ * empate ou resultado desconhecido e 0 pela derrota. O peso de cada movimento no livro é a soma das pontuações,
+ * reduzida proporcionalmente se passar do limite de 16 bits.
+ * As contagens ficam em uma tabela hash de endereçamento aberto com arrays de primitivos (chave, movimento,
+ * pontuação e quantidade de partidas), sem um objeto por entrada.
+ */
+public class OpeningBookBuilder {
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private final PolyglotKey keys;
+    private final int maxPlies;
+    //Tabela hash; o movimento 0 do Polyglot (a1a1) nunca é legal, então marca as posições vazias
+    private long[] entryKeys = new long[1 << 16];
+    private int[] entryMoves = new int[1 << 16];
+    private long[] entryScores = new long[1 << 16];
+    private int[] entryGames = new int[1 << 16];
+    private int size;
+    private long games;
+
+    /**
+     * Usa a tabela de chaves padrão do Polyglot
+     * @param maxPlies quantidade de meios-movimentos de cada partida que entram no livro
+     */
+    public OpeningBookBuilder(int maxPlies) {
+        this(PolyglotKey.defaultKeys(), maxPlies);
+    }
+
+    /**
+     * @param keys
+     * @param maxPlies quantidade de meios-movimentos de cada partida que entram no livro
+     */
+    public OpeningBookBuilder(PolyglotKey keys, int maxPlies) {
+        this.keys = keys;
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Conta os primeiros movimentos de uma partida
+     * @param startFen posição inicial, ou null para a posição inicial padrão
+     * @param moves movimentos codificados (ver Move), na ordem em que foram jogados
+     * @param result
+     */
+    public void addGame(String startFen, int[] moves, GameResult result) {
+        ChessMatch match = (startFen == null) ? new ChessMatch(BoardType.BITBOARD)
+                : Fen.read(startFen, BoardType.BITBOARD);
+        int plies = Math.min(moves.length, maxPlies);
+        for (int ply = 0; ply < plies; ply++) {
+            Color player = match.getCurrentPlayer();
+            int score;
+            if (result == GameResult.WHITE_WINS) {
+                score = (player == Color.WHITE) ? 2 : 0;
+            } else if (result == GameResult.BLACK_WINS) {
+                score = (player == Color.BLACK) ? 2 : 0;
+            } else {
+                score = 1;
+            }
+            add(keys.key(match), OpeningBook.encodeMove(moves[ply]), score);
+            match.makeMove(moves[ply]);
+        }
+        games++;
+    }
+
+    /**
+     * @return quantidade de partidas contadas
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * @return quantidade de pares de posição e movimento diferentes contados
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Grava o livro e esvazia o construtor, que pode ser usado para montar outro livro
+     * @param path
+     * @param minGames quantidade mínima de partidas em que o movimento foi jogado na posição para entrar no livro
+     * @return quantidade de entradas gravadas
+     * @throws IOException
+     */
+    public int write(Path path, int minGames) throws IOException {
+        //Compacta as entradas ocupadas no começo dos arrays e as ordena pela chave sem sinal e pelo movimento
+        int count = 0;
+        long maxScore = 1L;
+        for (int i = 0; i < entryKeys.length; i++) {
+            if (entryMoves[i] != 0 && entryGames[i] >= minGames) {
+                swap(i, count++);
+                maxScore = Math.max(maxScore, entryScores[count - 1]);
+            }
+        }
+        sort(0, count - 1);
+        double scale = (maxScore > MAX_WEIGHT) ? (double) MAX_WEIGHT / maxScore : 1.0;
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(OpeningBook.ENTRY_SIZE * 4096);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < count; i++) {
+                if (!buffer.hasRemaining()) {
+                    flush(buffer, channel);
+                }
+                buffer.putLong(entryKeys[i]);
+                buffer.putShort((short) entryMoves[i]);
+                buffer.putShort((short) Math.round(entryScores[i] * scale));
+                buffer.putInt(0);
+            }
+            flush(buffer, channel);
+        }
+        //A tabela hash foi desfeita pela ordenação
+        clear();
+        return count;
+    }
+
+    private void add(long key, int move, int score) {
+        if (2 * (size + 1) > entryKeys.length) {
+            grow();
+        }
+        int mask = entryKeys.length - 1;
+        int i = index(key, move, mask);
+        while (entryMoves[i] != 0 && (entryKeys[i] != key || entryMoves[i] != move)) {
+            i = (i + 1) & mask;
+        }
+        if (entryMoves[i] == 0) {
+            entryKeys[i] = key;
+            entryMoves[i] = move;
+            size++;
+        }
+        entryScores[i] += score;
+        entryGames[i]++;
+    }
+
+    private static int index(long key, int move, int mask) {
+        long h = (key ^ move * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = entryKeys;
+        int[] oldMoves = entryMoves;
+        long[] oldScores = entryScores;
+        int[] oldGames = entryGames;
+        int capacity = oldKeys.length * 2;
+        entryKeys = new long[capacity];
+        entryMoves = new int[capacity];
+        entryScores = new long[capacity];
+        entryGames = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldMoves[j] != 0) {
+                int i = index(oldKeys[j], oldMoves[j], mask);
+                while (entryMoves[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                entryKeys[i] = oldKeys[j];
+                entryMoves[i] = oldMoves[j];
+                entryScores[i] = oldScores[j];
+                entryGames[i] = oldGames[j];
+            }
+        }
+    }
+
+    private void clear() {
+        entryKeys = new long[1 << 16];
+        entryMoves = new int[1 << 16];
+        entryScores = new long[1 << 16];
+        entryGames = new int[1 << 16];
+        size = 0;
+        games = 0L;
+    }
+
+    private int compare(int a, int b) {
+        int c = Long.compareUnsigned(entryKeys[a], entryKeys[b]);
+        return (c != 0) ? c : Integer.compare(entryMoves[a], entryMoves[b]);
+    }
+
+    /**
+     * Quicksort dos arrays paralelos no intervalo [low, high]
+     */
+    private void sort(int low, int high) {
+        while (high - low > 16) {
+            int middle = (low + high) >>> 1;
+            //Mediana de três como pivô, colocada em high
+            if (compare(middle, low) < 0) {
+                swap(middle, low);
+            }
+            if (compare(high, low) < 0) {
+                swap(high, low);
+            }
+            if (compare(middle, high) < 0) {
+                swap(middle, high);
+            }
+            int store = low;
+            for (int i = low; i < high; i++) {
+                if (compare(i, high) < 0) {
+                    swap(i, store++);
+                }
+            }
+            swap(store, high);
+            //Recursão na parte menor, para limitar a profundidade da pilha
+            if (store - low < high - store) {
+                sort(low, store - 1);
+                low = store + 1;
+            } else {
+                sort(store + 1, high);
+                high = store - 1;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(j, j - 1) < 0; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        long key = entryKeys[a];
+        entryKeys[a] = entryKeys[b];
+        entryKeys[b] = key;
+        int move = entryMoves[a];
+        entryMoves[a] = entryMoves[b];
+        entryMoves[b] = move;
+        long score = entryScores[a];
+        entryScores[a] = entryScores[b];
+        entryScores[b] = score;
+        int count = entryGames[a];
+        entryGames[a] = entryGames[b];
+        entryGames[b] = count;
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,165 @@
+package chess.engine;
+
+import chess.ChessMatch;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Análise de uma posição em segundo plano: uma thread própria roda a análise multi-PV de uma Search (ver
+ * Search.analyze) e publica cada linha buscada para os assinantes, como um Flow.Publisher.
+ * A publicação não bloqueia a busca: cada assinante tem o seu buffer, esvaziado pelo executor do publisher, e um
+ * assinante que não acompanha perde as atualizações que não couberem nele (ver getDropped). Assim uma única busca
+ * pode alimentar vários visualizadores lentos ou rápidos sem que nenhum deles precise consultá-la.
+ * Quando a análise termina, por stop(), pelos limites ou por chegar a Search.MAX_DEPTH, os assinantes recebem
+ * onComplete (ou onError, se a busca falhar).
+ * A análise é feita em uma cópia da posição (ver ChessMatch.fork), então a partida original pode continuar sendo
+ * usada. A Search não deve ser usada por outra thread enquanto a análise estiver em andamento.
+ */
+public class Analysis implements Flow.Publisher<AnalysisUpdate>, AutoCloseable {
+    private final Search search;
+    private final ChessMatch match;
+    private final SearchLimits limits;
+    private final int lines;
+    private final SubmissionPublisher<AnalysisUpdate> publisher = new SubmissionPublisher<>();
+    private final LongAdder dropped = new LongAdder();
+    private Thread thread;
+    private volatile AnalysisUpdate latest;
+    private volatile SearchResult result;
+
+    /**
+     * Cria uma análise sem limites, que só termina com stop()
+     * @param search
+     * @param match
+     * @param lines quantidade de linhas acompanhadas
+     */
+    public Analysis(Search search, ChessMatch match, int lines) {
+        this(search, match, SearchLimits.INFINITE, lines);
+    }
+
+    /**
+     * @param search
+     * @param match
+     * @param limits
+     * @param lines quantidade de linhas acompanhadas
+     */
+    public Analysis(Search search, ChessMatch match, SearchLimits limits, int lines) {
+        if (lines < 1) {
+            throw new IllegalArgumentException("The analysis needs at least one line");
+        }
+        this.search = search;
+        this.match = match.fork();
+        this.limits = limits;
+        this.lines = lines;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super AnalysisUpdate> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Método que inicia a análise. Os assinantes inscritos antes recebem todas as linhas.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            throw new IllegalStateException("The analysis was already started");
+        }
+        search.clearStop();
+        thread = new Thread(this::run, "analysis");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            result = search.analyze(match, limits, lines, this::publish);
+            publisher.close();
+        } catch (RuntimeException e) {
+            publisher.closeExceptionally(e);
+        }
+    }
+
+    private void publish(AnalysisUpdate update) {
+        latest = update;
+        publisher.offer(update, (subscriber, item) -> {
+            dropped.increment();
+            return false;
+        });
+    }
+
+    /**
+     * Interrompe a análise (pode ser chamado de qualquer thread). A busca para logo que a primeira linha da
+     * profundidade 1 estiver completa.
+     */
+    public void stop() {
+        search.stop();
+    }
+
+    /**
+     * Espera a análise terminar
+     * @return a melhor linha da última profundidade completada
+     * @throws InterruptedException
+     */
+    public SearchResult await() throws InterruptedException {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t == null) {
+            throw new IllegalStateException("The analysis was not started");
+        }
+        t.join();
+        return result;
+    }
+
+    /**
+     * @return true se a análise foi iniciada e ainda não terminou
+     */
+    public synchronized boolean isRunning() {
+        return thread != null && thread.isAlive();
+    }
+
+    /**
+     * @return a última linha publicada, ou null se ainda não há nenhuma
+     */
+    public AnalysisUpdate getLatest() {
+        return latest;
+    }
+
+    /**
+     * @return quantidade de atualizações descartadas por assinantes com o buffer cheio
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Para a análise e espera ela terminar
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (thread == null) {
+                publisher.close();
+                return;
+            }
+            if (thread.isAlive()) {
+                stop();
+            }
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package chess.engine;
+
+/**
+ * Uma linha da análise multi-PV, entregue assim que é buscada: a posição da linha entre as melhores da profundidade
+ * (1 é a melhor) e o resultado da busca dela, com a profundidade, a avaliação, a variação e os nós e o tempo da
+ * análise até aquele momento
+ */
+public class AnalysisUpdate {
+    private final int line;
+    private final SearchResult result;
+
+    public AnalysisUpdate(int line, SearchResult result) {
+        this.line = line;
+        this.result = result;
+    }
+
+    /**
+     * @return a posição da linha, a partir de 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    public SearchResult getResult() {
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "multipv " + line + " " + result;
+    }
+}
@@ -0,0 +1,149 @@
+package chess.engine;
+
+import chess.ChessMatch;
+import chess.MoveList;
+import chess.movegen.MoveGenerator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Avaliação em lote de posições guardadas em um formato primitivo compacto, para os processamentos de grandes
+ * quantidades de posições (por exemplo todas as posições de um arquivo de partidas).
+ * Cada posição ocupa STRIDE longs consecutivos de um único long[]: as 12 máscaras de bits das peças, indexadas como no
+ * BitBoard, e um long com a vez, os direitos de roque e a casa de en passant (ver state). As avaliações são gravadas
+ * em um int[] do chamador, na mesma ordem, então o lote não cria nenhum objeto por posição.
+ * O lote é dividido recursivamente em um ForkJoinPool até pedaços de LEAF_SIZE posições, avaliados em sequência. Cada
+ * thread do pool tem o seu Evaluator (com a sua tabela de peões), que é reaproveitado entre pedaços e entre lotes.
+ * As regras são aplicadas: uma posição sem movimentos legais vale -Search.MATE se o jogador da vez estiver em cheque
+ * e 0 no afogamento.
+ */
+public class BatchEvaluator {
+    /**
+     * Quantidade de longs de cada posição
+     */
+    public static final int STRIDE = 13;
+
+    private static final int STATE = 12;
+    private static final int LEAF_SIZE = 1024;
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    /**
+     * Cria um avaliador que usa o pool comum
+     */
+    public BatchEvaluator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool pool que avalia os pedaços do lote
+     */
+    public BatchEvaluator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Empacota o estado de uma posição que não está nas máscaras
+     * @param side jogador da vez (MoveGenerator.WHITE ou MoveGenerator.BLACK)
+     * @param castlingRights combinação das constantes de roque do MoveGenerator
+     * @param enPassantSquare casa de destino da captura en passant, ou -1
+     * @return o último long da posição
+     */
+    public static long state(int side, int castlingRights, int enPassantSquare) {
+        return side | castlingRights << 1 | (long) (enPassantSquare + 1) << 5;
+    }
+
+    /**
+     * @param positions lote
+     * @param index
+     * @return o jogador da vez na posição do lote
+     */
+    public static int side(long[] positions, int index) {
+        return (int) positions[index * STRIDE + STATE] & 1;
+    }
+
+    /**
+     * Método que copia a posição atual da partida para o lote
+     * @param match
+     * @param positions lote
+     * @param index posição do lote que recebe a partida
+     */
+    public static void pack(ChessMatch match, long[] positions, int index) {
+        int offset = index * STRIDE;
+        System.arraycopy(match.getPieceMasks(), 0, positions, offset, 12);
+        positions[offset + STATE] = state(match.getCurrentPlayer().ordinal(), match.getCastlingRights(),
+                match.getEnPassantSquare());
+    }
+
+    /**
+     * Método que avalia as primeiras count posições do lote. Retorna quando todas estiverem avaliadas.
+     * @param positions lote, com STRIDE longs por posição
+     * @param count quantidade de posições
+     * @param scores recebe a avaliação de cada posição, em centipeões e do ponto de vista do jogador da vez
+     */
+    public void evaluate(long[] positions, int count, int[] scores) {
+        if (count < 0 || (long) count * STRIDE > positions.length || count > scores.length) {
+            throw new IllegalArgumentException("The arrays are too small for " + count + " positions");
+        }
+        if (count > 0) {
+            pool.invoke(new Task(positions, scores, 0, count));
+        }
+    }
+
+    /**
+     * Divide o intervalo ao meio até chegar ao tamanho de uma folha
+     */
+    private final class Task extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] positions;
+        private final int[] scores;
+        private final int from;
+        private final int to;
+
+        Task(long[] positions, int[] scores, int from, int to) {
+            this.positions = positions;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                workers.get().evaluate(positions, scores, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Task(positions, scores, from, middle), new Task(positions, scores, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Estado de avaliação de uma thread: a avaliação, a lista de movimentos usada para conferir mate e afogamento e
+     * as máscaras da posição atual
+     */
+    private static final class Worker {
+        private final Evaluator evaluator = new Evaluator();
+        private final MoveList moves = new MoveList();
+        private final long[] masks = new long[12];
+
+        void evaluate(long[] positions, int[] scores, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int offset = i * STRIDE;
+                System.arraycopy(positions, offset, masks, 0, 12);
+                long state = positions[offset + STATE];
+                int side = (int) state & 1;
+                int castlingRights = (int) (state >>> 1) & 15;
+                int enPassantSquare = ((int) (state >>> 5) & 127) - 1;
+                if (MoveGenerator.generate(masks, side, enPassantSquare, castlingRights, moves) == 0) {
+                    scores[i] = (MoveGenerator.checkers(masks, side) != 0) ? -Search.MATE : 0;
+                } else {
+                    scores[i] = evaluator.evaluate(masks, side);
+                }
+            }
+        }
+    }
+}
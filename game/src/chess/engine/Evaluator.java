@@ -0,0 +1,254 @@
+package chess.engine;
+
+import chess.ChessMatch;
+import chess.Color;
+import chess.PieceSquare;
+import chess.movegen.Attacks;
+import chess.movegen.MoveGenerator;
+
+/**
+ * Avaliação estática de posições, em centipeões e do ponto de vista do jogador atual.
+ * A avaliação soma material e tabelas de peça-casa, mobilidade, estrutura de peões e segurança do rei, cada termo com
+ * um peso de meio-jogo e um de final. As duas somas são combinadas pela fase da partida (avaliação afunilada), de
+ * modo que, por exemplo, o rei é incentivado a ficar protegido enquanto há damas e torres e a ir para o centro no
+ * final.
+ * Material e peça-casa vêm das somas que a ChessMatch mantém a cada movimento (ver PieceSquare), e os termos de
+ * peões ficam em uma tabela de hash da estrutura de peões, então só a mobilidade e o ataque ao rei são calculados
+ * em toda avaliação.
+ * Um Evaluator tem a sua própria tabela de peões e não pode ser usado por duas threads ao mesmo tempo.
+ */
+public class Evaluator {
+    /**
+     * Valor de cada tipo de peça, indexado pelo ordinal de PieceType
+     */
+    public static final int[] VALUES = {100, 320, 330, 500, 900, 0};
+
+    //16K estruturas de peões, 384 KB
+    private static final int PAWN_TABLE_BITS = 14;
+
+    private static final int WHITE = MoveGenerator.WHITE;
+    private static final int BLACK = MoveGenerator.BLACK;
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long FILE_H = FILE_A << 7;
+
+    //Mobilidade: bônus por casa alcançável acima da média de cada tipo de peça, sem contar as casas ocupadas por peças
+    //do mesmo lado e as atacadas por peões do oponente
+    private static final int[] MOBILITY_BASE = {0, 4, 6, 7, 13, 0};
+    private static final int[] MOBILITY_MIDDLEGAME = {0, 4, 5, 2, 1, 0};
+    private static final int[] MOBILITY_ENDGAME = {0, 4, 5, 4, 2, 0};
+
+    private static final int BISHOP_PAIR_MIDDLEGAME = 30;
+    private static final int BISHOP_PAIR_ENDGAME = 50;
+
+    //Estrutura de peões. O bônus do peão passado é indexado pela fileira contada a partir do lado do dono
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDDLEGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 5, 10, 20, 35, 55, 0};
+    private static final int[] PASSED_ENDGAME = {0, 5, 10, 20, 35, 60, 90, 0};
+
+    //Segurança do rei: peões na frente do rei e peso de cada tipo de peça no ataque às casas em volta dele. O
+    //perigo cresce com o quadrado das unidades de ataque e só é contado com ao menos dois atacantes e com a dama
+    private static final int SHIELD_BONUS = 12;
+    private static final int[] ATTACK_WEIGHTS = {0, 2, 2, 3, 5, 0};
+    private static final int MAX_KING_DANGER = 500;
+
+    private static final long[] ADJACENT_FILES = new long[8];
+    private static final long[][] PASSED = new long[2][64];
+    private static final long[][] SHIELD = new long[2][64];
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = ((file > 0) ? FILE_A << (file - 1) : 0L) | ((file < 7) ? FILE_A << (file + 1) : 0L);
+        }
+        for (int square = 0; square < 64; square++) {
+            int row = square >> 3;
+            int file = square & 7;
+            long files = ADJACENT_FILES[file] | FILE_A << file;
+            //As brancas avançam para as linhas de índice menor
+            for (int r = 0; r < 8; r++) {
+                long rank = 0xFFL << (r << 3);
+                if (r < row) {
+                    PASSED[WHITE][square] |= files & rank;
+                }
+                if (r > row) {
+                    PASSED[BLACK][square] |= files & rank;
+                }
+                if (row >= 6 && r < row && r >= row - 2) {
+                    SHIELD[WHITE][square] |= files & rank;
+                }
+                if (row <= 1 && r > row && r <= row + 2) {
+                    SHIELD[BLACK][square] |= files & rank;
+                }
+            }
+        }
+    }
+
+    private final PawnTable pawns = new PawnTable(PAWN_TABLE_BITS);
+
+    //Somas de meio-jogo e de final da avaliação em andamento
+    private int middlegame;
+    private int endgame;
+
+    /**
+     * Método que avalia a posição atual da partida
+     * @param match
+     * @return
+     */
+    public int evaluate(ChessMatch match) {
+        int score = evaluate(match.getPieceMasks(), match.getMiddlegameScore(), match.getEndgameScore(),
+                match.getGamePhase());
+        return (match.getCurrentPlayer() == Color.WHITE) ? score : -score;
+    }
+
+    /**
+     * Método que avalia uma posição dada só pelas máscaras de bits, sem uma ChessMatch. Como não há somas mantidas
+     * pelos movimentos, o material e as tabelas de peça-casa são somados percorrendo as máscaras.
+     * @param masks as 12 máscaras de bits das peças, indexadas como no BitBoard
+     * @param side jogador da vez (MoveGenerator.WHITE ou MoveGenerator.BLACK)
+     * @return a avaliação do ponto de vista do jogador da vez
+     */
+    public int evaluate(long[] masks, int side) {
+        int score = evaluate(masks, PieceSquare.middlegame(masks), PieceSquare.endgame(masks),
+                PieceSquare.phase(masks));
+        return (side == WHITE) ? score : -score;
+    }
+
+    /**
+     * @return quantidade de avaliações que encontraram a estrutura de peões na tabela
+     */
+    public long getPawnHits() {
+        return pawns.getHits();
+    }
+
+    /**
+     * @return quantidade de avaliações que calcularam a estrutura de peões
+     */
+    public long getPawnMisses() {
+        return pawns.getMisses();
+    }
+
+    /**
+     * Avaliação do ponto de vista das brancas
+     * @param masks as 12 máscaras de bits das peças
+     * @param middlegame soma das tabelas de meio-jogo de PieceSquare
+     * @param endgame soma das tabelas de final de PieceSquare
+     * @param phase fase da partida
+     * @return
+     */
+    private int evaluate(long[] masks, int middlegame, int endgame, int phase) {
+        this.middlegame = middlegame;
+        this.endgame = endgame;
+
+        long whitePawns = masks[WHITE * 6];
+        long blackPawns = masks[BLACK * 6];
+        int index = pawns.index(whitePawns, blackPawns);
+        if (!pawns.matches(index, whitePawns, blackPawns)) {
+            int before = this.middlegame;
+            int beforeEndgame = this.endgame;
+            pawnStructure(whitePawns, blackPawns, WHITE, 1);
+            pawnStructure(blackPawns, whitePawns, BLACK, -1);
+            pawns.store(index, whitePawns, blackPawns, this.middlegame - before, this.endgame - beforeEndgame);
+        } else {
+            this.middlegame += pawns.middlegame(index);
+            this.endgame += pawns.endgame(index);
+        }
+
+        long occupied = MoveGenerator.occupancy(masks, WHITE) | MoveGenerator.occupancy(masks, BLACK);
+        pieces(masks, WHITE, occupied, 1);
+        pieces(masks, BLACK, occupied, -1);
+
+        phase = Math.min(phase, PieceSquare.MAX_PHASE);
+        return (this.middlegame * phase + this.endgame * (PieceSquare.MAX_PHASE - phase)) / PieceSquare.MAX_PHASE;
+    }
+
+    /**
+     * Método que soma os termos de peões dobrados, isolados e passados de um lado
+     * @param own peões do lado avaliado
+     * @param enemy peões do oponente
+     * @param side
+     * @param sign 1 para as brancas, -1 para as pretas
+     */
+    private void pawnStructure(long own, long enemy, int side, int sign) {
+        for (int file = 0; file < 8; file++) {
+            int count = Long.bitCount(own & FILE_A << file);
+            if (count > 1) {
+                middlegame += sign * DOUBLED_MIDDLEGAME * (count - 1);
+                endgame += sign * DOUBLED_ENDGAME * (count - 1);
+            }
+        }
+        for (long bits = own; bits != 0; bits &= bits - 1) {
+            int square = Long.numberOfTrailingZeros(bits);
+            int file = square & 7;
+            if ((own & ADJACENT_FILES[file]) == 0) {
+                middlegame += sign * ISOLATED_MIDDLEGAME;
+                endgame += sign * ISOLATED_ENDGAME;
+            }
+            //Passado: nenhum peão do oponente na frente ou nas colunas vizinhas, e nenhum peão próprio na frente
+            long front = PASSED[side][square];
+            if ((enemy & front) == 0 && (own & front & FILE_A << file) == 0) {
+                int rank = (side == WHITE) ? 7 - (square >> 3) : square >> 3;
+                middlegame += sign * PASSED_MIDDLEGAME[rank];
+                endgame += sign * PASSED_ENDGAME[rank];
+            }
+        }
+    }
+
+    /**
+     * Método que soma a mobilidade das peças de um lado, o ataque delas ao rei do oponente, o par de bispos e os peões
+     * na frente do próprio rei
+     * @param masks
+     * @param side
+     * @param occupied todas as peças do tabuleiro
+     * @param sign 1 para as brancas, -1 para as pretas
+     */
+    private void pieces(long[] masks, int side, long occupied, int sign) {
+        int base = side * 6;
+        int enemy = (1 - side) * 6;
+        long enemyPawns = masks[enemy];
+        long enemyPawnAttacks = (side == WHITE)
+                ? (enemyPawns & ~FILE_A) << 7 | (enemyPawns & ~FILE_H) << 9
+                : (enemyPawns & ~FILE_A) >>> 9 | (enemyPawns & ~FILE_H) >>> 7;
+        long area = ~MoveGenerator.occupancy(masks, side) & ~enemyPawnAttacks;
+        long enemyKing = masks[enemy + 5];
+        long zone = (enemyKing != 0) ? Attacks.king(Long.numberOfTrailingZeros(enemyKing)) | enemyKing : 0L;
+
+        int attackers = 0;
+        int units = 0;
+        for (int type = 1; type <= 4; type++) {
+            for (long bits = masks[base + type]; bits != 0; bits &= bits - 1) {
+                int square = Long.numberOfTrailingZeros(bits);
+                long attacks;
+                switch (type) {
+                    case 1: attacks = Attacks.knight(square); break;
+                    case 2: attacks = Attacks.bishop(square, occupied); break;
+                    case 3: attacks = Attacks.rook(square, occupied); break;
+                    default: attacks = Attacks.queen(square, occupied);
+                }
+                int mobility = Long.bitCount(attacks & area) - MOBILITY_BASE[type];
+                middlegame += sign * MOBILITY_MIDDLEGAME[type] * mobility;
+                endgame += sign * MOBILITY_ENDGAME[type] * mobility;
+                long kingAttacks = attacks & zone;
+                if (kingAttacks != 0) {
+                    attackers++;
+                    units += ATTACK_WEIGHTS[type] * Long.bitCount(kingAttacks);
+                }
+            }
+        }
+        if (attackers >= 2 && masks[base + 4] != 0) {
+            middlegame += sign * Math.min(units * units / 2, MAX_KING_DANGER);
+        }
+
+        if (Long.bitCount(masks[base + 2]) >= 2) {
+            middlegame += sign * BISHOP_PAIR_MIDDLEGAME;
+            endgame += sign * BISHOP_PAIR_ENDGAME;
+        }
+
+        long king = masks[base + 5];
+        if (king != 0) {
+            long shield = SHIELD[side][Long.numberOfTrailingZeros(king)] & masks[base];
+            middlegame += sign * SHIELD_BONUS * Long.bitCount(shield);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package chess.engine;
+
+import chess.ChessMatch;
+import chess.tablebase.Tablebase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Busca paralela no esquema Lazy SMP: a busca principal roda na thread de quem chamou, sobre a própria partida, e as
+ * buscas auxiliares rodam em outras threads, cada uma sobre uma cópia independente da posição. Todas compartilham a
+ * mesma TranspositionTable, e é por ela que o trabalho das auxiliares acelera a principal. As auxiliares de índice
+ * ímpar começam uma profundidade à frente, para que as threads não percorram a árvore na mesma ordem.
+ * O resultado é o da busca principal (ou o de uma auxiliar que tenha completado uma profundidade maior), com os nós
+ * de todas as threads. Os limites de tempo e de nós valem para a busca principal; as auxiliares são paradas quando
+ * ela termina. Com uma thread não há auxiliares e o resultado é o mesmo de uma Search com a mesma tabela.
+ */
+public class ParallelSearch {
+    private final TranspositionTable table;
+    private final Search main;
+    private final Search[] helpers;
+    private final ExecutorService executor;
+
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The search needs at least one thread");
+        }
+        this.table = table;
+        main = new Search(new Evaluator(), table);
+        helpers = new Search[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new Search(new Evaluator(), table);
+        }
+        executor = (helpers.length == 0) ? null : Executors.newFixedThreadPool(helpers.length, r -> {
+            Thread thread = new Thread(r, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Busca o melhor movimento do jogador atual com todas as threads. A partida volta ao estado original no final.
+     * @param match
+     * @param limits
+     * @return
+     */
+    public SearchResult search(ChessMatch match, SearchLimits limits) {
+        if (helpers.length == 0) {
+            return main.search(match, limits);
+        }
+        long start = System.nanoTime();
+        table.newSearch();
+        SearchLimits helperLimits = SearchLimits.depth(limits.getDepth());
+        List<Future<SearchResult>> futures = new ArrayList<>();
+        for (int i = 0; i < helpers.length; i++) {
+            Search helper = helpers[i];
+            helper.clearStop();
+            ChessMatch copy = match.fork();
+            int firstDepth = 1 + ((i + 1) & 1);
+            futures.add(executor.submit(() -> helper.search(copy, helperLimits, firstDepth, true)));
+        }
+
+        SearchResult result;
+        try {
+            result = main.search(match, limits, 1, false);
+        } finally {
+            for (Search helper : helpers) {
+                helper.stop();
+            }
+        }
+
+        long nodes = result.getNodes();
+        SearchResult best = result;
+        for (Future<SearchResult> future : futures) {
+            SearchResult helperResult = join(future);
+            nodes += helperResult.getNodes();
+            if (helperResult.getDepth() > best.getDepth()) {
+                best = helperResult;
+            }
+        }
+        return new SearchResult(best.getBestMove(), best.getScore(), best.getDepth(), nodes, System.nanoTime() - start,
+                best.getPrincipalVariation());
+    }
+
+    /**
+     * Interrompe a busca em andamento (pode ser chamado de outra thread)
+     */
+    public void stop() {
+        main.stop();
+        for (Search helper : helpers) {
+            helper.stop();
+        }
+    }
+
+    /**
+     * Descarta um pedido de parada que tenha chegado depois do fim da última busca (ver Search.clearStop)
+     */
+    public void clearStop() {
+        main.clearStop();
+        for (Search helper : helpers) {
+            helper.clearStop();
+        }
+    }
+
+    /**
+     * Define as tabelas de finais consultadas por todas as threads (ver Search.setTablebase)
+     * @param tablebase as tabelas, ou null para não consultar
+     */
+    public void setTablebase(Tablebase tablebase) {
+        main.setTablebase(tablebase);
+        for (Search helper : helpers) {
+            helper.setTablebase(tablebase);
+        }
+    }
+
+    public int getThreads() {
+        return helpers.length + 1;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Encerra as threads auxiliares. A busca não pode mais ser usada depois disso.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static SearchResult join(Future<SearchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the search helpers", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A search helper failed", e.getCause());
+        }
+    }
+}
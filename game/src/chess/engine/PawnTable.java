@@ -0,0 +1,72 @@
+package chess.engine;
+
+/**
+ * Tabela de hash da estrutura de peões. Os termos de peões da avaliação dependem só das posições dos peões, que mudam
+ * pouco ao longo da busca, então cada estrutura é avaliada uma vez e o resultado é reaproveitado por todas as posições
+ * com os mesmos peões.
+ * Cada entrada guarda as máscaras dos peões brancos e pretos, em vez de uma chave, e as pontuações de meio-jogo e de
+ * final empacotadas em um long, tudo em um único long[]. Como as máscaras são comparadas inteiras não há colisões;
+ * uma entrada vazia tem as duas máscaras zeradas, que é justamente a estrutura sem peões, com pontuação zero.
+ * Não é sincronizada: cada Evaluator tem a sua.
+ */
+final class PawnTable {
+    private final long[] table;
+    private final int mask;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param bits logaritmo de 2 da quantidade de entradas
+     */
+    PawnTable(int bits) {
+        table = new long[3 << bits];
+        mask = (1 << bits) - 1;
+    }
+
+    /**
+     * @param white peões brancos
+     * @param black peões pretos
+     * @return a posição da entrada da estrutura, conferida com matches ou preenchida com store
+     */
+    int index(long white, long black) {
+        long h = white * 0x9E3779B97F4A7C15L ^ black * 0xC2B2AE3D27D4EB4FL;
+        return ((int) (h ^ h >>> 32) & mask) * 3;
+    }
+
+    /**
+     * @param index
+     * @param white
+     * @param black
+     * @return true se a entrada guarda esta estrutura de peões
+     */
+    boolean matches(int index, long white, long black) {
+        if (table[index] == white && table[index + 1] == black) {
+            hits++;
+            return true;
+        }
+        misses++;
+        return false;
+    }
+
+    void store(int index, long white, long black, int middlegame, int endgame) {
+        table[index] = white;
+        table[index + 1] = black;
+        table[index + 2] = (long) middlegame << 32 | (endgame & 0xFFFFFFFFL);
+    }
+
+    int middlegame(int index) {
+        return (int) (table[index + 2] >> 32);
+    }
+
+    int endgame(int index) {
+        return (int) table[index + 2];
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,547 @@
+package chess.engine;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+import chess.PieceType;
+import chess.tablebase.Tablebase;
+import chess.tablebase.TablebaseResult;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Busca negamax com poda alfa-beta e aprofundamento iterativo sobre os movimentos makeMove/undoMove da ChessMatch.
+ * Os movimentos são ordenados pelo melhor movimento da iteração anterior, pelas capturas em MVV-LVA (vítima mais
+ * valiosa, atacante menos valioso) e pelos killer moves (movimentos silenciosos que causaram corte na mesma
+ * profundidade). As folhas são resolvidas por uma busca de quiescência que só considera capturas e promoções.
+ * Os resultados de cada nó são guardados em uma TranspositionTable, que pode ser compartilhada com outras buscas: a
+ * entrada da posição dá o primeiro movimento a ser tentado e, quando a profundidade é suficiente, o resultado do nó.
+ * Com uma Tablebase (ver setTablebase), as posições com poucas peças abaixo da raiz são resolvidas pelas tabelas de
+ * finais, com a pontuação de mate exata.
+ * Além do melhor movimento, a busca pode analisar as N melhores linhas (ver analyze): em cada profundidade a raiz é
+ * buscada N vezes, cada vez sem os movimentos das linhas já encontradas.
+ * Todas as listas e tabelas são alocadas na construção, então uma Search pode ser reutilizada entre buscas, mas não
+ * pode ser usada por duas threads ao mesmo tempo.
+ */
+public class Search {
+    public static final int MAX_PLY = 128;
+    public static final int MAX_DEPTH = 64;
+    public static final int MATE = 32000;
+    public static final int INFINITY = 32500;
+
+    //Pontuações de ordenação: movimento da iteração anterior, capturas e promoções, killer moves e demais
+    private static final int PV_SCORE = 1 << 30;
+    private static final int TACTICAL_SCORE = 1 << 20;
+    private static final int KILLER_SCORE = 1 << 10;
+
+    //Verifica o relógio a cada 1024 nós
+    private static final int TIME_CHECK_MASK = 1023;
+
+    private final Evaluator evaluator;
+    private final TranspositionTable table;
+    private final MoveList[] moveLists = new MoveList[MAX_PLY];
+    private final int[][] orderScores = new int[MAX_PLY][MoveList.CAPACITY];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private int[] previousPv = new int[0];
+    //Movimentos da raiz ignorados na busca de uma linha da análise, por já serem o início de uma linha melhor
+    private final int[] excluded = new int[MoveList.CAPACITY];
+    private int excludedCount;
+    private Tablebase tablebase;
+
+    private ChessMatch match;
+    private long nodes;
+    private long maxNodes;
+    private long deadline;
+    private boolean canStop;
+    private volatile boolean stopped;
+
+    /**
+     * Cria uma busca com a avaliação padrão e uma tabela de transposição própria de 16 MB
+     */
+    public Search() {
+        this(new Evaluator(), new TranspositionTable(16));
+    }
+
+    public Search(Evaluator evaluator, TranspositionTable table) {
+        this.evaluator = evaluator;
+        this.table = table;
+        for (int i = 0; i < MAX_PLY; i++) {
+            moveLists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Busca o melhor movimento do jogador atual respeitando os limites. A profundidade 1 é sempre completada, então há
+     * um movimento no resultado sempre que a posição tiver algum movimento legal. A partida volta ao estado original
+     * no final.
+     * @param match
+     * @param limits
+     * @return
+     */
+    public SearchResult search(ChessMatch match, SearchLimits limits) {
+        table.newSearch();
+        return search(match, limits, 1, false);
+    }
+
+    /**
+     * Aprofundamento iterativo a partir de uma profundidade inicial. As buscas auxiliares da ParallelSearch começam
+     * em profundidades diferentes para não repetirem o trabalho da busca principal, e podem ser paradas a qualquer
+     * momento, já que o seu resultado não é usado.
+     * @param match
+     * @param limits
+     * @param firstDepth
+     * @param helper
+     * @return
+     */
+    SearchResult search(ChessMatch match, SearchLimits limits, int firstDepth, boolean helper) {
+        long start = System.nanoTime();
+        begin(match, limits, start, helper);
+
+        int maxDepth = (limits.getDepth() > 0) ? Math.min(limits.getDepth(), MAX_DEPTH) : MAX_DEPTH;
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        int completedDepth = 0;
+        for (int depth = Math.min(firstDepth, maxDepth); depth <= maxDepth; depth++) {
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+            if (aborted()) {
+                break;
+            }
+            completedDepth = depth;
+            bestScore = score;
+            previousPv = Arrays.copyOf(pv[0], pvLength[0]);
+            bestMove = (previousPv.length > 0) ? previousPv[0] : Move.NONE;
+            canStop = true;
+
+            //Mate encontrado dentro da profundidade buscada: aprofundar não muda o resultado
+            if (Math.abs(score) >= MATE - depth) {
+                break;
+            }
+            //Uma nova iteração custa mais que todas as anteriores juntas; não vale começá-la sem tempo para terminá-la
+            if (deadline != 0L && System.nanoTime() - start > (deadline - start) / 2) {
+                break;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        this.match = null;
+        stopped = false;
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes, elapsed, previousPv);
+    }
+
+    /**
+     * Análise multi-PV: aprofundamento iterativo que acompanha as melhores linhas da posição em vez de só o melhor
+     * movimento. Em cada profundidade a linha k é a melhor variação sem os primeiros movimentos das linhas 1 a k - 1.
+     * Cada linha é entregue ao listener assim que é buscada, na thread da busca, então o listener não deve bloquear.
+     * Com SearchLimits.INFINITE a análise continua até Search.MAX_DEPTH ou até ser parada com stop(). A partida volta
+     * ao estado original no final.
+     * @param match
+     * @param limits
+     * @param lines quantidade de linhas; é limitada à quantidade de movimentos legais
+     * @param listener recebe cada linha buscada
+     * @return a melhor linha da última profundidade em que ela foi completada
+     */
+    public SearchResult analyze(ChessMatch match, SearchLimits limits, int lines, Consumer<AnalysisUpdate> listener) {
+        if (lines < 1) {
+            throw new IllegalArgumentException("The analysis needs at least one line");
+        }
+        long start = System.nanoTime();
+        table.newSearch();
+        begin(match, limits, start, false);
+        int count = Math.min(lines, match.legalMoves(moveLists[0]));
+        int maxDepth = (limits.getDepth() > 0) ? Math.min(limits.getDepth(), MAX_DEPTH) : MAX_DEPTH;
+        int[][] linePvs = new int[count][0];
+        SearchResult best = new SearchResult(Move.NONE, (count == 0 && match.isInCheck()) ? -MATE : 0, 0, 0L, 0L,
+                new int[0]);
+        try {
+            iterations:
+            for (int depth = 1; depth <= maxDepth && count > 0; depth++) {
+                excludedCount = 0;
+                boolean mates = true;
+                for (int line = 0; line < count; line++) {
+                    //A linha da profundidade anterior é tentada primeiro
+                    previousPv = linePvs[line];
+                    int score = negamax(depth, 0, -INFINITY, INFINITY);
+                    if (aborted()) {
+                        break iterations;
+                    }
+                    canStop = true;
+                    linePvs[line] = Arrays.copyOf(pv[0], pvLength[0]);
+                    excluded[excludedCount++] = linePvs[line][0];
+                    SearchResult result = new SearchResult(linePvs[line][0], score, depth, nodes,
+                            System.nanoTime() - start, linePvs[line]);
+                    if (line == 0) {
+                        best = result;
+                    }
+                    mates &= Math.abs(score) >= MATE - depth;
+                    listener.accept(new AnalysisUpdate(line + 1, result));
+                }
+                //Todas as linhas terminam em mate dentro da profundidade buscada: aprofundar não muda a análise
+                if (mates) {
+                    break;
+                }
+                if (deadline != 0L && System.nanoTime() - start > (deadline - start) / 2) {
+                    break;
+                }
+            }
+        } finally {
+            excludedCount = 0;
+            this.match = null;
+            stopped = false;
+        }
+        return best;
+    }
+
+    /**
+     * Prepara o estado de uma nova busca
+     */
+    private void begin(ChessMatch match, SearchLimits limits, long start, boolean helper) {
+        this.match = match;
+        nodes = 0L;
+        maxNodes = limits.getNodes();
+        deadline = (limits.getTimeMillis() > 0) ? start + limits.getTimeMillis() * 1_000_000L : 0L;
+        canStop = helper;
+        previousPv = new int[0];
+        for (int[] k : killers) {
+            Arrays.fill(k, Move.NONE);
+        }
+    }
+
+    /**
+     * Interrompe a busca em andamento (pode ser chamado de outra thread). O resultado é o da última iteração completa;
+     * se a profundidade 1 ainda não terminou, a busca para logo depois dela.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Descarta um pedido de parada que tenha chegado depois do fim da última busca
+     */
+    public void clearStop() {
+        stopped = false;
+    }
+
+    /**
+     * @return nós visitados pela busca em andamento ou pela última busca
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Define as tabelas de finais consultadas pela busca
+     * @param tablebase as tabelas, ou null para não consultar
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (depth <= 0) {
+            return quiesce(ply, alpha, beta);
+        }
+        if (visit()) {
+            return 0;
+        }
+        //Repetições e a regra dos 50 movimentos empatam; uma repetição já basta, já que o lado que a buscou pode
+        //repeti-la de novo
+        if (ply > 0 && (match.isFiftyMoveRule() || match.isRepetition())) {
+            return 0;
+        }
+        if (ply > 0 && tablebase != null && match.getPieceCount() <= tablebase.getMaxPieces()) {
+            TablebaseResult result = tablebase.probe(match);
+            if (result != null) {
+                switch (result.getWdl()) {
+                    case WIN:
+                        return MATE - ply - result.getPliesToMate();
+                    case LOSS:
+                        return -MATE + ply + result.getPliesToMate();
+                    default:
+                        return 0;
+                }
+            }
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(match);
+        }
+
+        long key = match.getZobristKey();
+        long entry = table.probe(key);
+        int hashMove = Move.NONE;
+        if (entry != 0L) {
+            hashMove = TranspositionTable.move(entry);
+            //Na raiz o resultado da tabela não é usado, para que sempre haja um movimento e uma variação principal
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        int count = match.legalMoves(moves);
+        if (count == 0) {
+            return match.isInCheck() ? -MATE + ply : 0;
+        }
+        scoreMoves(moves, count, ply, hashMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        int searched = 0;
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(moves, count, ply, i);
+            if (ply == 0 && isExcluded(move)) {
+                continue;
+            }
+            match.makeMove(move);
+            int score;
+            if (searched++ == 0) {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                //Principal variation search: os demais movimentos só precisam provar que não são melhores
+                score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            match.undoMove();
+            if (aborted()) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        if (!isTactical(move)) {
+                            storeKiller(ply, move);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        //Sem os movimentos excluídos o resultado da raiz não vale para a posição
+        if (ply == 0 && excludedCount > 0) {
+            return best;
+        }
+        int bound = (best >= beta) ? TranspositionTable.LOWER
+                : (best > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, (bound == TranspositionTable.UPPER) ? Move.NONE : bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Busca de quiescência: estende as folhas com capturas e promoções até a posição ficar calma, para que a
+     * avaliação estática não seja feita no meio de uma troca. Em cheque todas as evasões são consideradas.
+     */
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (visit()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(match);
+        }
+
+        boolean inCheck = match.isInCheck();
+        MoveList moves = moveLists[ply];
+        int count = match.legalMoves(moves);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+
+        int best = -INFINITY;
+        if (!inCheck) {
+            best = evaluator.evaluate(match);
+            if (best >= beta) {
+                return best;
+            }
+            if (best > alpha) {
+                alpha = best;
+            }
+        }
+        scoreMoves(moves, count, ply, Move.NONE);
+
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(moves, count, ply, i);
+            if (!inCheck && !isTactical(move)) {
+                continue;
+            }
+            match.makeMove(move);
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            match.undoMove();
+            if (aborted()) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Conta um nó e verifica os limites da busca
+     * @return true se a busca deve ser interrompida
+     */
+    private boolean visit() {
+        nodes++;
+        if (!canStop) {
+            return false;
+        }
+        if (!stopped && ((maxNodes > 0 && nodes >= maxNodes)
+                || (deadline != 0L && (nodes & TIME_CHECK_MASK) == 0 && System.nanoTime() >= deadline))) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * A busca só pode ser interrompida depois de completar a primeira iteração
+     * @return
+     */
+    private boolean aborted() {
+        return canStop && stopped;
+    }
+
+    /**
+     * Calcula a pontuação de ordenação de cada movimento da lista
+     */
+    private void scoreMoves(MoveList moves, int count, int ply, int hashMove) {
+        long[] masks = match.getPieceMasks();
+        int pvMove = (hashMove != Move.NONE) ? hashMove : (ply < previousPv.length) ? previousPv[ply] : Move.NONE;
+        int[] scores = orderScores[ply];
+        for (int i = 0; i < count; i++) {
+            int move = moves.get(i);
+            int score = 0;
+            if (move == pvMove) {
+                score = PV_SCORE;
+            } else if (isTactical(move)) {
+                score = TACTICAL_SCORE;
+                if (Move.isCapture(move)) {
+                    int victim = Move.isEnPassant(move) ? PieceType.PAWN.ordinal() : pieceAt(masks, Move.to(move));
+                    int attacker = pieceAt(masks, Move.from(move));
+                    score += (victim + 1) * 16 - attacker;
+                }
+                if (Move.promotion(move) == PieceType.QUEEN) {
+                    score += 256;
+                }
+            } else if (move == killers[ply][0]) {
+                score = KILLER_SCORE + 1;
+            } else if (move == killers[ply][1]) {
+                score = KILLER_SCORE;
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Ordenação por seleção feita aos poucos: traz para a posição i o movimento de maior pontuação entre os
+     * restantes. Como a maior parte dos nós corta nos primeiros movimentos, isso sai mais barato que ordenar a lista.
+     */
+    private int pickMove(MoveList moves, int count, int ply, int i) {
+        int[] scores = orderScores[ply];
+        int best = i;
+        for (int j = i + 1; j < count; j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        if (best != i) {
+            int move = moves.get(best);
+            moves.set(best, moves.get(i));
+            moves.set(i, move);
+            int score = scores[best];
+            scores[best] = scores[i];
+            scores[i] = score;
+        }
+        return moves.get(i);
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, length - ply - 1);
+        pvLength[ply] = Math.max(length, ply + 1);
+    }
+
+    /**
+     * As avaliações de mate são guardadas na tabela relativas ao nó (distância até o mate a partir dele), já que a
+     * mesma posição pode ser alcançada em outra distância da raiz
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private void storeKiller(int ply, int move) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+    }
+
+    private boolean isExcluded(int move) {
+        for (int i = 0; i < excludedCount; i++) {
+            if (excluded[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTactical(int move) {
+        return Move.isCapture(move) || Move.promotion(move) == PieceType.QUEEN;
+    }
+
+    /**
+     * @return o tipo (ordinal de PieceType) da peça na casa, de qualquer cor
+     */
+    private static int pieceAt(long[] masks, int square) {
+        long bit = 1L << square;
+        for (int index = 0; index < 12; index++) {
+            if ((masks[index] & bit) != 0) {
+                return index % 6;
+            }
+        }
+        return PieceType.PAWN.ordinal();
+    }
+}
@@ -0,0 +1,46 @@
+package chess.engine;
+
+/**
+ * Limites de uma busca: profundidade máxima, tempo e quantidade de nós. Um limite igual a zero não é aplicado; sem
+ * nenhum limite a busca só termina ao atingir Search.MAX_DEPTH ou ao ser parada com Search.stop().
+ */
+public class SearchLimits {
+    public static final SearchLimits INFINITE = new SearchLimits(0, 0L, 0L);
+
+    private final int depth;
+    private final long timeMillis;
+    private final long nodes;
+
+    public SearchLimits(int depth, long timeMillis, long nodes) {
+        if (depth < 0 || timeMillis < 0 || nodes < 0) {
+            throw new IllegalArgumentException("Search limits can't be negative");
+        }
+        this.depth = depth;
+        this.timeMillis = timeMillis;
+        this.nodes = nodes;
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0L, 0L);
+    }
+
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(0, timeMillis, 0L);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, 0L, nodes);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,98 @@
+package chess.engine;
+
+import chess.Move;
+
+/**
+ * Resultado de uma busca: o melhor movimento da última iteração completa, a sua avaliação, a variação principal e as
+ * estatísticas (profundidade atingida, nós visitados e tempo gasto)
+ */
+public class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long nanos;
+    private final int[] principalVariation;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long nanos, int[] principalVariation) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.principalVariation = principalVariation;
+    }
+
+    /**
+     * @return o melhor movimento codificado (ver Move), ou Move.NONE se não houver movimento legal na posição
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return avaliação em centipeões do ponto de vista de quem joga; valores perto de Search.MATE indicam mate
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return a maior profundidade completamente buscada
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedMillis() {
+        return nanos / 1_000_000L;
+    }
+
+    public long getNodesPerSecond() {
+        return (nanos == 0L) ? 0L : (long) (nodes * 1e9 / nanos);
+    }
+
+    /**
+     * @return cópia da variação principal, começando pelo melhor movimento
+     */
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    /**
+     * @return true se a avaliação é um mate encontrado pela busca (a favor ou contra quem joga)
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * @return quantidade de movimentos até o mate (negativa quando quem joga leva mate), ou 0 se não for mate
+     */
+    public int getMateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Search.MATE - Math.abs(score);
+        return (score > 0) ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("depth ").append(depth);
+        sb.append(isMate() ? " mate " + getMateIn() : " score " + score);
+        sb.append(" nodes ").append(nodes);
+        sb.append(" nps ").append(getNodesPerSecond());
+        sb.append(" time ").append(getElapsedMillis());
+        sb.append(" pv");
+        for (int move : principalVariation) {
+            sb.append(' ').append(Move.toString(move));
+        }
+        return sb.toString();
+    }
+}
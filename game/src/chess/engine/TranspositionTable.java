@@ -0,0 +1,226 @@
+package chess.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tabela de transposição de tamanho fixo, compartilhável entre várias threads de busca sem nenhum lock.
+ * As entradas ficam em um único long[], em grupos de BUCKET_SIZE entradas de dois longs (a chave com um XOR dos dados
+ * e os dados), então a tabela não cria objetos e não pesa para o GC mesmo com vários gigabytes. Como as duas
+ * palavras de uma entrada são escritas separadamente, uma leitura concorrente com uma escrita pode ver metade de
+ * cada uma; o XOR faz com que essa entrada rasgada não confira com a chave e seja tratada como ausente. Por isso o
+ * movimento lido da tabela deve ser usado só como sugestão e conferido com os movimentos legais da posição.
+ * Os dados de uma entrada são empacotados em um long:
+ * bits 0-19: movimento (ver chess.Move)
+ * bits 20-35: avaliação (16 bits com sinal)
+ * bits 36-43: profundidade
+ * bits 44-45: tipo do limite (EXACT, LOWER, UPPER; zero indica entrada vazia)
+ * bits 46-51: idade (geração da busca que gravou a entrada)
+ */
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int AGE_MASK = 63;
+    private static final long MAX_BUCKETS = 1L << 27;
+
+    private final long[] table;
+    private final int bucketMask;
+    private volatile int age;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+    private final LongAdder overwrites = new LongAdder();
+
+    /**
+     * Cria uma tabela com até o tamanho informado. A quantidade de grupos é arredondada para baixo para uma potência
+     * de dois.
+     * @param megabytes
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("The transposition table must have at least 1 MB");
+        }
+        long buckets = Long.highestOneBit(Math.min((long) megabytes * 1024 * 1024 / (BUCKET_SIZE * 16), MAX_BUCKETS));
+        table = new long[(int) buckets * BUCKET_SIZE * 2];
+        bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * Procura a posição na tabela
+     * @param key chave de Zobrist da posição
+     * @return os dados empacotados da entrada, ou 0 se a posição não estiver na tabela
+     */
+    public long probe(long key) {
+        probes.increment();
+        int base = index(key);
+        boolean occupied = false;
+        for (int i = base; i < base + BUCKET_SIZE * 2; i += 2) {
+            long data = table[i + 1];
+            if (data == 0L) {
+                continue;
+            }
+            if ((table[i] ^ data) == key) {
+                hits.increment();
+                return data;
+            }
+            occupied = true;
+        }
+        if (occupied) {
+            collisions.increment();
+        }
+        return 0L;
+    }
+
+    /**
+     * Grava o resultado da busca de uma posição. Se a posição já está na tabela, a entrada é atualizada; se não,
+     * ocupa uma entrada vazia do grupo ou substitui a de menor valor, considerando a profundidade e a idade (entradas
+     * de buscas anteriores são substituídas primeiro).
+     * @param key
+     * @param move
+     * @param score
+     * @param depth
+     * @param bound EXACT, LOWER ou UPPER
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int base = index(key);
+        int currentAge = age;
+        int replace = -1;
+        int replaceValue = Integer.MAX_VALUE;
+        for (int i = base; i < base + BUCKET_SIZE * 2; i += 2) {
+            long data = table[i + 1];
+            if (data == 0L) {
+                if (replaceValue > Integer.MIN_VALUE) {
+                    replace = i;
+                    replaceValue = Integer.MIN_VALUE;
+                }
+                continue;
+            }
+            if ((table[i] ^ data) == key) {
+                //Mantém o movimento conhecido quando a nova busca não encontrou um
+                if (move == 0) {
+                    move = move(data);
+                }
+                write(i, key, pack(move, score, depth, bound, currentAge));
+                return;
+            }
+            int value = depth(data) - 8 * ((currentAge - age(data)) & AGE_MASK);
+            if (value < replaceValue) {
+                replace = i;
+                replaceValue = value;
+            }
+        }
+        if (replaceValue != Integer.MIN_VALUE) {
+            overwrites.increment();
+        }
+        write(replace, key, pack(move, score, depth, bound, currentAge));
+    }
+
+    /**
+     * Avança a geração da tabela. Deve ser chamado no começo de cada busca, para que as entradas das buscas anteriores
+     * sejam as primeiras a serem substituídas.
+     */
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    /**
+     * Apaga todas as entradas e zera os contadores
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        probes.reset();
+        hits.reset();
+        collisions.reset();
+        overwrites.reset();
+    }
+
+    /**
+     * @return quantidade de entradas da tabela
+     */
+    public long getCapacity() {
+        return table.length / 2;
+    }
+
+    /**
+     * Ocupação da tabela pela busca atual, estimada pelas primeiras mil entradas
+     * @return ocupação em milésimos
+     */
+    public int getHashFull() {
+        int currentAge = age;
+        int sample = (int) Math.min(1000, getCapacity());
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = table[i * 2 + 1];
+            if (data != 0L && age(data) == currentAge) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    /**
+     * @return consultas que encontraram a posição
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return consultas que não encontraram a posição, mas cujo grupo estava ocupado por outras posições
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+
+    /**
+     * @return gravações que substituíram a entrada de outra posição
+     */
+    public long getOverwrites() {
+        return overwrites.sum();
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 20);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 36) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 44) & 3;
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> 46) & AGE_MASK;
+    }
+
+    private static long pack(int move, int score, int depth, int bound, int age) {
+        return (move & 0xFFFFFL)
+                | (score & 0xFFFFL) << 20
+                | (long) Math.max(0, Math.min(depth, 255)) << 36
+                | (long) bound << 44
+                | (long) age << 46;
+    }
+
+    private void write(int i, long key, long data) {
+        table[i] = key ^ data;
+        table[i + 1] = data;
+    }
+
+    private int index(long key) {
+        return ((int) key & bucketMask) * BUCKET_SIZE * 2;
+    }
+}
@@ -0,0 +1,251 @@
+package chess.movegen;
+
+import chess.Color;
+
+/**
+ * Tabelas de ataque pré-calculadas para a geração de movimentos com máscaras de 64 bits.
+ * As casas seguem a numeração do BitBoard: índice = linha * 8 + coluna, com a linha 0 sendo a fileira 8.
+ * Rei, cavalo e peão usam tabelas simples indexadas pela casa. Torre e bispo usam magic bitboards: a ocupação
+ * relevante do raio é multiplicada por um número mágico e o resultado indexa diretamente a tabela de ataques.
+ * Os números mágicos foram encontrados por busca aleatória (uma só vez, fora do programa) e ficam fixos no código,
+ * para não gastar tempo procurando-os ao carregar a classe.
+ */
+public final class Attacks {
+    private static final long[] KING = new long[64];
+    private static final long[] KNIGHT = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final long[] ROOK_MASK = new long[64];
+    private static final long[] ROOK_MAGIC = {
+            0x2080002080400010L, 0x00C0002001401000L, 0x2100110008402002L, 0x0880080081041000L,
+            0x0200020020041008L, 0x2300040008010012L, 0x0C00283004008201L, 0x0180010000407A80L,
+            0x0168800080400020L, 0x0010400040201000L, 0x1001002001001048L, 0x1001002408100100L,
+            0x0801000408010012L, 0x4001000209000400L, 0x08A20004C8020001L, 0x2002801145002280L,
+            0x0080860021004200L, 0x001000C009402002L, 0x00B0002004002800L, 0x100A808010020800L,
+            0x8101010008000410L, 0x0244008002000480L, 0x0000040010810208L, 0x2000020000448534L,
+            0x4104400480008033L, 0x0000810100204000L, 0x0440430900200010L, 0x4600240900100100L,
+            0x0060080080040080L, 0x0001000300080400L, 0x0004084400011002L, 0x0023040200008041L,
+            0x0580050043002080L, 0x0400804002802008L, 0x0001002001004010L, 0x1000200901001000L,
+            0x4410800801800C00L, 0xA012003806001004L, 0x0020100104008802L, 0x0004808402000041L,
+            0x0010400170898000L, 0x0080500020004004L, 0x1040408012020020L, 0x8010040008004040L,
+            0x2001080100110004L, 0x0000020004008080L, 0x0021010810040002L, 0x0800008C43020024L,
+            0x0000800021005100L, 0x0070201040008080L, 0x0000D04282006A00L, 0x0010014400080240L,
+            0x0001080110050100L, 0x0012000810240600L, 0x0402000801040200L, 0x028100108A004100L,
+            0x0050800300102045L, 0x8208210040120882L, 0x8010600101183441L, 0x020B000910006045L,
+            0x0241001002480005L, 0x0081000400880241L, 0x0000009008024124L, 0x0048122980410402L
+    };
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final int[] ROOK_OFFSET = new int[64];
+    private static final long[] ROOK_TABLE;
+
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final long[] BISHOP_MAGIC = {
+            0x0110A00808822041L, 0x8802180507120720L, 0x025004E202442804L, 0xA021050100010220L,
+            0x1004030800400000L, 0x0008280808100000L, 0x0401861802400201L, 0xA710108A10100424L,
+            0x2008052112160200L, 0x1124600404206040L, 0x000C122816042208L, 0x4800084481000200L,
+            0x0080141044002005L, 0x0081230402426004L, 0x0140905402084100L, 0x8000024504109208L,
+            0x8249111002500402L, 0x1190002021210100L, 0x8010026202801101L, 0x0002003120820002L,
+            0x4004804400A04002L, 0x0812010908060200L, 0x6D02000426170400L, 0x00020280C2068434L,
+            0x4410122440048108L, 0x0108084074108080L, 0x4018010842240100L, 0x000A00200A008200L,
+            0x082100D00100C001L, 0x0210008201004105L, 0x2000810000841084L, 0x0004023005030104L,
+            0x0010022000088800L, 0xC00A100500100100L, 0x0000108200102401L, 0x0100040108740100L,
+            0x05090B0400020202L, 0x89100200200A1000L, 0x0002080A00084200L, 0x00010C0100448050L,
+            0x000101201080A040L, 0x021C0601D0008400L, 0x0600420040400400L, 0x0082058404112841L,
+            0x0200840102101400L, 0x0002009005000280L, 0x0A022208010A0A00L, 0x003026085B022840L,
+            0x4020808410400000L, 0x008904029C040482L, 0x0948E12A0150000AL, 0x0104008242022004L,
+            0x42024428102C0000L, 0x8902100210011212L, 0x00416802008201C8L, 0x0004100091090000L,
+            0x0000260210010880L, 0x0012220A8201110DL, 0x2000040024024801L, 0x0005002005040909L,
+            0x0010000050020221L, 0x0400064050421080L, 0x041060041040D104L, 0x0022120801040084L
+    };
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final int[] BISHOP_OFFSET = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final int[][] ROOK_DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+    private static final int[][] KING_STEPS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+    private static final int[][] KNIGHT_STEPS = {{-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}, {1, 2}, {2, 1}, {2, -1}, {1, -2}};
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int row = square >> 3;
+            int column = square & 7;
+            KING[square] = steps(row, column, KING_STEPS);
+            KNIGHT[square] = steps(row, column, KNIGHT_STEPS);
+            PAWN[Color.WHITE.ordinal()][square] = steps(row, column, new int[][]{{-1, -1}, {-1, 1}});
+            PAWN[Color.BLACK.ordinal()][square] = steps(row, column, new int[][]{{1, -1}, {1, 1}});
+        }
+        ROOK_TABLE = new long[initMasks(ROOK_DIRECTIONS, ROOK_MASK, ROOK_SHIFT, ROOK_OFFSET)];
+        fillTable(ROOK_DIRECTIONS, ROOK_MASK, ROOK_MAGIC, ROOK_SHIFT, ROOK_OFFSET, ROOK_TABLE);
+        BISHOP_TABLE = new long[initMasks(BISHOP_DIRECTIONS, BISHOP_MASK, BISHOP_SHIFT, BISHOP_OFFSET)];
+        fillTable(BISHOP_DIRECTIONS, BISHOP_MASK, BISHOP_MAGIC, BISHOP_SHIFT, BISHOP_OFFSET, BISHOP_TABLE);
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) {
+                    continue;
+                }
+                long bitA = 1L << a;
+                long bitB = 1L << b;
+                if ((slidingAttacks(a, 0L, ROOK_DIRECTIONS) & bitB) != 0) {
+                    BETWEEN[a][b] = slidingAttacks(a, bitB, ROOK_DIRECTIONS) & slidingAttacks(b, bitA, ROOK_DIRECTIONS);
+                    LINE[a][b] = (slidingAttacks(a, 0L, ROOK_DIRECTIONS) & slidingAttacks(b, 0L, ROOK_DIRECTIONS)) | bitA | bitB;
+                } else if ((slidingAttacks(a, 0L, BISHOP_DIRECTIONS) & bitB) != 0) {
+                    BETWEEN[a][b] = slidingAttacks(a, bitB, BISHOP_DIRECTIONS) & slidingAttacks(b, bitA, BISHOP_DIRECTIONS);
+                    LINE[a][b] = (slidingAttacks(a, 0L, BISHOP_DIRECTIONS) & slidingAttacks(b, 0L, BISHOP_DIRECTIONS)) | bitA | bitB;
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    /**
+     * Casas atacadas por um peão de determinada cor
+     * @param color
+     * @param square
+     * @return
+     */
+    public static long pawn(Color color, int square) {
+        return PAWN[color.ordinal()][square];
+    }
+
+    /**
+     * Casas atacadas por um peão, usando o índice da cor (Color.ordinal())
+     * @param color
+     * @param square
+     * @return
+     */
+    public static long pawn(int color, int square) {
+        return PAWN[color][square];
+    }
+
+    public static long rook(int square, long occupancy) {
+        return ROOK_TABLE[ROOK_OFFSET[square] + (int) (((occupancy & ROOK_MASK[square]) * ROOK_MAGIC[square]) >>> ROOK_SHIFT[square])];
+    }
+
+    public static long bishop(int square, long occupancy) {
+        return BISHOP_TABLE[BISHOP_OFFSET[square] + (int) (((occupancy & BISHOP_MASK[square]) * BISHOP_MAGIC[square]) >>> BISHOP_SHIFT[square])];
+    }
+
+    public static long queen(int square, long occupancy) {
+        return rook(square, occupancy) | bishop(square, occupancy);
+    }
+
+    /**
+     * Casas estritamente entre duas casas alinhadas (mesma linha, coluna ou diagonal)
+     * @param a
+     * @param b
+     * @return a máscara das casas entre a e b, ou 0 se não estiverem alinhadas
+     */
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    /**
+     * Linha completa (de borda a borda) que passa por duas casas alinhadas
+     * @param a
+     * @param b
+     * @return a máscara da linha, ou 0 se as casas não estiverem alinhadas
+     */
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    private static long steps(int row, int column, int[][] steps) {
+        long mask = 0L;
+        for (int[] step : steps) {
+            int r = row + step[0];
+            int c = column + step[1];
+            if (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                mask |= 1L << (r << 3 | c);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Caminha pelos raios de uma peça deslizante a partir de uma casa, parando na primeira casa ocupada
+     * @param square
+     * @param occupancy
+     * @param directions
+     * @return as casas atacadas
+     */
+    private static long slidingAttacks(int square, long occupancy, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int r = (square >> 3) + direction[0];
+            int c = (square & 7) + direction[1];
+            while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                long bit = 1L << (r << 3 | c);
+                mask |= bit;
+                if ((occupancy & bit) != 0) {
+                    break;
+                }
+                r += direction[0];
+                c += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Casas do raio cuja ocupação influencia o ataque (as casas da borda não importam)
+     * @param square
+     * @param directions
+     * @return
+     */
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int r = (square >> 3) + direction[0];
+            int c = (square & 7) + direction[1];
+            while (r + direction[0] >= 0 && r + direction[0] < 8 && c + direction[1] >= 0 && c + direction[1] < 8) {
+                mask |= 1L << (r << 3 | c);
+                r += direction[0];
+                c += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Calcula as máscaras relevantes e a posição de cada casa na tabela de ataques
+     * @return o tamanho total da tabela de ataques
+     */
+    private static int initMasks(int[][] directions, long[] masks, int[] shifts, int[] offsets) {
+        int offset = 0;
+        for (int square = 0; square < 64; square++) {
+            masks[square] = relevantMask(square, directions);
+            int bits = Long.bitCount(masks[square]);
+            shifts[square] = 64 - bits;
+            offsets[square] = offset;
+            offset += 1 << bits;
+        }
+        return offset;
+    }
+
+    private static void fillTable(int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets, long[] table) {
+        for (int square = 0; square < 64; square++) {
+            long mask = masks[square];
+            long subset = 0L;
+            do {
+                int index = (int) ((subset * magics[square]) >>> shifts[square]);
+                table[offsets[square] + index] = slidingAttacks(square, subset, directions);
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package chess.movegen;
+
+import chess.Move;
+import chess.MoveList;
+import chess.PieceType;
+
+/**
+ * Gerador de movimentos legais sobre máscaras de bits.
+ * A posição é descrita apenas por valores primitivos: um vetor com 12 máscaras (índice cor * 6 + tipo, usando os
+ * ordinais de Color e PieceType, como no BitBoard), a cor que joga, a casa de en passant e os direitos de roque.
+ * As peças cravadas e os lances que tiram o rei do cheque são calculados diretamente, então nenhum movimento precisa
+ * ser feito e desfeito para saber se é legal.
+ */
+public final class MoveGenerator {
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    public static final int BLACK = 0;
+    public static final int WHITE = 1;
+
+    private static final int PAWN = 0;
+    private static final int KNIGHT = 1;
+    private static final int BISHOP = 2;
+    private static final int ROOK = 3;
+    private static final int QUEEN = 4;
+    private static final int KING = 5;
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * @param pieces
+     * @param side
+     * @return máscara com as casas ocupadas pelas peças de uma cor
+     */
+    public static long occupancy(long[] pieces, int side) {
+        int base = side * 6;
+        return pieces[base] | pieces[base + 1] | pieces[base + 2] | pieces[base + 3] | pieces[base + 4] | pieces[base + 5];
+    }
+
+    /**
+     * Peças de uma cor que atacam uma casa, olhando a partir da própria casa
+     * @param pieces
+     * @param square
+     * @param side cor das peças atacantes
+     * @param occupancy ocupação usada para bloquear os raios das peças deslizantes
+     * @return
+     */
+    public static long attackers(long[] pieces, int square, int side, long occupancy) {
+        int base = side * 6;
+        return (Attacks.pawn(1 - side, square) & pieces[base + PAWN])
+                | (Attacks.knight(square) & pieces[base + KNIGHT])
+                | (Attacks.king(square) & pieces[base + KING])
+                | (Attacks.bishop(square, occupancy) & (pieces[base + BISHOP] | pieces[base + QUEEN]))
+                | (Attacks.rook(square, occupancy) & (pieces[base + ROOK] | pieces[base + QUEEN]));
+    }
+
+    /**
+     * @param pieces
+     * @param side
+     * @return as peças do oponente que dão cheque no rei da cor informada
+     */
+    public static long checkers(long[] pieces, int side) {
+        int king = Long.numberOfTrailingZeros(pieces[side * 6 + KING]);
+        return attackers(pieces, king, 1 - side, occupancy(pieces, 0) | occupancy(pieces, 1));
+    }
+
+    /**
+     * Preenche a lista com todos os movimentos legais da cor informada
+     * @param pieces
+     * @param side cor que joga (Color.ordinal())
+     * @param enPassantSquare casa de destino da captura en passant, ou -1
+     * @param castlingRights combinação das constantes de roque
+     * @param moves
+     * @return a quantidade de movimentos legais
+     */
+    public static int generate(long[] pieces, int side, int enPassantSquare, int castlingRights, MoveList moves) {
+        moves.clear();
+        int them = 1 - side;
+        int us = side * 6;
+        long own = occupancy(pieces, side);
+        long opponent = occupancy(pieces, them);
+        long occupied = own | opponent;
+        long kingBit = pieces[us + KING];
+        int king = Long.numberOfTrailingZeros(kingBit);
+        long checkers = attackers(pieces, king, them, occupied);
+
+        //O rei não pode ir para uma casa atacada. Ele é retirado da ocupação para não bloquear o raio que o ataca.
+        long targets = Attacks.king(king) & ~own;
+        long withoutKing = occupied ^ kingBit;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (attackers(pieces, to, them, withoutKing) == 0) {
+                add(moves, king, to, captureFlag(opponent, to));
+            }
+        }
+
+        //Em cheque duplo só o rei pode se mover
+        if (Long.bitCount(checkers) > 1) {
+            return moves.size();
+        }
+
+        //Em cheque simples as outras peças só podem capturar a peça que dá cheque ou se colocar entre ela e o rei
+        long checkMask = (checkers == 0) ? -1L : checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+
+        long pinned = pinnedPieces(pieces, side, king, own, opponent);
+
+        long knights = pieces[us + KNIGHT] & ~pinned;
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            addAll(moves, from, Attacks.knight(from) & ~own & checkMask, opponent);
+        }
+
+        long diagonals = pieces[us + BISHOP] | pieces[us + QUEEN];
+        while (diagonals != 0) {
+            int from = Long.numberOfTrailingZeros(diagonals);
+            diagonals &= diagonals - 1;
+            long allowed = allowedTargets(from, king, pinned, checkMask);
+            addAll(moves, from, Attacks.bishop(from, occupied) & ~own & allowed, opponent);
+        }
+
+        long lines = pieces[us + ROOK] | pieces[us + QUEEN];
+        while (lines != 0) {
+            int from = Long.numberOfTrailingZeros(lines);
+            lines &= lines - 1;
+            long allowed = allowedTargets(from, king, pinned, checkMask);
+            addAll(moves, from, Attacks.rook(from, occupied) & ~own & allowed, opponent);
+        }
+
+        generatePawnMoves(pieces, side, king, occupied, opponent, pinned, checkMask, enPassantSquare, moves);
+
+        if (checkers == 0) {
+            generateCastling(pieces, side, occupied, castlingRights, moves);
+        }
+        return moves.size();
+    }
+
+    /**
+     * Peças da cor informada que estão entre o rei e uma torre, bispo ou dama do oponente
+     */
+    private static long pinnedPieces(long[] pieces, int side, int king, long own, long opponent) {
+        int them = (1 - side) * 6;
+        long snipers = (Attacks.rook(king, opponent) & (pieces[them + ROOK] | pieces[them + QUEEN]))
+                | (Attacks.bishop(king, opponent) & (pieces[them + BISHOP] | pieces[them + QUEEN]));
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Attacks.between(king, sniper) & (own | opponent);
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Uma peça cravada só pode se mover ao longo da linha que passa pelo rei e por ela
+     */
+    private static long allowedTargets(int from, int king, long pinned, long checkMask) {
+        if ((pinned & 1L << from) != 0) {
+            return checkMask & Attacks.line(king, from);
+        }
+        return checkMask;
+    }
+
+    private static void generatePawnMoves(long[] pieces, int side, int king, long occupied, long opponent, long pinned,
+                                          long checkMask, int enPassantSquare, MoveList moves) {
+        int forward = (side == WHITE) ? -8 : 8;
+        int startRow = (side == WHITE) ? 6 : 1;
+        long pawns = pieces[side * 6 + PAWN];
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            long allowed = allowedTargets(from, king, pinned, checkMask);
+
+            int one = from + forward;
+            if (one >= 0 && one < 64 && (occupied & 1L << one) == 0) {
+                if ((allowed & 1L << one) != 0) {
+                    addPawnMove(moves, from, one, 0);
+                }
+                int two = one + forward;
+                if (from >> 3 == startRow && (occupied & 1L << two) == 0 && (allowed & 1L << two) != 0) {
+                    add(moves, from, two, Move.DOUBLE_PUSH);
+                }
+            }
+
+            long captures = Attacks.pawn(side, from) & opponent & allowed;
+            while (captures != 0) {
+                int to = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                addPawnMove(moves, from, to, Move.CAPTURE);
+            }
+
+            //#specialmove en passant
+            if (enPassantSquare >= 0 && (Attacks.pawn(side, from) & 1L << enPassantSquare) != 0
+                    && isEnPassantLegal(pieces, side, king, occupied, from, enPassantSquare, enPassantSquare - forward)) {
+                add(moves, from, enPassantSquare, Move.CAPTURE | Move.EN_PASSANT);
+            }
+        }
+    }
+
+    /**
+     * O en passant retira duas peças da mesma linha, então a cravada não é detectada pelas máscaras comuns.
+     * O teste refaz os ataques ao rei com a ocupação resultante da captura.
+     */
+    private static boolean isEnPassantLegal(long[] pieces, int side, int king, long occupied, int from, int to, int captured) {
+        int them = (1 - side) * 6;
+        long after = (occupied ^ 1L << from ^ 1L << captured) | 1L << to;
+        long pawns = pieces[them + PAWN] & ~(1L << captured);
+        return ((Attacks.pawn(side, king) & pawns)
+                | (Attacks.knight(king) & pieces[them + KNIGHT])
+                | (Attacks.bishop(king, after) & (pieces[them + BISHOP] | pieces[them + QUEEN]))
+                | (Attacks.rook(king, after) & (pieces[them + ROOK] | pieces[them + QUEEN]))) == 0;
+    }
+
+    private static void generateCastling(long[] pieces, int side, long occupied, int castlingRights, MoveList moves) {
+        int king = (side == WHITE) ? 60 : 4;
+        int kingside = (side == WHITE) ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenside = (side == WHITE) ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+        long rooks = pieces[side * 6 + ROOK];
+        if ((pieces[side * 6 + KING] & 1L << king) == 0) {
+            return;
+        }
+        int them = 1 - side;
+
+        //#specialmove castling kingside rook
+        if ((castlingRights & kingside) != 0 && (rooks & 1L << (king + 3)) != 0
+                && (occupied & (3L << (king + 1))) == 0
+                && attackers(pieces, king + 1, them, occupied) == 0
+                && attackers(pieces, king + 2, them, occupied) == 0) {
+            add(moves, king, king + 2, Move.CASTLING);
+        }
+
+        //#specialmove castling queenside rook
+        if ((castlingRights & queenside) != 0 && (rooks & 1L << (king - 4)) != 0
+                && (occupied & (7L << (king - 3))) == 0
+                && attackers(pieces, king - 1, them, occupied) == 0
+                && attackers(pieces, king - 2, them, occupied) == 0) {
+            add(moves, king, king - 2, Move.CASTLING);
+        }
+    }
+
+    private static int captureFlag(long opponent, int to) {
+        return (opponent & 1L << to) != 0 ? Move.CAPTURE : 0;
+    }
+
+    private static void add(MoveList moves, int from, int to, int flags) {
+        moves.add(Move.of(from, to, null, flags));
+    }
+
+    private static void addAll(MoveList moves, int from, long targets, long opponent) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            add(moves, from, to, captureFlag(opponent, to));
+        }
+    }
+
+    /**
+     * Um peão que chega na última fileira gera um movimento para cada peça de promoção
+     */
+    private static void addPawnMove(MoveList moves, int from, int to, int flags) {
+        if (to < 8 || to >= 56) {
+            moves.add(Move.of(from, to, PieceType.QUEEN, flags));
+            moves.add(Move.of(from, to, PieceType.ROOK, flags));
+            moves.add(Move.of(from, to, PieceType.BISHOP, flags));
+            moves.add(Move.of(from, to, PieceType.KNIGHT, flags));
+        } else {
+            add(moves, from, to, flags);
+        }
+    }
+}
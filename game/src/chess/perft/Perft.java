@@ -0,0 +1,145 @@
+package chess.perft;
+
+import chess.BoardType;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.Move;
+import chess.MoveList;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft (performance test): conta as folhas da árvore de movimentos legais até uma profundidade.
+ * Comparando o resultado com as contagens de referência é possível verificar o gerador de movimentos, e o tempo
+ * gasto mede o custo de gerar, fazer e desfazer movimentos na ChessMatch.
+ */
+public final class Perft {
+
+    private Perft() {
+    }
+
+    /**
+     * Conta as folhas a partir da posição atual da partida. A partida volta ao estado original no final.
+     * @param match
+     * @param depth
+     * @return
+     */
+    public static long perft(ChessMatch match, int depth) {
+        if (depth <= 0) {
+            return 1L;
+        }
+        MoveList[] lists = new MoveList[depth + 1];
+        for (int i = 1; i <= depth; i++) {
+            lists[i] = new MoveList();
+        }
+        return perft(match, depth, lists);
+    }
+
+    private static long perft(ChessMatch match, int depth, MoveList[] lists) {
+        MoveList moves = lists[depth];
+        int count = match.legalMoves(moves);
+        //Na última profundidade basta contar os movimentos legais, sem fazê-los
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0L;
+        for (int i = 0; i < count; i++) {
+            match.makeMove(moves.get(i));
+            nodes += perft(match, depth - 1, lists);
+            match.undoMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Perft separado por movimento da raiz (modo divide), útil para encontrar o movimento com contagem errada
+     * @param match
+     * @param depth
+     * @return mapa do movimento em notação de coordenadas para a quantidade de folhas abaixo dele
+     */
+    public static Map<String, Long> divide(ChessMatch match, int depth) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        MoveList moves = new MoveList();
+        int count = match.legalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves.get(i);
+            match.makeMove(move);
+            result.put(Move.toString(move), perft(match, depth - 1));
+            match.undoMove();
+        }
+        return result;
+    }
+
+    /**
+     * Perft paralelo: cada movimento da raiz é contado em uma tarefa do fork-join, com a sua própria partida
+     * montada a partir da FEN
+     * @param fen
+     * @param boardType
+     * @param depth
+     * @param pool
+     * @return
+     */
+    public static long parallel(String fen, BoardType boardType, int depth, ForkJoinPool pool) {
+        long nodes = 0L;
+        for (long n : parallelDivide(fen, boardType, depth, pool).values()) {
+            nodes += n;
+        }
+        return nodes;
+    }
+
+    /**
+     * Modo divide do perft paralelo
+     * @param fen
+     * @param boardType
+     * @param depth
+     * @param pool
+     * @return
+     */
+    public static Map<String, Long> parallelDivide(String fen, BoardType boardType, int depth, ForkJoinPool pool) {
+        MoveList moves = new MoveList();
+        int count = Fen.read(fen, boardType).legalMoves(moves);
+        List<RootTask> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            tasks.add(new RootTask(fen, boardType, moves.get(i), depth));
+        }
+        return pool.invoke(new RecursiveTask<Map<String, Long>>() {
+            @Override
+            protected Map<String, Long> compute() {
+                invokeAll(tasks);
+                Map<String, Long> result = new LinkedHashMap<>();
+                for (RootTask task : tasks) {
+                    result.put(Move.toString(task.move), task.join());
+                }
+                return result;
+            }
+        });
+    }
+
+    private static class RootTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final String fen;
+        private final BoardType boardType;
+        private final int move;
+        private final int depth;
+
+        RootTask(String fen, BoardType boardType, int move, int depth) {
+            this.fen = fen;
+            this.boardType = boardType;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            ChessMatch match = Fen.read(fen, boardType);
+            match.makeMove(move);
+            return perft(match, depth - 1);
+        }
+    }
+}
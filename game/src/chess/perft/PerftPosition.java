@@ -0,0 +1,50 @@
+package chess.perft;
+
+import chess.Fen;
+
+/**
+ * Posições de referência para o perft, com a quantidade de nós esperada em cada profundidade (índice 0 =
+ * profundidade 1). São as posições usadas pela comunidade de programação de xadrez para validar geradores de
+ * movimentos: cobrem roque, en passant, promoções, cravadas e cheques descobertos.
+ */
+public enum PerftPosition {
+    INITIAL(Fen.START,
+            20L, 400L, 8902L, 197281L, 4865609L, 119060324L),
+    KIWIPETE("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            48L, 2039L, 97862L, 4085603L, 193690690L),
+    ENDGAME("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            14L, 191L, 2812L, 43238L, 674624L, 11030083L),
+    PROMOTIONS("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            6L, 264L, 9467L, 422333L, 15833292L),
+    DISCOVERED_CHECKS("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            44L, 1486L, 62379L, 2103487L, 89941194L),
+    MIDDLEGAME("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            46L, 2079L, 89890L, 3894594L, 164075551L);
+
+    private final String fen;
+    private final long[] expected;
+
+    PerftPosition(String fen, long... expected) {
+        this.fen = fen;
+        this.expected = expected;
+    }
+
+    public String getFen() {
+        return fen;
+    }
+
+    /**
+     * @return a maior profundidade com contagem de referência
+     */
+    public int getMaxDepth() {
+        return expected.length;
+    }
+
+    /**
+     * @param depth
+     * @return a quantidade de nós esperada na profundidade informada
+     */
+    public long getExpected(int depth) {
+        return expected[depth - 1];
+    }
+}
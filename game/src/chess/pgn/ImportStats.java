@@ -0,0 +1,62 @@
+package chess.pgn;
+
+/**
+ * Resultado de uma importação de PGN
+ */
+public final class ImportStats {
+    private final long games;
+    private final long imported;
+    private final long quarantined;
+    private final long plies;
+    private final long nanos;
+
+    public ImportStats(long games, long imported, long quarantined, long plies, long nanos) {
+        this.games = games;
+        this.imported = imported;
+        this.quarantined = quarantined;
+        this.plies = plies;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @return quantidade de partidas lidas do arquivo
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * @return quantidade de partidas repetidas sem erro
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    /**
+     * @return quantidade de partidas com FEN inválida ou movimentos ilegais, postas em quarentena
+     */
+    public long getQuarantined() {
+        return quarantined;
+    }
+
+    /**
+     * @return soma dos meios-movimentos das partidas importadas
+     */
+    public long getPlies() {
+        return plies;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getGamesPerSecond() {
+        return (nanos == 0L) ? 0L : games * 1_000_000_000L / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("games %d imported %d quarantined %d plies %d time %d ms games/s %d", games, imported,
+                quarantined, plies, nanos / 1_000_000L, getGamesPerSecond());
+    }
+}
@@ -0,0 +1,197 @@
+package chess.pgn;
+
+import chess.BoardType;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.GameResult;
+import chess.MoveList;
+import chess.San;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Partida lida de um arquivo PGN: as tags e o texto dos movimentos, ainda sem interpretar. Os movimentos só são
+ * interpretados em replay, que pode rodar em outra thread.
+ */
+public final class PgnGame {
+    private final long number;
+    private final Map<String, String> tags;
+    private final String movetext;
+
+    PgnGame(long number, Map<String, String> tags, String movetext) {
+        this.number = number;
+        this.tags = tags;
+        this.movetext = movetext;
+    }
+
+    /**
+     * @return a posição da partida no arquivo, começando em 1
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    /**
+     * @param name
+     * @return o valor da tag, ou null se a partida não tiver a tag
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public Map<String, String> getTags() {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    public String getMovetext() {
+        return movetext;
+    }
+
+    /**
+     * @return o resultado da tag Result, ou UNKNOWN se não houver a tag ou o valor for inválido
+     */
+    public GameResult getResult() {
+        GameResult result = GameResult.fromToken(String.valueOf(tags.get("Result")));
+        return (result == null) ? GameResult.UNKNOWN : result;
+    }
+
+    /**
+     * @return a FEN da tag FEN, ou null se a partida começou na posição inicial padrão
+     */
+    public String getStartFen() {
+        return tags.get("FEN");
+    }
+
+    /**
+     * Monta a partida e faz todos os movimentos do texto. Comentários, variantes, NAGs, números de movimento e o
+     * resultado no final são ignorados. Cada movimento já é conferido com os movimentos legais ao ser interpretado,
+     * então eles são feitos com makeMove, e só o último passa por performChessMove, que atualiza a situação da
+     * partida (cheque, cheque mate, afogamento e empates).
+     * @param boardType
+     * @return a partida na posição final
+     * @throws ChessException se a FEN for inválida ou algum movimento não for legal
+     */
+    public ChessMatch replay(BoardType boardType) {
+        String fen = getStartFen();
+        ChessMatch match = (fen == null) ? new ChessMatch(boardType) : Fen.read(fen, boardType);
+        MoveList moves = new MoveList();
+        String text = movetext;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || c == '.' || c == ')') {
+                i++;
+            } else if (c == '{') {
+                i = skip(text, i, '}');
+            } else if (c == ';') {
+                i = skip(text, i, '\n');
+            } else if (c == '(') {
+                i = skipVariation(text, i);
+            } else if (c == '$') {
+                i = tokenEnd(text, i + 1);
+            } else if (c == '*') {
+                break;
+            } else {
+                int end = tokenEnd(text, i);
+                int start = i;
+                //Número do movimento ("12." ou "12..."), possivelmente colado no lance ("12.e4")
+                int digits = start;
+                while (digits < end && Character.isDigit(text.charAt(digits))) {
+                    digits++;
+                }
+                if (digits > start && digits < end && text.charAt(digits) == '.') {
+                    start = digits;
+                    while (start < end && text.charAt(start) == '.') {
+                        start++;
+                    }
+                } else if (digits == end) {
+                    start = end;
+                }
+                i = end;
+                if (start == end) {
+                    continue;
+                }
+                if (isResult(text, start, end)) {
+                    break;
+                }
+                if (isEnPassantMark(text, start, end)) {
+                    continue;
+                }
+                try {
+                    match.makeMove(San.parse(text, start, end, match, moves));
+                } catch (ChessException e) {
+                    throw new ChessException("Game " + number + ", ply " + (match.getPly() + 1) + ": "
+                            + e.getMessage());
+                }
+            }
+        }
+        if (match.getPly() > 0) {
+            int[] history = match.getMoveHistory();
+            match.undoMove();
+            match.performChessMove(history[history.length - 1]);
+        }
+        return match;
+    }
+
+    /**
+     * @return a partida no formato PGN, como foi lida (as tags na ordem original seguidas do texto dos movimentos)
+     */
+    public String toPgn() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            sb.append('[').append(tag.getKey()).append(" \"")
+                    .append(tag.getValue().replace("\\", "\\\\").replace("\"", "\\\"")).append("\"]\n");
+        }
+        sb.append('\n').append(movetext);
+        if (!movetext.endsWith("\n")) {
+            sb.append('\n');
+        }
+        return sb.append('\n').toString();
+    }
+
+    private static int skip(String text, int i, char close) {
+        int end = text.indexOf(close, i + 1);
+        return (end < 0) ? text.length() : end + 1;
+    }
+
+    private static int skipVariation(String text, int i) {
+        int depth = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                i = skip(text, i, '}');
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int tokenEnd(String text, int i) {
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || c == '{' || c == '(' || c == ')' || c == ';') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isResult(String text, int start, int end) {
+        return text.startsWith("1-0", start) || text.startsWith("0-1", start) || text.startsWith("1/2", start)
+                || (end - start == 1 && text.charAt(start) == '*');
+    }
+
+    private static boolean isEnPassantMark(String text, int start, int end) {
+        return end - start == 4 && text.startsWith("e.p.", start);
+    }
+}
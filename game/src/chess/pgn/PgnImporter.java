@@ -0,0 +1,132 @@
+package chess.pgn;
+
+import chess.BoardType;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.record.GameRecordWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Importação de arquivos PGN grandes: a thread que chama lê as partidas em sequência e as entrega em lotes a um
+ * ForkJoinPool, que repete os movimentos em paralelo. As partidas válidas são gravadas em um arquivo de partidas
+ * (fora da ordem original, na ordem em que os lotes terminam) e as que têm FEN inválida ou movimentos ilegais vão
+ * para a quarentena, em PGN com o erro na tag ImportError, sem interromper a importação.
+ * A quantidade de lotes em andamento é limitada, então a memória usada não depende do tamanho do arquivo.
+ */
+public class PgnImporter {
+    private static final int BATCH_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final BoardType boardType;
+
+    /**
+     * @param pool pool que repete as partidas
+     * @param boardType representação do tabuleiro usada para repetir as partidas
+     */
+    public PgnImporter(ForkJoinPool pool, BoardType boardType) {
+        this.pool = pool;
+        this.boardType = boardType;
+    }
+
+    /**
+     * Importa todas as partidas do leitor
+     * @param reader
+     * @param output arquivo de partidas que recebe as partidas válidas, ou null para só validar
+     * @param quarantine destino das partidas inválidas, em PGN, ou null para descartá-las
+     * @return as estatísticas da importação
+     * @throws IOException se a leitura ou alguma gravação falhar
+     */
+    public ImportStats importGames(PgnReader reader, GameRecordWriter output, Writer quarantine) throws IOException {
+        long start = System.nanoTime();
+        int maxBatches = 2 * pool.getParallelism();
+        Semaphore inFlight = new Semaphore(maxBatches);
+        LongAdder imported = new LongAdder();
+        LongAdder quarantined = new LongAdder();
+        LongAdder plies = new LongAdder();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        try {
+            List<PgnGame> batch = new ArrayList<>(BATCH_SIZE);
+            PgnGame game;
+            while (failure.get() == null && (game = reader.next()) != null) {
+                batch.add(game);
+                if (batch.size() == BATCH_SIZE) {
+                    submit(batch, inFlight, output, quarantine, imported, quarantined, plies, failure);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(batch, inFlight, output, quarantine, imported, quarantined, plies, failure);
+            }
+            //Espera todos os lotes terminarem
+            inFlight.acquire(maxBatches);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while importing", e);
+        }
+
+        Throwable error = failure.get();
+        if (error instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) error).getCause();
+        }
+        if (error != null) {
+            throw new IllegalStateException("PGN import failed", error);
+        }
+        return new ImportStats(reader.getGames(), imported.sum(), quarantined.sum(), plies.sum(),
+                System.nanoTime() - start);
+    }
+
+    private void submit(List<PgnGame> batch, Semaphore inFlight, GameRecordWriter output, Writer quarantine,
+                        LongAdder imported, LongAdder quarantined, LongAdder plies, AtomicReference<Throwable> failure)
+            throws InterruptedException {
+        inFlight.acquire();
+        pool.execute(() -> {
+            try {
+                for (PgnGame game : batch) {
+                    ChessMatch match;
+                    try {
+                        match = game.replay(boardType);
+                    } catch (ChessException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                        //FEN ou movimentos inválidos: só esta partida é afetada
+                        quarantined.increment();
+                        quarantine(quarantine, game, String.valueOf(e.getMessage()));
+                        continue;
+                    }
+                    imported.increment();
+                    plies.add(match.getPly());
+                    if (output != null) {
+                        synchronized (output) {
+                            output.write(game.getStartFen(), match.getMoveHistory(), game.getResult());
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                failure.compareAndSet(null, new UncheckedIOException(e));
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private static void quarantine(Writer quarantine, PgnGame game, String error) throws IOException {
+        if (quarantine == null) {
+            return;
+        }
+        String tag = "[ImportError \"" + error.replace("\\", "\\\\").replace("\"", "\\\"") + "\"]\n";
+        String text = tag + game.toPgn();
+        synchronized (quarantine) {
+            quarantine.write(text);
+        }
+    }
+}
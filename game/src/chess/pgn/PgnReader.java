@@ -0,0 +1,166 @@
+package chess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Leitura sequencial de um arquivo PGN, uma partida de cada vez, sem carregar o arquivo inteiro. Os caracteres são
+ * lidos em blocos para um buffer próprio e as linhas são montadas em um StringBuilder reutilizado; por partida só são
+ * alocadas as tags e o texto dos movimentos.
+ * Uma partida termina quando aparece uma linha de tag depois do texto dos movimentos (fora de um comentário entre
+ * chaves) ou no fim do arquivo. Linhas que começam com % são ignoradas.
+ */
+public class PgnReader implements Closeable {
+    private final Reader in;
+    private final char[] buffer = new char[1 << 16];
+    private int position;
+    private int limit;
+    private final StringBuilder line = new StringBuilder();
+    private final StringBuilder movetext = new StringBuilder();
+    private boolean pendingTag;
+    private long games;
+
+    public PgnReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Lê a próxima partida
+     * @return a partida, ou null no fim do arquivo
+     * @throws IOException
+     */
+    public PgnGame next() throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        movetext.setLength(0);
+        boolean hasMoves = false;
+        boolean inComment = false;
+        if (pendingTag) {
+            pendingTag = false;
+            parseTag(tags);
+        }
+        while (readLine()) {
+            int start = firstNonSpace();
+            if (!inComment && start < line.length() && line.charAt(start) == '[') {
+                if (hasMoves) {
+                    pendingTag = true;
+                    break;
+                }
+                parseTag(tags);
+                continue;
+            }
+            if (!inComment && start < line.length() && line.charAt(start) == '%') {
+                continue;
+            }
+            inComment = scanComments(inComment);
+            if (start < line.length()) {
+                hasMoves = true;
+                movetext.append(line).append('\n');
+            }
+        }
+        if (tags.isEmpty() && !hasMoves) {
+            return null;
+        }
+        return new PgnGame(++games, tags, movetext.toString());
+    }
+
+    /**
+     * @return quantidade de partidas lidas até agora
+     */
+    public long getGames() {
+        return games;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Lê a próxima linha para o StringBuilder line, sem o fim de linha
+     * @return false no fim do arquivo
+     */
+    private boolean readLine() throws IOException {
+        line.setLength(0);
+        while (true) {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return line.length() > 0;
+                }
+            }
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            int end = position;
+            if (end > start && buffer[end - 1] == '\r') {
+                end--;
+            }
+            line.append(buffer, start, end - start);
+            if (position < limit) {
+                position++;
+                return true;
+            }
+        }
+    }
+
+    private int firstNonSpace() {
+        int i = 0;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Acompanha os comentários entre chaves, que podem ocupar várias linhas
+     * @param inComment se a linha começa dentro de um comentário
+     * @return se a linha termina dentro de um comentário
+     */
+    private boolean scanComments(boolean inComment) {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inComment) {
+                inComment = c != '}';
+            } else if (c == '{') {
+                inComment = true;
+            } else if (c == ';') {
+                break;
+            }
+        }
+        return inComment;
+    }
+
+    /**
+     * Lê uma linha de tag no formato [Nome "valor"]. Linhas malformadas são ignoradas.
+     */
+    private void parseTag(Map<String, String> tags) {
+        int i = line.indexOf("[") + 1;
+        int nameStart = i;
+        while (i < line.length() && !Character.isWhitespace(line.charAt(i)) && line.charAt(i) != '"') {
+            i++;
+        }
+        String name = line.substring(nameStart, i);
+        int quote = line.indexOf("\"", i);
+        if (name.isEmpty() || quote < 0) {
+            return;
+        }
+        StringBuilder value = new StringBuilder();
+        for (i = quote + 1; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < line.length()) {
+                value.append(line.charAt(++i));
+            } else if (c == '"') {
+                break;
+            } else {
+                value.append(c);
+            }
+        }
+        tags.put(name, value.toString());
+    }
+}
@@ -0,0 +1,106 @@
+package chess.pgn;
+
+import chess.ChessMatch;
+import chess.GameResult;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Escrita de partidas em PGN: as sete tags obrigatórias (com "?" nas que não forem informadas), as demais tags e os
+ * movimentos em SAN, com números de movimento e linhas de no máximo 80 caracteres.
+ */
+public class PgnWriter {
+    private static final String[] ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+    private static final int LINE_LENGTH = 80;
+
+    private final Writer out;
+
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Escreve a partida, sem fazer flush
+     * @param match
+     * @param tags ver toPgn
+     * @throws IOException
+     */
+    public void write(ChessMatch match, Map<String, String> tags) throws IOException {
+        out.write(toPgn(match, tags));
+    }
+
+    /**
+     * @param match
+     * @return a partida em PGN, sem tags além das obrigatórias
+     */
+    public static String toPgn(ChessMatch match) {
+        return toPgn(match, Collections.emptyMap());
+    }
+
+    /**
+     * Monta o PGN dos movimentos feitos na partida até a posição atual
+     * @param match
+     * @param tags tags da partida. Sem a tag Result o resultado vem da situação da partida (ver GameResult.of). Se a
+     * partida não começou na posição inicial, as tags devem ter a FEN inicial (FEN e SetUp "1").
+     * @return
+     */
+    public static String toPgn(ChessMatch match, Map<String, String> tags) {
+        Map<String, String> all = new LinkedHashMap<>();
+        for (String name : ROSTER) {
+            all.put(name, tags.getOrDefault(name, "?"));
+        }
+        if (!tags.containsKey("Date")) {
+            all.put("Date", "????.??.??");
+        }
+        if (!tags.containsKey("Result")) {
+            all.put("Result", GameResult.of(match).getToken());
+        }
+        all.putAll(tags);
+
+        StringBuilder sb = new StringBuilder(512);
+        for (Map.Entry<String, String> tag : all.entrySet()) {
+            sb.append('[').append(tag.getKey()).append(" \"")
+                    .append(tag.getValue().replace("\\", "\\\\").replace("\"", "\\\"")).append("\"]\n");
+        }
+        sb.append('\n');
+
+        //O turno da partida conta os meios-movimentos (ímpar na vez das brancas); no cheque mate a vez não passou
+        String[] moves = match.getSanHistory();
+        int turn = match.getTurn() - moves.length + (match.getCheckMate() ? 1 : 0);
+        int lineStart = sb.length();
+        for (int i = 0; i < moves.length; i++, turn++) {
+            String token;
+            if (turn % 2 == 1) {
+                token = (turn + 1) / 2 + ". " + moves[i];
+            } else if (i == 0) {
+                token = turn / 2 + "... " + moves[i];
+            } else {
+                token = moves[i];
+            }
+            lineStart = append(sb, token, lineStart);
+        }
+        append(sb, all.get("Result"), lineStart);
+        return sb.append("\n\n").toString();
+    }
+
+    /**
+     * Acrescenta uma palavra ao texto dos movimentos, quebrando a linha quando ela passaria do limite
+     * @return o início da linha atual
+     */
+    private static int append(StringBuilder sb, String token, int lineStart) {
+        if (sb.length() > lineStart) {
+            if (sb.length() - lineStart + 1 + token.length() > LINE_LENGTH) {
+                sb.append('\n');
+                lineStart = sb.length();
+            } else {
+                sb.append(' ');
+            }
+        }
+        sb.append(token);
+        return lineStart;
+    }
+}
@@ -0,0 +1,183 @@
+package chess.pgn;
+
+import chess.ChessMatch;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Grava partidas terminadas em arquivos PGN rotativos (prefixo-000001.pgn, prefixo-000002.pgn, ...) sem bloquear
+ * quem as envia: o PGN é montado na thread da partida, que é a única que pode acessar a ChessMatch, e entra em uma
+ * fila limitada; uma thread própria esvazia a fila em lotes, escrevendo em um buffer que só é enviado ao disco quando
+ * a fila fica vazia. Um arquivo novo é começado quando o atual passa do tamanho máximo; os arquivos que já existirem
+ * na pasta não são alterados, a numeração continua depois deles.
+ * Se a fila estiver cheia (o disco não acompanha as partidas) a partida é descartada e contada em getDropped, em vez
+ * de segurar a thread da partida.
+ */
+public class RollingPgnWriter implements Closeable {
+    private static final int BATCH = 256;
+
+    private final Path directory;
+    private final String prefix;
+    private final long maxFileBytes;
+    private final BlockingQueue<String> queue;
+    private final Thread thread;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private Writer out;
+    private long fileBytes;
+    private int fileIndex;
+
+    /**
+     * @param directory pasta dos arquivos, criada se não existir
+     * @param prefix início do nome dos arquivos
+     * @param maxFileBytes tamanho a partir do qual um novo arquivo é começado
+     * @param queueCapacity quantidade máxima de partidas esperando para serem gravadas
+     * @throws IOException
+     */
+    public RollingPgnWriter(Path directory, String prefix, long maxFileBytes, int queueCapacity) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.prefix = prefix;
+        this.maxFileBytes = maxFileBytes;
+        //Continua a numeração dos arquivos que já estão na pasta
+        while (Files.exists(file(fileIndex + 1))) {
+            fileIndex++;
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.thread = new Thread(this::run, "pgn-writer-" + prefix);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Coloca a partida na fila de gravação. Deve ser chamado pela thread que usa a partida.
+     * @param match
+     * @param tags ver PgnWriter.toPgn
+     * @return false se a partida foi descartada porque a fila estava cheia ou o escritor foi fechado
+     */
+    public boolean append(ChessMatch match, Map<String, String> tags) {
+        return append(PgnWriter.toPgn(match, tags));
+    }
+
+    /**
+     * Coloca uma partida já em PGN na fila de gravação
+     * @param pgn
+     * @return false se a partida foi descartada porque a fila estava cheia ou o escritor foi fechado
+     */
+    public boolean append(String pgn) {
+        if (closed || !queue.offer(pgn)) {
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return quantidade de partidas gravadas
+     */
+    public long getWritten() {
+        return written.sum();
+    }
+
+    /**
+     * @return quantidade de partidas descartadas
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Grava as partidas que ainda estão na fila e fecha o arquivo atual
+     * @throws IOException se alguma gravação tiver falhado
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the PGN writer", e);
+        }
+        //Partidas colocadas na fila enquanto o escritor fechava
+        dropped.add(queue.size());
+        queue.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void run() {
+        List<String> batch = new ArrayList<>(BATCH);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                String first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH - 1);
+                for (String pgn : batch) {
+                    write(pgn);
+                }
+                written.add(batch.size());
+                batch.clear();
+                if (queue.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            closed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeFile();
+        }
+    }
+
+    private void write(String pgn) throws IOException {
+        if (out == null || fileBytes >= maxFileBytes) {
+            closeFile();
+            out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file(++fileIndex),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), StandardCharsets.UTF_8), 1 << 16);
+            fileBytes = 0L;
+        }
+        out.write(pgn);
+        fileBytes += pgn.length();
+    }
+
+    private Path file(int index) {
+        return directory.resolve(String.format("%s-%06d.pgn", prefix, index));
+    }
+
+    private void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            out = null;
+        }
+    }
+}
@@ -1,10 +1,11 @@
 package chess.pieces;
 
 import boardgame.Board;
-import boardgame.Position;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
+import chess.movegen.Attacks;
 
 public class Pawn extends ChessPiece {
     private ChessMatch chessMatch;
@@ -15,76 +16,46 @@ public class Pawn extends ChessPiece {
     }
 
     @Override
-    public boolean[][] possibleMovies() {
-        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0,0);
+    public long possibleMovesMask() {
+        int square = getSquare();
+        long occupied = occupiedSquares();
+        long opponent = occupied & ~ownSquares();
+        long mask = Attacks.pawn(getColor(), square) & opponent;
 
-        if (getColor() == Color.WHITE) {
-            p.setValues(position.getRow() - 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow() - 2, position.getColumn());
-            Position p2 = new Position(position.getRow() - 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) &&
-                    getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2) &&
-                    getMoveCount() == 0) {
-                mat[p.getRow()][p.getColumn()] = true;
+        //#specialmove en passant
+        int enPassantRow = (getColor() == Color.WHITE) ? 3 : 4;
+        ChessPiece vulnerable = chessMatch.getEnPassantVulnerable();
+        if (vulnerable != null && vulnerable.getColor() != getColor() && position.getRow() == enPassantRow) {
+            int direction = (getColor() == Color.WHITE) ? -8 : 8;
+            if (position.getColumn() > 0 && getBoard().piece(enPassantRow, position.getColumn() - 1) == vulnerable) {
+                mask |= 1L << (square - 1 + direction);
             }
-            p.setValues(position.getRow() - 1, position.getColumn() - 1);
-            if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow() - 1, position.getColumn() + 1);
-            if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
+            if (position.getColumn() < 7 && getBoard().piece(enPassantRow, position.getColumn() + 1) == vulnerable) {
+                mask |= 1L << (square + 1 + direction);
             }
+        }
 
-            //#specialmove en passant white
-            if (position.getRow() == 3) {
-                Position left = new Position(position.getRow(), position.getColumn() - 1);
-                    if (getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVulnerable()){
-                        mat[left.getRow() - 1][left.getColumn()] = true;
-                }
-                Position right = new Position(position.getRow(), position.getColumn() + 1);
-                if (getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == chessMatch.getEnPassantVulnerable()){
-                    mat[right.getRow() - 1][right.getColumn()] = true;
+        if (getColor() == Color.WHITE) {
+            if (square >= 8 && (occupied & 1L << (square - 8)) == 0) {
+                mask |= 1L << (square - 8);
+                if (position.getRow() == 6 && (occupied & 1L << (square - 16)) == 0) {
+                    mask |= 1L << (square - 16);
                 }
             }
         } else {
-            p.setValues(position.getRow() + 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow() + 2, position.getColumn());
-            Position p2 = new Position(position.getRow() + 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) &&
-                    getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2) &&
-                    getMoveCount() == 0) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow() + 1, position.getColumn() - 1);
-            if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow() + 1, position.getColumn() + 1);
-            if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-
-            //#specialmove en passant black
-            if (position.getRow() == 4) {
-                Position left = new Position(position.getRow(), position.getColumn() - 1);
-                if (getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVulnerable()){
-                    mat[left.getRow() + 1][left.getColumn()] = true;
-                }
-                Position right = new Position(position.getRow(), position.getColumn() + 1);
-                if (getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == chessMatch.getEnPassantVulnerable()){
-                    mat[right.getRow() + 1][right.getColumn()] = true;
+            if (square < 56 && (occupied & 1L << (square + 8)) == 0) {
+                mask |= 1L << (square + 8);
+                if (position.getRow() == 1 && (occupied & 1L << (square + 16)) == 0) {
+                    mask |= 1L << (square + 16);
                 }
             }
         }
-        return mat;
+        return mask;
+    }
+
+    @Override
+    public PieceType getType() {
+        return PieceType.PAWN;
     }
 
     @Override
@@ -0,0 +1,115 @@
+package chess.record;
+
+import chess.BoardType;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.GameResult;
+import chess.Move;
+import chess.MoveList;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Visão de uma partida dentro de um arquivo de partidas mapeado em memória. Os campos são lidos direto do arquivo,
+ * sem copiar os movimentos. Na leitura sequencial do GameRecordReader a mesma instância é reposicionada a cada
+ * partida, então ela não deve ser guardada depois do retorno do consumidor.
+ */
+public final class GameRecord {
+    private ByteBuffer buffer;
+    private int offset;
+    private int index;
+    private GameResult result;
+    private int plies;
+    private int fenLength;
+    private int movesOffset;
+
+    GameRecord() {
+    }
+
+    /**
+     * Posiciona a visão na partida que começa em offset
+     * @return o tamanho da partida em bytes
+     */
+    int set(ByteBuffer buffer, int offset, int index) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.index = index;
+        result = GameResult.fromOrdinal(buffer.get(offset));
+        int flags = buffer.get(offset + 1);
+        plies = buffer.getShort(offset + 2) & 0xFFFF;
+        fenLength = ((flags & GameRecordWriter.FLAG_FEN) != 0) ? buffer.getShort(offset + 4) & 0xFFFF : -1;
+        movesOffset = offset + 4 + ((fenLength < 0) ? 0 : 2 + fenLength);
+        return movesOffset - offset + 2 * plies;
+    }
+
+    /**
+     * @return a posição da partida no arquivo
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public GameResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return quantidade de meios-movimentos
+     */
+    public int getPlies() {
+        return plies;
+    }
+
+    /**
+     * @param ply
+     * @return o movimento na forma compacta de 16 bits (ver Move.toCompact)
+     */
+    public int getCompactMove(int ply) {
+        if (ply < 0 || ply >= plies) {
+            throw new IndexOutOfBoundsException("Ply " + ply + " of a game with " + plies + " plies");
+        }
+        return buffer.getShort(movesOffset + 2 * ply) & 0xFFFF;
+    }
+
+    /**
+     * @return a FEN da posição inicial, ou null se a partida começou na posição inicial padrão
+     */
+    public String getStartFen() {
+        if (fenLength < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[fenLength];
+        for (int i = 0; i < fenLength; i++) {
+            bytes[i] = buffer.get(offset + 6 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Monta a partida e repete todos os movimentos. Cada movimento é conferido com os movimentos legais, então eles
+     * são feitos com makeMove, e só o último passa por performChessMove, que atualiza a situação da partida.
+     * @param boardType
+     * @return a partida na posição final
+     * @throws ChessException se algum movimento não for legal na posição
+     */
+    public ChessMatch replay(BoardType boardType) {
+        String fen = getStartFen();
+        ChessMatch match = (fen == null) ? new ChessMatch(boardType) : Fen.read(fen, boardType);
+        MoveList moves = new MoveList();
+        for (int ply = 0; ply < plies; ply++) {
+            match.legalMoves(moves);
+            int move = Move.fromCompact(getCompactMove(ply), moves);
+            if (move == Move.NONE) {
+                throw new ChessException("Illegal move at ply " + (ply + 1) + " of game " + index);
+            }
+            if (ply < plies - 1) {
+                match.makeMove(move);
+            } else {
+                match.performChessMove(move);
+            }
+        }
+        return match;
+    }
+}
@@ -0,0 +1,150 @@
+package chess.record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Leitura de um arquivo de partidas (ver GameRecordWriter) mapeado em memória. Nada é copiado para o heap: as
+ * partidas são lidas direto das páginas do arquivo, e a leitura sequencial não aloca nada por partida.
+ * Como um MappedByteBuffer tem no máximo 2 GB, o arquivo é mapeado em segmentos de SEGMENT_SIZE bytes que se
+ * sobrepõem em OVERLAP bytes, mais do que o tamanho máximo de uma partida; assim toda partida cabe inteira no
+ * segmento em que começa. Só são feitas leituras absolutas nos buffers, então várias threads podem ler o mesmo
+ * arquivo ao mesmo tempo (cada uma com o seu intervalo de partidas em forEach).
+ */
+public class GameRecordReader implements Closeable {
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final long OVERLAP = 1L << 18;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+    private final int games;
+    private final long indexOffset;
+    private final long totalPlies;
+
+    /**
+     * Abre e mapeia o arquivo
+     * @param path
+     * @throws IOException se o arquivo não for um arquivo de partidas
+     */
+    public GameRecordReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            size = channel.size();
+            if (size < GameRecordWriter.HEADER_SIZE) {
+                throw new IOException("Not a game record file: " + path);
+            }
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(size - start, SEGMENT_SIZE + OVERLAP));
+            }
+            ByteBuffer header = segments[0];
+            if (header.getInt(0) != GameRecordWriter.MAGIC) {
+                throw new IOException("Not a game record file: " + path);
+            }
+            if (header.getShort(4) != GameRecordWriter.VERSION) {
+                throw new IOException("Unsupported game record version " + header.getShort(4) + ": " + path);
+            }
+            long count = header.getLong(8);
+            indexOffset = header.getLong(16);
+            totalPlies = header.getLong(24);
+            if (count < 0 || count > Integer.MAX_VALUE || indexOffset + 8 * count > size) {
+                throw new IOException("Corrupted game record file: " + path);
+            }
+            games = (int) count;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return quantidade de partidas no arquivo
+     */
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * @return soma dos meios-movimentos de todas as partidas
+     */
+    public long getTotalPlies() {
+        return totalPlies;
+    }
+
+    /**
+     * @return tamanho do arquivo em bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Acesso direto a uma partida pelo índice do arquivo
+     * @param index
+     * @return uma nova visão da partida
+     */
+    public GameRecord get(int index) {
+        if (index < 0 || index >= games) {
+            throw new IndexOutOfBoundsException("Game " + index + " of " + games);
+        }
+        long position = indexOffset + 8L * index;
+        long offset = segment(position).getLong(local(position));
+        GameRecord record = new GameRecord();
+        record.set(segment(offset), local(offset), index);
+        return record;
+    }
+
+    /**
+     * Percorre todas as partidas em ordem
+     * @param consumer recebe sempre a mesma instância de GameRecord, reposicionada a cada partida
+     */
+    public void forEach(Consumer<GameRecord> consumer) {
+        forEach(0, games, consumer);
+    }
+
+    /**
+     * Percorre em ordem as partidas de from (inclusive) a to (exclusive). Só a primeira é localizada pelo índice; as
+     * demais são lidas em sequência.
+     * @param from
+     * @param to
+     * @param consumer recebe sempre a mesma instância de GameRecord, reposicionada a cada partida
+     */
+    public void forEach(int from, int to, Consumer<GameRecord> consumer) {
+        if (from < 0 || to > games || from > to) {
+            throw new IndexOutOfBoundsException("Games " + from + " to " + to + " of " + games);
+        }
+        if (from == to) {
+            return;
+        }
+        GameRecord record = new GameRecord();
+        long position = indexOffset + 8L * from;
+        long offset = segment(position).getLong(local(position));
+        for (int i = from; i < to; i++) {
+            offset += record.set(segment(offset), local(offset), i);
+            consumer.accept(record);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        //Os segmentos mapeados só são liberados pelo coletor de lixo; fechar o canal libera o arquivo
+        channel.close();
+    }
+
+    private ByteBuffer segment(long position) {
+        return segments[(int) (position / SEGMENT_SIZE)];
+    }
+
+    private static int local(long position) {
+        return (int) (position % SEGMENT_SIZE);
+    }
+}
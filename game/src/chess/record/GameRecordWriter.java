@@ -0,0 +1,157 @@
+package chess.record;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.GameResult;
+import chess.Move;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Grava partidas no formato binário de arquivo de partidas:
+ * cabeçalho de HEADER_SIZE bytes: "CHGR", versão (short), reservado (short), quantidade de partidas (long),
+ * posição do índice (long) e total de meios-movimentos (long);
+ * as partidas, uma depois da outra: resultado (byte, ordinal de GameResult), flags (byte), quantidade de
+ * meios-movimentos (short sem sinal), a FEN inicial se a flag FLAG_FEN estiver ligada (tamanho em short e os bytes em
+ * UTF-8) e os movimentos na forma compacta de 16 bits (ver Move.toCompact);
+ * o índice: a posição de cada partida no arquivo (long).
+ * Os números são big-endian. O cabeçalho e o índice só são escritos no close, então um arquivo que não foi fechado
+ * não pode ser lido.
+ */
+public class GameRecordWriter implements Closeable {
+    static final int MAGIC = 0x43484752;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int FLAG_FEN = 1;
+    static final int MAX_FEN_LENGTH = 1024;
+    static final int MAX_PLIES = 0xFFFF;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private long position = HEADER_SIZE;
+    private long[] offsets = new long[1024];
+    private int games;
+    private long totalPlies;
+
+    /**
+     * Cria (ou substitui) o arquivo
+     * @param path
+     * @throws IOException
+     */
+    public GameRecordWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        channel.position(HEADER_SIZE);
+    }
+
+    /**
+     * Grava os movimentos feitos na partida a partir da posição em que ela começou (ver ChessMatch.getStartFen)
+     * @param match
+     * @param result
+     * @throws IOException
+     */
+    public void write(ChessMatch match, GameResult result) throws IOException {
+        String startFen = match.getStartFen();
+        write(Fen.START.equals(startFen) ? null : startFen, match.getMoveHistory(), result);
+    }
+
+    /**
+     * Grava uma partida
+     * @param startFen posição inicial, ou null para a posição inicial padrão
+     * @param moves movimentos codificados (ver Move), na ordem em que foram jogados
+     * @param result
+     * @throws IOException
+     */
+    public void write(String startFen, int[] moves, GameResult result) throws IOException {
+        if (moves.length > MAX_PLIES) {
+            throw new ChessException("A game record can have at most " + MAX_PLIES + " moves");
+        }
+        byte[] fen = (startFen == null) ? null : startFen.getBytes(StandardCharsets.UTF_8);
+        if (fen != null && fen.length > MAX_FEN_LENGTH) {
+            throw new ChessException("FEN too long for a game record: " + startFen);
+        }
+
+        if (games == offsets.length) {
+            offsets = Arrays.copyOf(offsets, games * 2);
+        }
+        offsets[games++] = position;
+        totalPlies += moves.length;
+
+        ensure(4);
+        buffer.put((byte) result.ordinal());
+        buffer.put((byte) (fen == null ? 0 : FLAG_FEN));
+        buffer.putShort((short) moves.length);
+        position += 4;
+        if (fen != null) {
+            ensure(2 + fen.length);
+            buffer.putShort((short) fen.length);
+            buffer.put(fen);
+            position += 2 + fen.length;
+        }
+        for (int move : moves) {
+            ensure(2);
+            buffer.putShort(Move.toCompact(move));
+        }
+        position += 2L * moves.length;
+    }
+
+    /**
+     * @return quantidade de partidas gravadas até agora
+     */
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * Grava o índice e o cabeçalho e fecha o arquivo
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            long indexOffset = position;
+            for (int i = 0; i < games; i++) {
+                ensure(8);
+                buffer.putLong(offsets[i]);
+            }
+            flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putShort(VERSION);
+            header.putShort((short) 0);
+            header.putLong(games);
+            header.putLong(indexOffset);
+            header.putLong(totalPlies);
+            header.flip();
+            channel.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,393 @@
+package chess.tablebase;
+
+import chess.ChessException;
+import chess.PieceType;
+import chess.movegen.MoveGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Conjunto de peças de uma tabela de finais, como "KQvKR" (as peças das brancas, "v" e as das pretas), e a
+ * numeração das posições com essas peças.
+ * Cada peça ocupa uma posição fixa (slot) no vetor de casas: o rei branco, o rei preto, as demais peças brancas e as
+ * demais pretas, da dama ao peão. O índice de uma posição é formado pelas coordenadas de cada slot: o rei branco é
+ * levado por simetria para o triângulo a1-d1-d4 (10 casas) nas tabelas sem peões, ou para as colunas a-d (32 casas)
+ * nas tabelas com peões, que só podem ser espelhadas entre as alas; os peões só ocupam as 48 casas da segunda à
+ * sétima fileira; as demais peças ocupam as 64 casas. As casas de peças iguais são ordenadas, e quando o rei branco
+ * fica na diagonal a1-h8 vale a menor das duas numerações, então cada posição tem um único índice canônico.
+ * Os índices que não são canônicos (ou com duas peças na mesma casa) são marcados como ilegais pelo gerador.
+ * O nome é sempre o canônico: o lado com mais material fica com as brancas, e as posições com as cores trocadas são
+ * espelhadas entre as fileiras (ver Tablebase).
+ */
+public final class Material {
+    //Transformações de simetria, aplicadas nesta ordem
+    private static final int FLIP_FILES = 1;
+    private static final int FLIP_RANKS = 2;
+    private static final int TRANSPOSE = 4;
+
+    private static final String LETTERS = "PNBRQK";
+    private static final int[] VALUES = {1, 3, 3, 5, 9, 0};
+    private static final int KING = PieceType.KING.ordinal();
+    private static final int PAWN = PieceType.PAWN.ordinal();
+
+    //Casas do triângulo a1-d1-d4 e o índice de cada casa nele (-1 fora dele)
+    private static final int[] TRIANGLE = new int[10];
+    private static final int[] TRIANGLE_INDEX = new int[64];
+
+    static {
+        Arrays.fill(TRIANGLE_INDEX, -1);
+        int count = 0;
+        for (int rank = 0; rank < 4; rank++) {
+            for (int file = rank; file < 4; file++) {
+                int square = (7 - rank) * 8 + file;
+                TRIANGLE[count] = square;
+                TRIANGLE_INDEX[square] = count++;
+            }
+        }
+    }
+
+    private final String name;
+    private final int[] colors;
+    private final int[] types;
+    private final int[] ranges;
+    //same[i]: o slot i tem o mesmo tipo e cor do slot i - 1
+    private final boolean[] same;
+    private final boolean pawns;
+    private final int size;
+
+    private Material(String white, String black) {
+        name = white + "v" + black;
+        int n = white.length() + black.length();
+        colors = new int[n];
+        types = new int[n];
+        ranges = new int[n];
+        same = new boolean[n];
+        colors[0] = MoveGenerator.WHITE;
+        types[0] = KING;
+        colors[1] = MoveGenerator.BLACK;
+        types[1] = KING;
+        int slot = 2;
+        for (int i = 1; i < white.length(); i++, slot++) {
+            colors[slot] = MoveGenerator.WHITE;
+            types[slot] = LETTERS.indexOf(white.charAt(i));
+        }
+        for (int i = 1; i < black.length(); i++, slot++) {
+            colors[slot] = MoveGenerator.BLACK;
+            types[slot] = LETTERS.indexOf(black.charAt(i));
+        }
+        boolean hasPawns = false;
+        for (int i = 0; i < n; i++) {
+            hasPawns |= types[i] == PAWN;
+            same[i] = i > 2 && colors[i] == colors[i - 1] && types[i] == types[i - 1];
+        }
+        pawns = hasPawns;
+        long product = 1L;
+        for (int i = 0; i < n; i++) {
+            ranges[i] = (i == 0) ? (pawns ? 32 : 10) : (types[i] == PAWN) ? 48 : 64;
+            product *= ranges[i];
+        }
+        if (product > Integer.MAX_VALUE - 8) {
+            throw new ChessException("Too many pieces for a tablebase: " + name);
+        }
+        size = (int) product;
+    }
+
+    /**
+     * @param name peças das brancas, "v" e peças das pretas, cada lado começando pelo rei (por exemplo "KRPvKR")
+     * @return o conjunto de peças com o nome canônico (as cores são trocadas se as pretas tiverem mais material)
+     */
+    public static Material of(String name) {
+        String[] sides = name.trim().toUpperCase().split("V");
+        if (sides.length != 2 || !valid(sides[0]) || !valid(sides[1])) {
+            throw new ChessException("Invalid material: " + name);
+        }
+        String white = sort(sides[0]);
+        String black = sort(sides[1]);
+        return (compare(white, black) < 0) ? new Material(black, white) : new Material(white, black);
+    }
+
+    /**
+     * @param masks máscaras das peças, indexadas por cor * 6 + tipo
+     * @return o nome do conjunto de peças da posição, com as cores da posição (não necessariamente canônico)
+     */
+    public static String nameOf(long[] masks) {
+        StringBuilder sb = new StringBuilder();
+        for (int color = MoveGenerator.WHITE; color >= MoveGenerator.BLACK; color--) {
+            for (int type = KING; type >= PAWN; type--) {
+                for (int i = Long.bitCount(masks[color * 6 + type]); i > 0; i--) {
+                    sb.append(LETTERS.charAt(type));
+                }
+            }
+            if (color == MoveGenerator.WHITE) {
+                sb.append('v');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Chave das quantidades de cada peça (sem os reis), usada para encontrar a tabela de uma posição
+     * @param masks
+     * @return
+     */
+    static int key(long[] masks) {
+        int key = 0;
+        for (int color = 0; color < 2; color++) {
+            for (int type = PAWN; type < KING; type++) {
+                key |= Long.bitCount(masks[color * 6 + type]) << (3 * (color * 5 + type));
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @param mirror true para a chave das posições com as cores trocadas
+     * @return a chave das posições desta tabela
+     */
+    int key(boolean mirror) {
+        int key = 0;
+        for (int i = 2; i < types.length; i++) {
+            int color = mirror ? 1 - colors[i] : colors[i];
+            key += 1 << (3 * (color * 5 + types[i]));
+        }
+        return key;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return quantidade de peças, incluindo os reis
+     */
+    public int getPieceCount() {
+        return types.length;
+    }
+
+    /**
+     * @return quantidade de índices para cada jogador da vez
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean hasPawns() {
+        return pawns;
+    }
+
+    /**
+     * @return true se os dois lados têm as mesmas peças
+     */
+    public boolean isSymmetric() {
+        return key(false) == key(true);
+    }
+
+    int getColor(int slot) {
+        return colors[slot];
+    }
+
+    int getType(int slot) {
+        return types[slot];
+    }
+
+    /**
+     * @return os conjuntos de peças alcançados com uma captura ou uma promoção, já com os nomes canônicos
+     */
+    String[] successors() {
+        String[] sides = name.split("v");
+        List<String> result = new ArrayList<>();
+        for (int side = 0; side < 2; side++) {
+            String own = sides[side];
+            String other = sides[1 - side];
+            for (int i = 1; i < own.length(); i++) {
+                String captured = own.substring(0, i) + own.substring(i + 1);
+                add(result, (side == 0) ? captured + "v" + other : other + "v" + captured);
+                if (own.charAt(i) == 'P') {
+                    for (char piece : "QRBN".toCharArray()) {
+                        String promoted = own.substring(0, i) + piece + own.substring(i + 1);
+                        add(result, (side == 0) ? promoted + "v" + other : other + "v" + promoted);
+                    }
+                }
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * Índice canônico de uma posição
+     * @param squares casa de cada slot; não é alterado
+     * @param scratch vetor de trabalho com pelo menos getPieceCount() posições
+     * @return
+     */
+    int index(int[] squares, int[] scratch) {
+        int king = squares[0];
+        int file = king & 7;
+        if (pawns) {
+            return rawIndex(squares, (file > 3) ? FLIP_FILES : 0, scratch);
+        }
+        int rank = 7 - (king >> 3);
+        int transform = 0;
+        if (file > 3) {
+            transform |= FLIP_FILES;
+            file = 7 - file;
+        }
+        if (rank > 3) {
+            transform |= FLIP_RANKS;
+            rank = 7 - rank;
+        }
+        if (rank > file) {
+            return rawIndex(squares, transform | TRANSPOSE, scratch);
+        }
+        int index = rawIndex(squares, transform, scratch);
+        if (rank == file) {
+            index = Math.min(index, rawIndex(squares, transform | TRANSPOSE, scratch));
+        }
+        return index;
+    }
+
+    /**
+     * Preenche as casas de cada slot a partir de um índice
+     * @param index
+     * @param squares
+     */
+    void decode(int index, int[] squares) {
+        for (int i = types.length - 1; i >= 0; i--) {
+            int coordinate = index % ranges[i];
+            index /= ranges[i];
+            if (i == 0) {
+                squares[i] = pawns ? (coordinate >> 2) * 8 + (coordinate & 3) : TRIANGLE[coordinate];
+            } else {
+                squares[i] = (types[i] == PAWN) ? coordinate + 8 : coordinate;
+            }
+        }
+    }
+
+    /**
+     * Preenche as máscaras das peças a partir das casas de cada slot
+     * @param squares
+     * @param masks vetor com 12 máscaras
+     */
+    void toMasks(int[] squares, long[] masks) {
+        Arrays.fill(masks, 0L);
+        for (int i = 0; i < types.length; i++) {
+            masks[colors[i] * 6 + types[i]] |= 1L << squares[i];
+        }
+    }
+
+    /**
+     * Preenche as casas de cada slot a partir das máscaras de uma posição com estas peças
+     * @param masks
+     * @param mirror true se a posição tem as cores trocadas em relação à tabela: as fileiras são espelhadas
+     * @param squares
+     */
+    void fromMasks(long[] masks, boolean mirror, int[] squares) {
+        int flip = mirror ? 56 : 0;
+        int slot = 0;
+        for (int color = MoveGenerator.WHITE; color >= MoveGenerator.BLACK; color--) {
+            int real = mirror ? 1 - color : color;
+            squares[slot++] = Long.numberOfTrailingZeros(masks[real * 6 + KING]) ^ flip;
+        }
+        for (int color = MoveGenerator.WHITE; color >= MoveGenerator.BLACK; color--) {
+            int real = mirror ? 1 - color : color;
+            for (int type = KING - 1; type >= PAWN; type--) {
+                long pieces = masks[real * 6 + type];
+                while (pieces != 0L) {
+                    squares[slot++] = Long.numberOfTrailingZeros(pieces) ^ flip;
+                    pieces &= pieces - 1;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private int rawIndex(int[] squares, int transform, int[] scratch) {
+        int n = types.length;
+        for (int i = 0; i < n; i++) {
+            int square = squares[i];
+            if ((transform & FLIP_FILES) != 0) {
+                square ^= 7;
+            }
+            if ((transform & FLIP_RANKS) != 0) {
+                square ^= 56;
+            }
+            if ((transform & TRANSPOSE) != 0) {
+                square = 63 - (((square & 7) << 3) | (square >> 3));
+            }
+            scratch[i] = square;
+            for (int j = i; same[j] && scratch[j - 1] > scratch[j]; j--) {
+                int swap = scratch[j];
+                scratch[j] = scratch[j - 1];
+                scratch[j - 1] = swap;
+            }
+        }
+        int index = pawns ? (scratch[0] >> 3) * 4 + (scratch[0] & 3) : TRIANGLE_INDEX[scratch[0]];
+        for (int i = 1; i < n; i++) {
+            index = index * ranges[i] + ((types[i] == PAWN) ? scratch[i] - 8 : scratch[i]);
+        }
+        return index;
+    }
+
+    private static void add(List<String> names, String name) {
+        String canonical = of(name).getName();
+        if (!names.contains(canonical)) {
+            names.add(canonical);
+        }
+    }
+
+    private static boolean valid(String side) {
+        if (side.isEmpty() || side.charAt(0) != 'K') {
+            return false;
+        }
+        for (int i = 1; i < side.length(); i++) {
+            int type = LETTERS.indexOf(side.charAt(i));
+            if (type < 0 || type == KING) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ordena as peças de um lado do rei ao peão
+     */
+    private static String sort(String side) {
+        char[] pieces = side.toCharArray();
+        StringBuilder sb = new StringBuilder("K");
+        for (int type = KING - 1; type >= PAWN; type--) {
+            for (int i = 1; i < pieces.length; i++) {
+                if (LETTERS.indexOf(pieces[i]) == type) {
+                    sb.append(pieces[i]);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compara o material de dois lados: pelo valor das peças, pela quantidade e pelas peças mais fortes
+     */
+    private static int compare(String a, String b) {
+        int c = Integer.compare(value(a), value(b));
+        if (c == 0) {
+            c = Integer.compare(a.length(), b.length());
+        }
+        for (int i = 1; c == 0 && i < a.length(); i++) {
+            c = Integer.compare(LETTERS.indexOf(a.charAt(i)), LETTERS.indexOf(b.charAt(i)));
+        }
+        return c;
+    }
+
+    private static int value(String side) {
+        int value = 0;
+        for (int i = 1; i < side.length(); i++) {
+            value += VALUES[LETTERS.indexOf(side.charAt(i))];
+        }
+        return value;
+    }
+}
@@ -0,0 +1,152 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Páginas mapeadas em memória dos arquivos das tabelas. Cada página é uma janela de tamanho fixo de um arquivo,
+ * mapeada na primeira leitura, então só as regiões consultadas pela busca ocupam memória.
+ * Cada arquivo tem a sua tabela de páginas (ver newPageTable), um AtomicReferenceArray indexado pelo número da página:
+ * as leituras das páginas presentes não usam locks, então todas as threads da busca podem consultar as tabelas ao
+ * mesmo tempo. Só as faltas de página são feitas uma thread por vez.
+ * A quantidade de páginas mapeadas é limitada pela capacidade, para que os arquivos possam ser maiores que o espaço de
+ * endereçamento reservado para eles. Depois do limite, cada falta retira uma página da sua tabela pelo algoritmo do
+ * relógio (CLOCK): as páginas ficam em um anel com um bit de referência, ligado a cada leitura, e o ponteiro do relógio
+ * desliga os bits ligados até achar uma página que não foi lida desde a última volta. Uma thread que ainda lê uma
+ * página retirada continua com a sua referência; o mapeamento é desfeito pelo coletor de lixo.
+ */
+final class PageCache {
+    private final int pageShift;
+    private final Page[] ring;
+    private int used;
+    private int hand;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Página mapeada de um arquivo, com a posição dela na tabela de páginas para poder ser retirada
+     */
+    static final class Page {
+        final AtomicReferenceArray<Page> table;
+        final int number;
+        final MappedByteBuffer buffer;
+        //Escrito sem sincronização nas leituras; o relógio só precisa de uma indicação aproximada de uso
+        boolean referenced = true;
+
+        Page(AtomicReferenceArray<Page> table, int number, MappedByteBuffer buffer) {
+            this.table = table;
+            this.number = number;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * @param pageSize tamanho das páginas em bytes, potência de 2
+     * @param capacity quantidade máxima de páginas mapeadas
+     */
+    PageCache(int pageSize, int capacity) {
+        if (Integer.bitCount(pageSize) != 1 || capacity < 1) {
+            throw new IllegalArgumentException("The page size must be a power of 2 and the capacity positive");
+        }
+        pageShift = Integer.numberOfTrailingZeros(pageSize);
+        ring = new Page[capacity];
+    }
+
+    /**
+     * @param size tamanho do arquivo
+     * @return uma tabela de páginas vazia para o arquivo
+     */
+    AtomicReferenceArray<Page> newPageTable(long size) {
+        return new AtomicReferenceArray<>((int) ((size + (1L << pageShift) - 1) >>> pageShift));
+    }
+
+    /**
+     * @param pages tabela de páginas do arquivo
+     * @param channel
+     * @param size tamanho do arquivo
+     * @param offset posição do byte no arquivo
+     * @return o byte, sem sinal
+     * @throws IOException
+     */
+    int read(AtomicReferenceArray<Page> pages, FileChannel channel, long size, long offset) throws IOException {
+        int number = (int) (offset >>> pageShift);
+        int position = (int) (offset & ((1L << pageShift) - 1));
+        Page page = pages.get(number);
+        if (page != null) {
+            hits.increment();
+            //Só escreve o bit quando ele está desligado, para não disputar a linha de cache a cada leitura
+            if (!page.referenced) {
+                page.referenced = true;
+            }
+        } else {
+            misses.increment();
+            page = load(pages, channel, size, number);
+        }
+        //Leitura absoluta: não altera a posição do buffer, então pode ser feita por várias threads
+        return page.buffer.get(position) & 0xFF;
+    }
+
+    /**
+     * Mapeia uma página que faltou, retirando outra pelo relógio se o anel estiver cheio. Outra thread pode ter
+     * mapeado a mesma página enquanto esta esperava o lock; nesse caso ela é usada.
+     */
+    private synchronized Page load(AtomicReferenceArray<Page> pages, FileChannel channel, long size, int number)
+            throws IOException {
+        Page page = pages.get(number);
+        if (page != null) {
+            return page;
+        }
+        long start = (long) number << pageShift;
+        page = new Page(pages, number,
+                channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << pageShift, size - start)));
+        int slot;
+        if (used < ring.length) {
+            slot = used++;
+        } else {
+            slot = victim();
+            Page old = ring[slot];
+            old.table.set(old.number, null);
+            evictions.increment();
+        }
+        ring[slot] = page;
+        pages.set(number, page);
+        return page;
+    }
+
+    /**
+     * Avança o relógio até uma página com o bit de referência desligado, desligando os bits ligados no caminho.
+     * Termina em no máximo duas voltas.
+     * @return a posição no anel da página a ser retirada
+     */
+    private int victim() {
+        while (true) {
+            int slot = hand;
+            hand = (hand + 1 == ring.length) ? 0 : hand + 1;
+            Page page = ring[slot];
+            if (!page.referenced) {
+                return slot;
+            }
+            page.referenced = false;
+        }
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    synchronized int getPages() {
+        return used;
+    }
+}
@@ -0,0 +1,389 @@
+package chess.tablebase;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+import chess.PieceType;
+import chess.movegen.MoveGenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Consulta às tabelas de finais de um diretório, geradas pelo TablebaseGenerator. Cada arquivo guarda uma tabela
+ * (ver Material) com um byte por posição, primeiro as posições com as pretas na vez e depois as com as brancas:
+ * 0 é empate, 1 a MAX_MOVES é vitória do jogador da vez com mate naquela quantidade de movimentos, LOSS + n é
+ * derrota com mate depois de n movimentos do oponente, e ILLEGAL marca os índices que não são posições legais.
+ * Os arquivos são lidos por páginas mapeadas em memória, lidas sem locks e retiradas pelo algoritmo do relógio
+ * quando o limite de páginas é atingido (ver PageCache).
+ * As posições com as cores trocadas em relação à tabela são consultadas espelhando o tabuleiro entre as fileiras.
+ * As tabelas supõem que não há direitos de roque; uma captura en passant possível na posição é resolvida aqui,
+ * consultando a tabela de destino da captura.
+ * Pode ser usada por várias threads ao mesmo tempo. Os vetores de trabalho de uma consulta ficam na thread, então as
+ * consultas não alocam memória.
+ */
+public class Tablebase implements Closeable {
+    public static final String EXTENSION = ".tb";
+    public static final int DEFAULT_PAGE_SIZE = 1 << 20;
+    public static final int DEFAULT_PAGES = 256;
+
+    static final int MAGIC = 0x43485442;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    static final int DRAW = 0;
+    static final int LOSS = 128;
+    static final int ILLEGAL = 255;
+    static final int MAX_MOVES = 126;
+
+    private final Path directory;
+    private final PageCache cache;
+    private final Map<Integer, Table> tables = new ConcurrentHashMap<>();
+    private final Map<Integer, Table> mirrored = new ConcurrentHashMap<>();
+    private final List<Table> files = new CopyOnWriteArrayList<>();
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private volatile int maxPieces;
+
+    /**
+     * Vetores de trabalho das consultas de cada thread
+     */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static final class Scratch {
+        final int[] squares = new int[32];
+        final int[] index = new int[32];
+        final MoveList moves = new MoveList();
+        final long[] after = new long[12];
+    }
+
+    private static final class Table {
+        final Material material;
+        final FileChannel channel;
+        final long size;
+        final AtomicReferenceArray<PageCache.Page> pages;
+
+        Table(Material material, FileChannel channel, long size, AtomicReferenceArray<PageCache.Page> pages) {
+            this.material = material;
+            this.channel = channel;
+            this.size = size;
+            this.pages = pages;
+        }
+    }
+
+    /**
+     * Abre as tabelas de um diretório com o cache padrão (DEFAULT_PAGES páginas de DEFAULT_PAGE_SIZE bytes)
+     * @param directory
+     * @throws IOException
+     */
+    public Tablebase(Path directory) throws IOException {
+        this(directory, DEFAULT_PAGE_SIZE, DEFAULT_PAGES);
+    }
+
+    /**
+     * @param directory diretório com os arquivos das tabelas; é criado se não existir
+     * @param pageSize tamanho das páginas do cache em bytes, potência de 2
+     * @param pages quantidade máxima de páginas mapeadas; depois dela as menos usadas são retiradas
+     * @throws IOException
+     */
+    public Tablebase(Path directory, int pageSize, int pages) throws IOException {
+        this.directory = directory;
+        cache = new PageCache(pageSize, pages);
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                load(file);
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return o arquivo da tabela de um conjunto de peças neste diretório
+     */
+    Path fileOf(Material material) {
+        return directory.resolve(material.getName() + EXTENSION);
+    }
+
+    /**
+     * Abre uma tabela e passa a usá-la nas consultas
+     * @param file
+     * @throws IOException se o arquivo não for uma tabela
+     */
+    void load(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        Material material = Material.of(name.substring(0, name.length() - EXTENSION.length()));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                //Lê o cabeçalho inteiro
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getShort() != VERSION
+                    || header.getShort() != material.getPieceCount() || header.getInt() != material.size()
+                    || channel.size() != HEADER_SIZE + 2L * material.size()) {
+                throw new IOException("Not a tablebase for " + material + ": " + file);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        Table table = new Table(material, channel, channel.size(), cache.newPageTable(channel.size()));
+        files.add(table);
+        tables.put(material.key(false), table);
+        if (!material.isSymmetric()) {
+            mirrored.put(material.key(true), table);
+        }
+        maxPieces = Math.max(maxPieces, material.getPieceCount());
+    }
+
+    /**
+     * @return a maior quantidade de peças (com os reis) das tabelas abertas; as posições com mais peças não são
+     * consultadas
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * @param material
+     * @return true se a tabela do conjunto de peças (com qualquer uma das cores) está aberta
+     */
+    public boolean contains(String material) {
+        return tables.containsKey(Material.of(material).key(false));
+    }
+
+    /**
+     * Consulta a posição atual da partida. Só são consultadas as posições sem direitos de roque e com no máximo
+     * getMaxPieces() peças, então o custo para as demais posições é só o da contagem de peças.
+     * No cheque mate a vez fica com o vencedor (ver ChessMatch.getCheckMate), mas a consulta é do ponto de vista do
+     * perdedor, que é quem estaria para jogar.
+     * @param match
+     * @return o resultado da posição, ou null se a posição não estiver nas tabelas
+     */
+    public TablebaseResult probe(ChessMatch match) {
+        if (match.getPieceCount() > maxPieces || match.getCastlingRights() != 0) {
+            return null;
+        }
+        int side = match.getCurrentPlayer().ordinal();
+        if (match.getCheckMate()) {
+            side = 1 - side;
+        }
+        int value = probe(match.getPieceMasks(), side, match.getEnPassantSquare());
+        return (value < 0) ? null : TablebaseResult.of(value);
+    }
+
+    /**
+     * @return quantidade de consultas feitas às tabelas
+     */
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    /**
+     * @return quantidade de consultas respondidas
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+
+    public long getCacheEvictions() {
+        return cache.getEvictions();
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        for (Table table : files) {
+            try {
+                table.channel.close();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * @param masks máscaras das peças, indexadas por cor * 6 + tipo; não são alteradas
+     * @param side cor que joga (Color.ordinal())
+     * @param enPassantSquare casa de destino da captura en passant, ou -1
+     * @return o valor da posição do ponto de vista de quem joga, ou -1 se ela não estiver nas tabelas
+     */
+    int probe(long[] masks, int side, int enPassantSquare) {
+        probes.increment();
+        int key = Material.key(masks);
+        boolean mirror = false;
+        Table table = tables.get(key);
+        if (table == null) {
+            table = mirrored.get(key);
+            mirror = true;
+        }
+        if (table == null) {
+            return -1;
+        }
+        Material material = table.material;
+        Scratch scratch = SCRATCH.get();
+        material.fromMasks(masks, mirror, scratch.squares);
+        int index = material.index(scratch.squares, scratch.index);
+        int value = read(table, mirror ? 1 - side : side, index);
+        if (value == ILLEGAL) {
+            return -1;
+        }
+        if (enPassantSquare >= 0) {
+            int capture = enPassantValue(masks, side, enPassantSquare);
+            if (capture == -2) {
+                return -1;
+            }
+            if (capture >= 0 && rank(capture) > rank(value)) {
+                value = capture;
+            }
+        }
+        hits.increment();
+        return value;
+    }
+
+    /**
+     * @param masks
+     * @param side
+     * @param enPassantSquare
+     * @return o melhor valor para quem joga entre as capturas en passant legais, -1 se não houver nenhuma ou -2 se
+     * faltar a tabela de destino
+     */
+    int enPassantValue(long[] masks, int side, int enPassantSquare) {
+        //A consulta de cada captura usa só os vetores de casas da thread, não a lista de movimentos nem as máscaras
+        Scratch scratch = SCRATCH.get();
+        MoveList moves = scratch.moves;
+        long[] after = scratch.after;
+        int count = MoveGenerator.generate(masks, side, enPassantSquare, 0, moves);
+        int best = -1;
+        for (int i = 0; i < count; i++) {
+            int move = moves.get(i);
+            if (!Move.isEnPassant(move)) {
+                continue;
+            }
+            play(masks, side, move, after);
+            int value = probe(after, 1 - side, -1);
+            if (value < 0) {
+                return -2;
+            }
+            value = negate(value);
+            if (best < 0 || rank(value) > rank(best)) {
+                best = value;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Lê o valor de um índice da tabela
+     */
+    private int read(Table table, int side, int index) {
+        try {
+            return cache.read(table.pages, table.channel, table.size,
+                    HEADER_SIZE + (long) side * table.material.size() + index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Faz um movimento sobre as máscaras
+     * @param masks posição antes do movimento; não é alterada
+     * @param side cor que joga
+     * @param move
+     * @param after recebe a posição depois do movimento
+     */
+    static void play(long[] masks, int side, int move, long[] after) {
+        System.arraycopy(masks, 0, after, 0, masks.length);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int them = (1 - side) * 6;
+        long captured = Move.isEnPassant(move) ? 1L << (side == MoveGenerator.WHITE ? to + 8 : to - 8) : 1L << to;
+        for (int type = 0; type < 6; type++) {
+            after[them + type] &= ~captured;
+        }
+        int type = 0;
+        while ((after[side * 6 + type] & (1L << from)) == 0L) {
+            type++;
+        }
+        after[side * 6 + type] ^= 1L << from;
+        PieceType promotion = Move.promotion(move);
+        after[side * 6 + ((promotion != null) ? promotion.ordinal() : type)] |= 1L << to;
+    }
+
+    /**
+     * @param value valor do ponto de vista de quem joga depois de um movimento
+     * @return o valor do ponto de vista de quem fez o movimento
+     */
+    static int negate(int value) {
+        if (value == DRAW) {
+            return DRAW;
+        }
+        if (value < LOSS) {
+            return LOSS + value;
+        }
+        int moves = value - LOSS + 1;
+        if (moves > MAX_MOVES) {
+            throw new ChessException("Distance to mate too long for the tablebase format");
+        }
+        return moves;
+    }
+
+    /**
+     * @return ordem dos valores para quem joga: vitórias mais curtas, empate e derrotas mais longas
+     */
+    static int rank(int value) {
+        if (value == DRAW) {
+            return 0;
+        }
+        return (value < LOSS) ? 1000 - value : value - LOSS - 1000;
+    }
+
+    /**
+     * @return o número de meios-movimentos até o mate de um valor, ou -1 no empate
+     */
+    static int level(int value) {
+        if (value == DRAW || value == ILLEGAL) {
+            return -1;
+        }
+        return (value < LOSS) ? 2 * value - 1 : 2 * (value - LOSS);
+    }
+
+    /**
+     * @return o valor com mate em uma quantidade de meios-movimentos (ímpar para vitória, par para derrota)
+     */
+    static int valueOf(int level) {
+        if (level > 2 * MAX_MOVES) {
+            throw new ChessException("Distance to mate too long for the tablebase format");
+        }
+        return ((level & 1) != 0) ? (level + 1) / 2 : LOSS + level / 2;
+    }
+}
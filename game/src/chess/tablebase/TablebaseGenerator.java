@@ -0,0 +1,426 @@
+package chess.tablebase;
+
+import chess.ChessException;
+import chess.Move;
+import chess.MoveList;
+import chess.PieceType;
+import chess.movegen.Attacks;
+import chess.movegen.MoveGenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Gera tabelas de finais por análise retrógrada e as grava no diretório de uma Tablebase.
+ * Primeiro cada posição da tabela é visitada uma vez: os mates e afogamentos são resolvidos, as capturas e promoções
+ * são resolvidas nas tabelas menores (geradas antes, se faltarem) e são contadas as posições distintas da própria
+ * tabela alcançadas pelos demais movimentos. Depois as posições são resolvidas por distância até o mate, em
+ * meios-movimentos: os antecessores (gerados desfazendo movimentos) de uma posição perdida ganham no meio-movimento
+ * seguinte, e um antecessor de uma posição ganha perde quando todos os seus movimentos levam a posições ganhas pelo
+ * oponente. As posições que sobram são empates.
+ * A memória usada é de cerca de 6 bytes por posição: alguns MB para 4 peças e alguns GB para 5 peças.
+ * As posições depois de um avanço duplo de peão consideram a captura en passant: o valor do avanço é o melhor para o
+ * oponente entre a posição sem en passant e a captura, que é resolvida na tabela menor.
+ */
+public class TablebaseGenerator implements Closeable {
+    private final Tablebase tablebase;
+    private final PrintStream log;
+
+    /**
+     * @param directory diretório das tabelas; as que já existirem nele não são geradas de novo
+     * @throws IOException
+     */
+    public TablebaseGenerator(Path directory) throws IOException {
+        this(directory, new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * @param directory diretório das tabelas; as que já existirem nele não são geradas de novo
+     * @param log recebe uma linha com o resumo de cada tabela gerada
+     * @throws IOException
+     */
+    public TablebaseGenerator(Path directory, PrintStream log) throws IOException {
+        tablebase = new Tablebase(directory);
+        this.log = log;
+    }
+
+    /**
+     * @return as tabelas do diretório, incluindo as geradas por este gerador
+     */
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * Gera a tabela de um conjunto de peças e as tabelas menores de que ela depende, se ainda não existirem
+     * @param name conjunto de peças (ver Material.of)
+     * @throws IOException
+     */
+    public void generate(String name) throws IOException {
+        Material material = Material.of(name);
+        Path file = tablebase.fileOf(material);
+        if (Files.exists(file)) {
+            return;
+        }
+        for (String successor : material.successors()) {
+            generate(successor);
+        }
+        long start = System.nanoTime();
+        byte[][] values = build(material);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        write(material, values, temporary);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        tablebase.load(file);
+        log.println(summary(material, values, System.nanoTime() - start));
+    }
+
+    @Override
+    public void close() throws IOException {
+        tablebase.close();
+    }
+
+    private byte[][] build(Material material) {
+        int size = material.size();
+        int n = material.getPieceCount();
+        byte[][] values = new byte[2][size];
+        //Posições distintas da tabela alcançadas pelos movimentos ainda não refutados
+        byte[][] counts = new byte[2][size];
+        //Meio-movimento de uma vitória por captura ou promoção (ímpar) ou o mínimo de uma derrota (par)
+        byte[][] exits = new byte[2][size];
+
+        int[] squares = new int[n];
+        int[] moved = new int[n];
+        int[] scratch = new int[n];
+        long[] masks = new long[12];
+        long[] after = new long[12];
+        MoveList moves = new MoveList();
+        int[] successors = new int[MoveList.CAPACITY];
+        int maxPending = 0;
+        //Refutações por captura en passant: meio-movimento << 33 | jogador << 32 | índice, ordenadas no fim
+        long[] events = new long[1024];
+        int eventCount = 0;
+
+        for (int side = 0; side < 2; side++) {
+            for (int index = 0; index < size; index++) {
+                material.decode(index, squares);
+                material.toMasks(squares, masks);
+                long occupied = MoveGenerator.occupancy(masks, 0) | MoveGenerator.occupancy(masks, 1);
+                if (Long.bitCount(occupied) != n || material.index(squares, scratch) != index
+                        || MoveGenerator.checkers(masks, 1 - side) != 0L) {
+                    values[side][index] = (byte) Tablebase.ILLEGAL;
+                    continue;
+                }
+                int count = MoveGenerator.generate(masks, side, -1, 0, moves);
+                if (count == 0) {
+                    if (MoveGenerator.checkers(masks, side) != 0L) {
+                        values[side][index] = (byte) Tablebase.LOSS;
+                    } else {
+                        //Afogamento: um movimento que nunca é refutado impede que a posição seja resolvida
+                        counts[side][index] = 1;
+                    }
+                    continue;
+                }
+                int distinct = 0;
+                boolean unrefuted = false;
+                int win = 0;
+                int loss = 0;
+                for (int i = 0; i < count; i++) {
+                    int move = moves.get(i);
+                    int value;
+                    if (Move.isCapture(move) || Move.promotion(move) != null) {
+                        Tablebase.play(masks, side, move, after);
+                        value = tablebase.probe(after, 1 - side, -1);
+                        if (value < 0) {
+                            throw new ChessException("Missing tablebase: " + Material.nameOf(after));
+                        }
+                        value = Tablebase.negate(value);
+                    } else {
+                        if (Move.isDoublePush(move)) {
+                            Tablebase.play(masks, side, move, after);
+                            int capture = enPassantValue(after, 1 - side, (Move.from(move) + Move.to(move)) / 2);
+                            //O oponente ganha com a captura: o movimento é refutado por ela, se não for antes
+                            if (capture > Tablebase.DRAW && capture < Tablebase.LOSS) {
+                                long event = (long) Tablebase.level(capture) << 33 | (long) side << 32 | index;
+                                if (eventCount == 0 || events[eventCount - 1] != event) {
+                                    if (eventCount == events.length) {
+                                        events = Arrays.copyOf(events, 2 * eventCount);
+                                    }
+                                    events[eventCount++] = event;
+                                    maxPending = Math.max(maxPending, Tablebase.level(capture));
+                                }
+                            }
+                        }
+                        int successor = successor(material, squares, move, moved, scratch);
+                        int j = 0;
+                        while (j < distinct && successors[j] != successor) {
+                            j++;
+                        }
+                        if (j == distinct) {
+                            successors[distinct++] = successor;
+                        }
+                        continue;
+                    }
+                    if (value == Tablebase.DRAW) {
+                        unrefuted = true;
+                    } else if (value < Tablebase.LOSS) {
+                        int level = Tablebase.level(value);
+                        win = (win == 0) ? level : Math.min(win, level);
+                    } else {
+                        loss = Math.max(loss, Tablebase.level(value));
+                    }
+                }
+                counts[side][index] = (byte) (distinct + ((unrefuted || win > 0) ? 1 : 0));
+                exits[side][index] = (byte) ((win > 0) ? win : loss);
+                maxPending = Math.max(maxPending, (win > 0) ? win : loss);
+            }
+        }
+
+        Arrays.sort(events, 0, eventCount);
+        int nextEvent = 0;
+
+        int[] predecessors = new int[4 * MoveList.CAPACITY];
+        int[] enPassant = new int[predecessors.length];
+        for (int level = 0; ; level++) {
+            if (level > 0) {
+                for (int side = 0; side < 2; side++) {
+                    byte[] sideValues = values[side];
+                    byte[] sideCounts = counts[side];
+                    byte[] sideExits = exits[side];
+                    for (int index = 0; index < size; index++) {
+                        if (sideValues[index] != 0) {
+                            continue;
+                        }
+                        int exit = sideExits[index] & 0xFF;
+                        if ((level & 1) != 0 ? exit == level : sideCounts[index] == 0 && exit <= level) {
+                            sideValues[index] = (byte) Tablebase.valueOf(level);
+                        }
+                    }
+                }
+            }
+
+            int resolved = 0;
+            for (int side = 0; side < 2; side++) {
+                int other = 1 - side;
+                for (int index = 0; index < size; index++) {
+                    int value = values[side][index] & 0xFF;
+                    if (Tablebase.level(value) != level) {
+                        continue;
+                    }
+                    resolved++;
+                    material.decode(index, squares);
+                    material.toMasks(squares, masks);
+                    int found = predecessors(material, side, squares, masks, predecessors, enPassant, moved, scratch);
+                    for (int i = 0; i < found; i++) {
+                        int predecessor = predecessors[i];
+                        if (values[other][predecessor] != 0) {
+                            continue;
+                        }
+                        int capture = enPassant[i];
+                        if ((level & 1) == 0) {
+                            //A posição está perdida para quem joga: o antecessor ganha, a não ser que o oponente se
+                            //salve com a captura en passant
+                            if (capture < 0 || (capture >= Tablebase.LOSS && Tablebase.level(capture) <= level)) {
+                                values[other][predecessor] = (byte) Tablebase.valueOf(level + 1);
+                            } else if (capture >= Tablebase.LOSS) {
+                                int win = Tablebase.level(capture) + 1;
+                                int exit = exits[other][predecessor] & 0xFF;
+                                if ((exit & 1) == 0) {
+                                    counts[other][predecessor]++;
+                                    exits[other][predecessor] = (byte) win;
+                                } else if (win < exit) {
+                                    exits[other][predecessor] = (byte) win;
+                                }
+                                maxPending = Math.max(maxPending, win);
+                            }
+                        } else if (capture < 0 || capture >= Tablebase.LOSS || capture == Tablebase.DRAW
+                                || level <= Tablebase.level(capture)) {
+                            //A posição está ganha para quem joga: o movimento do antecessor até ela está refutado
+                            //(a não ser que a captura en passant já o tenha refutado antes)
+                            counts[other][predecessor]--;
+                        }
+                    }
+                }
+            }
+            while (nextEvent < eventCount && events[nextEvent] >>> 33 == level) {
+                long event = events[nextEvent++];
+                int side = (int) (event >>> 32) & 1;
+                int index = (int) event;
+                if (values[side][index] == 0) {
+                    resolved++;
+                    material.decode(index, squares);
+                    material.toMasks(squares, masks);
+                    counts[side][index] -= enPassantRefutations(material, side, index, level, squares, masks, after,
+                            values[1 - side], moves, moved, scratch);
+                }
+            }
+            if (resolved == 0 && level >= maxPending) {
+                break;
+            }
+            if (level > 2 * Tablebase.MAX_MOVES) {
+                throw new ChessException("Distance to mate too long for the tablebase format");
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Conta os avanços duplos de peão refutados pela captura en passant neste meio-movimento, que ainda não foram
+     * refutados pela posição sem en passant
+     */
+    private int enPassantRefutations(Material material, int side, int index, int level, int[] squares, long[] masks,
+                                     long[] after, byte[] opponentValues, MoveList moves, int[] moved, int[] scratch) {
+        int refuted = 0;
+        int count = MoveGenerator.generate(masks, side, -1, 0, moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves.get(i);
+            if (!Move.isDoublePush(move)) {
+                continue;
+            }
+            Tablebase.play(masks, side, move, after);
+            int capture = enPassantValue(after, 1 - side, (Move.from(move) + Move.to(move)) / 2);
+            if (capture > Tablebase.DRAW && capture < Tablebase.LOSS && Tablebase.level(capture) == level) {
+                int value = opponentValues[successor(material, squares, move, moved, scratch)] & 0xFF;
+                int won = (value > Tablebase.DRAW && value < Tablebase.LOSS) ? Tablebase.level(value) : Integer.MAX_VALUE;
+                if (won > level) {
+                    refuted++;
+                }
+            }
+        }
+        return refuted;
+    }
+
+    /**
+     * @return o índice da posição depois de um movimento que não sai da tabela
+     */
+    private static int successor(Material material, int[] squares, int move, int[] moved, int[] scratch) {
+        System.arraycopy(squares, 0, moved, 0, squares.length);
+        int from = Move.from(move);
+        for (int i = 0; i < moved.length; i++) {
+            if (moved[i] == from) {
+                moved[i] = Move.to(move);
+                break;
+            }
+        }
+        return material.index(moved, scratch);
+    }
+
+    /**
+     * Gera os antecessores distintos de uma posição na própria tabela, desfazendo os movimentos sem captura e sem
+     * promoção do jogador que acabou de jogar
+     * @param enPassant recebe, para cada antecessor, o melhor valor da captura en passant para quem joga na posição,
+     * se o antecessor chegou a ela por um avanço duplo de peão, ou -1
+     * @return quantidade de antecessores
+     */
+    private int predecessors(Material material, int side, int[] squares, long[] masks, int[] predecessors,
+                             int[] enPassant, int[] moved, int[] scratch) {
+        int mover = 1 - side;
+        long occupied = MoveGenerator.occupancy(masks, 0) | MoveGenerator.occupancy(masks, 1);
+        long empty = ~occupied;
+        int found = 0;
+        for (int slot = 0; slot < squares.length; slot++) {
+            if (material.getColor(slot) != mover) {
+                continue;
+            }
+            int to = squares[slot];
+            int type = material.getType(slot);
+            long origins;
+            int doublePush = -1;
+            if (type == PieceType.PAWN.ordinal()) {
+                //Os peões brancos andam para as linhas menores do índice das casas
+                int step = (mover == MoveGenerator.WHITE) ? 8 : -8;
+                int origin = to + step;
+                int row = origin >> 3;
+                origins = (row >= 1 && row <= 6 && (empty & 1L << origin) != 0L) ? 1L << origin : 0L;
+                int start = (mover == MoveGenerator.WHITE) ? 6 : 1;
+                if (origins != 0L && (origin + step) >> 3 == start && (empty & 1L << (origin + step)) != 0L) {
+                    doublePush = origin + step;
+                    origins |= 1L << doublePush;
+                }
+            } else if (type == PieceType.KNIGHT.ordinal()) {
+                origins = Attacks.knight(to) & empty;
+            } else if (type == PieceType.BISHOP.ordinal()) {
+                origins = Attacks.bishop(to, occupied) & empty;
+            } else if (type == PieceType.ROOK.ordinal()) {
+                origins = Attacks.rook(to, occupied) & empty;
+            } else if (type == PieceType.QUEEN.ordinal()) {
+                origins = Attacks.queen(to, occupied) & empty;
+            } else {
+                origins = Attacks.king(to) & empty;
+            }
+            while (origins != 0L) {
+                int origin = Long.numberOfTrailingZeros(origins);
+                origins &= origins - 1;
+                System.arraycopy(squares, 0, moved, 0, squares.length);
+                moved[slot] = origin;
+                int predecessor = material.index(moved, scratch);
+                int capture = (origin == doublePush) ? enPassantValue(masks, side, (origin + to) / 2) : -1;
+                int j = 0;
+                while (j < found && predecessors[j] != predecessor) {
+                    j++;
+                }
+                if (j == found) {
+                    predecessors[found] = predecessor;
+                    enPassant[found++] = capture;
+                } else if (capture < 0) {
+                    enPassant[j] = -1;
+                }
+            }
+        }
+        return found;
+    }
+
+    private int enPassantValue(long[] masks, int side, int square) {
+        int value = tablebase.enPassantValue(masks, side, square);
+        if (value == -2) {
+            throw new ChessException("Missing tablebase for an en passant capture from " + Material.nameOf(masks));
+        }
+        return value;
+    }
+
+    private static void write(Material material, byte[][] values, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_SIZE);
+        header.putInt(Tablebase.MAGIC);
+        header.putShort((short) Tablebase.VERSION);
+        header.putShort((short) material.getPieceCount());
+        header.putInt(material.size());
+        header.putInt(0);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(header.array());
+            for (byte[] side : values) {
+                out.write(side);
+            }
+        }
+    }
+
+    private static String summary(Material material, byte[][] values, long nanos) {
+        long wins = 0L;
+        long draws = 0L;
+        long losses = 0L;
+        int longest = 0;
+        for (byte[] side : values) {
+            for (byte b : side) {
+                int value = b & 0xFF;
+                if (value == Tablebase.ILLEGAL) {
+                    continue;
+                }
+                if (value == Tablebase.DRAW) {
+                    draws++;
+                } else if (value < Tablebase.LOSS) {
+                    wins++;
+                    longest = Math.max(longest, value);
+                } else {
+                    losses++;
+                }
+            }
+        }
+        return String.format("%s: %d positions, %d wins, %d draws, %d losses, longest mate %d moves, %.1f s",
+                material, wins + draws + losses, wins, draws, losses, longest, nanos / 1e9);
+    }
+}
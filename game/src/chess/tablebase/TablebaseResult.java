@@ -0,0 +1,64 @@
+package chess.tablebase;
+
+/**
+ * Resposta da tabela de finais para uma posição, do ponto de vista do jogador da vez: vitória, empate ou derrota e a
+ * distância até o mate com o melhor jogo dos dois lados (DTM).
+ * Há uma única instância para cada resposta possível, então as consultas não alocam objetos.
+ */
+public final class TablebaseResult {
+    private static final TablebaseResult[] RESULTS = new TablebaseResult[Tablebase.ILLEGAL];
+
+    static {
+        for (int value = 0; value < RESULTS.length; value++) {
+            RESULTS[value] = new TablebaseResult(value);
+        }
+    }
+
+    private final Wdl wdl;
+    private final int moves;
+
+    private TablebaseResult(int value) {
+        if (value == Tablebase.DRAW) {
+            wdl = Wdl.DRAW;
+            moves = 0;
+        } else if (value < Tablebase.LOSS) {
+            wdl = Wdl.WIN;
+            moves = value;
+        } else {
+            wdl = Wdl.LOSS;
+            moves = value - Tablebase.LOSS;
+        }
+    }
+
+    /**
+     * @param value valor gravado na tabela
+     * @return
+     */
+    static TablebaseResult of(int value) {
+        return RESULTS[value];
+    }
+
+    public Wdl getWdl() {
+        return wdl;
+    }
+
+    /**
+     * @return na vitória, em quantos movimentos o jogador da vez dá mate; na derrota, depois de quantos movimentos do
+     * oponente ele leva mate (0 se já está em cheque mate); 0 no empate
+     */
+    public int getMovesToMate() {
+        return moves;
+    }
+
+    /**
+     * @return quantidade de meios-movimentos até o mate, ou 0 no empate
+     */
+    public int getPliesToMate() {
+        return (wdl == Wdl.WIN) ? 2 * moves - 1 : 2 * moves;
+    }
+
+    @Override
+    public String toString() {
+        return (wdl == Wdl.DRAW) ? "DRAW" : wdl + " " + moves;
+    }
+}
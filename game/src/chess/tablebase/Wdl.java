@@ -0,0 +1,10 @@
+package chess.tablebase;
+
+/**
+ * Resultado de uma posição de tabela de finais do ponto de vista do jogador da vez: derrota, empate ou vitória
+ */
+public enum Wdl {
+    LOSS,
+    DRAW,
+    WIN
+}
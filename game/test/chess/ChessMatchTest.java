@@ -0,0 +1,106 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChessMatchTest {
+    @ParameterizedTest
+    @EnumSource(BoardType.class)
+    void refusesMovesAfterCheckmate(BoardType boardType) {
+        ChessMatch match = new ChessMatch(boardType);
+        play(match, "f3", "e5", "g4", "Qh4#");
+        String fen = Fen.write(match);
+        assertTrue(match.getCheckMate());
+        assertThrows(ChessException.class,
+                () -> match.performChessMove(new ChessPosition('a', 7), new ChessPosition('a', 6)));
+        MoveList moves = new MoveList();
+        assertEquals(0, match.legalMoves(moves));
+        assertEquals(fen, Fen.write(match));
+        assertEquals(4, match.getPly());
+    }
+
+    @ParameterizedTest
+    @EnumSource(BoardType.class)
+    void undoesAndRedoesMoves(BoardType boardType) {
+        ChessMatch match = new ChessMatch(boardType);
+        play(match, "e4", "d5", "exd5", "Qxd5", "Nc3", "Qa5", "d4", "c6", "Nf3", "Bg4");
+        String fen = Fen.write(match);
+        long key = match.getZobristKey();
+        while (match.canUndo()) {
+            match.undoChessMove();
+        }
+        assertEquals(Fen.START, Fen.write(match));
+        while (match.canRedo()) {
+            match.redoChessMove();
+        }
+        assertEquals(fen, Fen.write(match));
+        assertEquals(key, match.getZobristKey());
+        assertEquals(key, Zobrist.compute(match.getPieceMasks(), match.getCurrentPlayer().ordinal(),
+                match.getEnPassantSquare(), match.getCastlingRights()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(BoardType.class)
+    void forkKeepsTheRepetitionHistory(BoardType boardType) {
+        ChessMatch match = new ChessMatch(boardType);
+        play(match, "Nf3", "Nf6", "Ng1", "Ng8", "Nf3", "Nf6", "Ng1");
+        ChessMatch fork = match.fork();
+        assertTrue(fork.isRepetition());
+        assertFalse(fork.isThreefoldRepetition());
+        play(fork, "Ng8");
+        assertTrue(fork.isThreefoldRepetition());
+        assertTrue(fork.getDraw());
+        assertEquals(Fen.write(match), Fen.write(match.fork()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(BoardType.class)
+    void explainsIllegalMoves(BoardType boardType) {
+        assertEquals("Illegal move: you can't put yourself in check",
+                illegalMove("4k3/4r3/8/8/8/8/4B3/4K3 w - - 0 1", boardType, 'e', 2, 'd', 3));
+        assertEquals("Illegal move: you must get out of check",
+                illegalMove("4k3/4r3/8/8/8/8/8/R3K3 w - - 0 1", boardType, 'a', 1, 'a', 2));
+        assertEquals("Illegal move: you can't castle out of, through or into check",
+                illegalMove("4k3/8/8/8/8/8/5r2/4K2R w K - 0 1", boardType, 'e', 1, 'g', 1));
+    }
+
+    private static String illegalMove(String fen, BoardType boardType, char fromColumn, int fromRow, char toColumn,
+            int toRow) {
+        ChessMatch match = Fen.read(fen, boardType);
+        return assertThrows(ChessException.class, () -> match.performChessMove(
+                new ChessPosition(fromColumn, fromRow), new ChessPosition(toColumn, toRow))).getMessage();
+    }
+
+    @Test
+    void keepsTheSameMasksOnBothBoards() {
+        ChessMatch matrix = new ChessMatch(BoardType.MATRIX);
+        ChessMatch bitboard = new ChessMatch(BoardType.BITBOARD);
+        String[] moves = {"e4", "d5", "exd5", "c5", "dxc6", "Nf6", "cxb7", "Bd7", "bxa8=Q", "e6", "Nf3", "Be7",
+                "Bc4", "O-O", "O-O"};
+        for (String san : moves) {
+            play(matrix, san);
+            play(bitboard, san);
+            assertArrayEquals(bitboard.getPieceMasks(), matrix.getPieceMasks());
+            assertEquals(bitboard.getZobristKey(), matrix.getZobristKey());
+        }
+        while (matrix.canUndo()) {
+            matrix.undoChessMove();
+            bitboard.undoChessMove();
+            assertArrayEquals(bitboard.getPieceMasks(), matrix.getPieceMasks());
+        }
+        assertArrayEquals(new ChessMatch(BoardType.BITBOARD).getPieceMasks(), matrix.getPieceMasks());
+    }
+
+    private static void play(ChessMatch match, String... moves) {
+        for (String san : moves) {
+            match.performChessMove(San.parse(san, match));
+        }
+    }
+}
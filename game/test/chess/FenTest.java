@@ -0,0 +1,93 @@
+package chess;
+
+import chess.perft.PerftPosition;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FenTest {
+    @ParameterizedTest
+    @EnumSource(BoardType.class)
+    void roundTripsReferencePositions(BoardType boardType) {
+        for (PerftPosition position : PerftPosition.values()) {
+            assertEquals(position.getFen(), Fen.write(Fen.read(position.getFen(), boardType)));
+        }
+        assertEquals("rnbqkbnr/pppp1ppp/8/8/3pP3/8/PPP2PPP/RNBQKBNR b KQkq e3 0 3",
+                Fen.write(Fen.read("rnbqkbnr/pppp1ppp/8/8/3pP3/8/PPP2PPP/RNBQKBNR b KQkq e3 0 3", boardType)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(BoardType.class)
+    void writesThePositionAfterMoves(BoardType boardType) {
+        ChessMatch match = new ChessMatch(boardType);
+        assertEquals(Fen.START, Fen.write(match));
+        match.performChessMove(San.parse("e4", match));
+        match.performChessMove(San.parse("c5", match));
+        match.performChessMove(San.parse("Nf3", match));
+        assertEquals("rnbqkbnr/pp1ppppp/8/2p5/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2", Fen.write(match));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+            "rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - zero 1",
+            "rnbq1bnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKKNR w KQkq - 0 1",
+            "k6R/8/8/8/8/8/8/K7 w - - 0 1",
+            "k7/8/8/8/8/8/8/K6P w - - 0 1",
+            "P6k/8/8/8/8/8/8/K7 b - - 0 1",
+            "k6p/8/8/8/8/8/8/K7 w - - 0 1",
+    })
+    void rejectsInvalidPositions(String fen) {
+        for (BoardType boardType : BoardType.values()) {
+            assertThrows(ChessException.class, () -> Fen.read(fen, boardType), fen);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(BoardType.class)
+    void reportsCheckmateOnRead(BoardType boardType) {
+        String fen = "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3";
+        ChessMatch match = Fen.read(fen, boardType);
+        assertTrue(match.getCheck());
+        assertTrue(match.getCheckMate());
+        assertTrue(match.isInCheck());
+        assertEquals(0, match.legalMoves(new MoveList()));
+        assertEquals(GameResult.BLACK_WINS, GameResult.of(match));
+        assertEquals(fen, Fen.write(match));
+    }
+
+    @ParameterizedTest
+    @EnumSource(BoardType.class)
+    void reportsStalemateAndCheckOnRead(BoardType boardType) {
+        ChessMatch stalemate = Fen.read("k7/8/1Q6/8/8/8/8/K7 b - - 0 1", boardType);
+        assertTrue(stalemate.getStalemate());
+        assertFalse(stalemate.getCheckMate());
+
+        ChessMatch check = Fen.read("k6R/8/8/8/8/8/8/K7 b - - 0 1", boardType);
+        assertTrue(check.getCheck());
+        assertFalse(check.getCheckMate());
+        assertFalse(check.getStalemate());
+
+        assertTrue(Fen.read("k7/8/8/8/8/8/8/K6R b - - 100 80", boardType).getDraw());
+    }
+
+    @Test
+    void readsCastlingRightsAndEnPassant() {
+        ChessMatch match = Fen.read("r3k2r/8/8/3pP3/8/8/8/R3K2R w Kq d6 0 1", BoardType.BITBOARD);
+        assertEquals("Kq", Fen.write(match).split(" ")[2]);
+        assertEquals("d6", Fen.write(match).split(" ")[3]);
+        assertTrue(Move.isEnPassant(San.parse("exd6", match)));
+    }
+}
@@ -0,0 +1,100 @@
+package chess;
+
+import chess.perft.PerftPosition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SanTest {
+    @ParameterizedTest
+    @EnumSource(BoardType.class)
+    void parsesWhatItWrites(BoardType boardType) {
+        MoveList moves = new MoveList();
+        for (PerftPosition position : PerftPosition.values()) {
+            ChessMatch match = Fen.read(position.getFen(), boardType);
+            int count = match.legalMoves(moves);
+            for (int i = 0; i < count; i++) {
+                int move = moves.get(i);
+                String san = San.toString(move, match, moves);
+                assertEquals(move, San.parse(san, match), position + " " + san);
+                match.legalMoves(moves);
+            }
+        }
+    }
+
+    @Test
+    void writesDisambiguationCastlingAndPromotion() {
+        assertEquals("Nbd2", san("4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1", "b1d2"));
+        assertEquals("Nfd2", san("4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1", "f1d2"));
+        assertEquals("R1a3", san("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1", "a1a3"));
+        assertEquals("R5a3", san("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1", "a5a3"));
+        assertEquals("O-O", san("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", "e1g1"));
+        assertEquals("O-O-O", san("r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1", "e8c8"));
+        assertEquals("b8=Q", san("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1", "b7b8q"));
+        assertEquals("b8=N", san("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1", "b7b8n"));
+        assertEquals("exd6", san("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6"));
+    }
+
+    @Test
+    void recordsSuffixesOfPlayedMoves() {
+        ChessMatch match = new ChessMatch();
+        for (String san : new String[] {"f3", "e5", "g4", "Qh4#"}) {
+            match.performChessMove(San.parse(san, match));
+        }
+        assertEquals("Qh4#", match.getLastMoveSan());
+
+        ChessMatch promotion = Fen.read("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1");
+        promotion.performChessMove(San.parse("b8=Q", promotion));
+        assertEquals("b8=Q+", promotion.getLastMoveSan());
+        promotion.replacePromotedPiece("N");
+        assertEquals("b8=N", promotion.getLastMoveSan());
+        assertArrayEquals(new String[] {"f3", "e5", "g4", "Qh4#"}, match.getSanHistory());
+    }
+
+    @ParameterizedTest
+    @EnumSource(BoardType.class)
+    void writesMovesMadeWithoutSanWithoutChangingTheMatch(BoardType boardType) {
+        ChessMatch match = Fen.read("r1bqkbnr/pppp1ppp/2n5/4p3/2B1P3/5Q2/PPPP1PPP/RNB1K1NR w KQkq - 2 3", boardType);
+        match.makeMove(San.parse("Qxf7#", match));
+        match.updateStatus();
+        assertTrue(match.getCheckMate());
+        String fen = Fen.write(match);
+        long key = match.getZobristKey();
+        Color player = match.getCurrentPlayer();
+        assertArrayEquals(new String[] {"Qxf7#"}, match.getSanHistory());
+        assertEquals("Qxf7#", match.getLastMoveSan());
+        assertEquals(fen, Fen.write(match));
+        assertEquals(key, match.getZobristKey());
+        assertEquals(player, match.getCurrentPlayer());
+        assertTrue(match.getCheckMate());
+        assertFalse(match.canRedo());
+    }
+
+    @Test
+    void acceptsAlternativeSpellings() {
+        ChessMatch match = Fen.read("r3k2r/1P6/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals(San.parse("O-O", match), San.parse("0-0", match));
+        assertEquals(San.parse("bxa8=Q", match), San.parse("bxa8Q+", match));
+    }
+
+    @Test
+    void rejectsAmbiguousAndIllegalMoves() {
+        ChessMatch match = Fen.read("4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1");
+        assertThrows(ChessException.class, () -> San.parse("Nd2", match));
+        assertThrows(ChessException.class, () -> San.parse("Nd3", match));
+        assertThrows(ChessException.class, () -> San.parse("x", match));
+    }
+
+    private static String san(String fen, String coordinates) {
+        ChessMatch match = Fen.read(fen);
+        MoveList moves = new MoveList();
+        match.legalMoves(moves);
+        return San.toString(Move.parse(coordinates, moves), match, moves);
+    }
+}
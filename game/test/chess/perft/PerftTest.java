@@ -0,0 +1,61 @@
+package chess.perft;
+
+import chess.BoardType;
+import chess.Fen;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Contagens de referência do perft nas duas representações de tabuleiro, até a profundidade em que a contagem passa
+ * de MAX_NODES (as mais profundas continuam no PerftProgram --suite)
+ */
+class PerftTest {
+    private static final long MAX_NODES = 1_000_000L;
+
+    static Stream<Arguments> positions() {
+        Stream.Builder<Arguments> builder = Stream.builder();
+        for (BoardType boardType : BoardType.values()) {
+            for (PerftPosition position : PerftPosition.values()) {
+                builder.add(Arguments.of(boardType, position));
+            }
+        }
+        return builder.build();
+    }
+
+    @ParameterizedTest
+    @MethodSource("positions")
+    void matchesReferenceCounts(BoardType boardType, PerftPosition position) {
+        for (int depth = 1; depth <= position.getMaxDepth() && position.getExpected(depth) <= MAX_NODES; depth++) {
+            assertEquals(position.getExpected(depth), Perft.perft(Fen.read(position.getFen(), boardType), depth),
+                    position + " depth " + depth);
+        }
+    }
+
+    @Test
+    void parallelMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (BoardType boardType : BoardType.values()) {
+                assertEquals(PerftPosition.KIWIPETE.getExpected(3),
+                        Perft.parallel(PerftPosition.KIWIPETE.getFen(), boardType, 3, pool));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void divideSumsToPerft() {
+        Map<String, Long> divide = Perft.divide(Fen.read(PerftPosition.PROMOTIONS.getFen()), 3);
+        assertEquals(PerftPosition.PROMOTIONS.getExpected(1), divide.size());
+        assertEquals(PerftPosition.PROMOTIONS.getExpected(3), divide.values().stream().mapToLong(Long::longValue).sum());
+    }
+}
@@ -0,0 +1,108 @@
+package chess.pgn;
+
+import chess.BoardType;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.GameResult;
+import chess.San;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PgnTest {
+    private static final String GAMES = "[Event \"Test\"]\n"
+            + "[White \"A\"]\n"
+            + "[Black \"B\"]\n"
+            + "[Result \"0-1\"]\n"
+            + "\n"
+            + "1. e4 {King's pawn} e5 2. Nf3 (2. f4 exf4) Nc6 3. Bc4 $1 Nd4? 4.Nxe5 Qg5 5. Nxf7 Qxg2 6. Rf1 Qxe4+\n"
+            + "7. Be2 Nf3# 0-1\n"
+            + "\n"
+            + "% linha ignorada\n"
+            + "[Event \"From FEN\"]\n"
+            + "[SetUp \"1\"]\n"
+            + "[FEN \"4k3/8/8/8/8/8/4P3/4K3 b - - 0 1\"]\n"
+            + "[Result \"*\"]\n"
+            + "\n"
+            + "1... Kd7 2. e4 Ke6 *\n";
+
+    @Test
+    void readsAndReplaysGames() throws IOException {
+        try (PgnReader reader = new PgnReader(new StringReader(GAMES))) {
+            PgnGame first = reader.next();
+            assertEquals("Test", first.getTag("Event"));
+            assertEquals(GameResult.BLACK_WINS, first.getResult());
+            assertNull(first.getStartFen());
+            for (BoardType boardType : BoardType.values()) {
+                ChessMatch match = first.replay(boardType);
+                assertEquals(14, match.getPly());
+                assertTrue(match.getCheckMate());
+                assertEquals("Nf3#", match.getLastMoveSan());
+            }
+
+            PgnGame second = reader.next();
+            assertEquals("4k3/8/8/8/8/8/4P3/4K3 b - - 0 1", second.getStartFen());
+            assertEquals(GameResult.UNKNOWN, second.getResult());
+            assertEquals("8/8/4k3/8/4P3/8/8/4K3 w - - 1 3", Fen.write(second.replay(BoardType.MATRIX)));
+
+            assertNull(reader.next());
+            assertEquals(2, reader.getGames());
+        }
+    }
+
+    @Test
+    void reportsIllegalMovesWithThePly() throws IOException {
+        try (PgnReader reader = new PgnReader(new StringReader("[Event \"?\"]\n\n1. e4 e5 2. Ke3 *\n"))) {
+            PgnGame game = reader.next();
+            assertThrows(chess.ChessException.class, () -> game.replay(BoardType.BITBOARD));
+        }
+    }
+
+    @Test
+    void writesWhatItReads() throws IOException {
+        ChessMatch match = new ChessMatch(BoardType.BITBOARD);
+        String[] moves = {"e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6", "O-O", "Be7", "Re1", "b5", "Bb3",
+                "d6", "c3", "O-O", "h3", "Nb8", "d4", "Nbd7", "c4", "c6", "cxb5", "axb5", "Nc3", "Bb7", "Bg5", "b4",
+                "Bxf6", "Bxf6", "Na4", "c5", "dxe5", "dxe5", "Qd6", "Bc6"};
+        for (String san : moves) {
+            match.performChessMove(San.parse(san, match));
+        }
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "Round \"trip\"");
+        String pgn = PgnWriter.toPgn(match, tags);
+        assertTrue(pgn.startsWith("[Event \"Round \\\"trip\\\"\"]\n[Site \"?\"]\n[Date \"????.??.??\"]"), pgn);
+        assertTrue(pgn.contains("1. e4 e5 2. Nf3 Nc6 3. Bb5 a6"), pgn);
+        for (String line : pgn.split("\n")) {
+            assertTrue(line.length() <= 80, line);
+        }
+
+        try (PgnReader reader = new PgnReader(new StringReader(pgn))) {
+            PgnGame game = reader.next();
+            assertEquals("Round \"trip\"", game.getTag("Event"));
+            assertEquals(GameResult.UNKNOWN, game.getResult());
+            ChessMatch replayed = game.replay(BoardType.MATRIX);
+            assertArrayEquals(moves, replayed.getSanHistory());
+            assertEquals(Fen.write(match), Fen.write(replayed));
+        }
+    }
+
+    @Test
+    void writesGamesFromAPosition() {
+        ChessMatch match = Fen.read("4k3/8/8/8/8/8/4P3/4K3 b - - 0 1");
+        match.performChessMove(San.parse("Kd7", match));
+        match.performChessMove(San.parse("e4", match));
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("SetUp", "1");
+        tags.put("FEN", "4k3/8/8/8/8/8/4P3/4K3 b - - 0 1");
+        assertTrue(PgnWriter.toPgn(match, tags).endsWith("\n\n1... Kd7 2. e4 *\n\n"));
+    }
+}
@@ -0,0 +1,133 @@
+package chess.record;
+
+import chess.BoardType;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.GameResult;
+import chess.MoveList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GameRecordTest {
+    private static final String[] START_FENS = {null, "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        Random random = new Random(42);
+        List<String> fens = new ArrayList<>();
+        List<int[]> histories = new ArrayList<>();
+        List<String> finals = new ArrayList<>();
+        Path file = directory.resolve("games.chgr");
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            for (int game = 0; game < 300; game++) {
+                String fen = START_FENS[game % START_FENS.length];
+                ChessMatch match = randomGame(fen, random, 1 + random.nextInt(150));
+                writer.write(fen, match.getMoveHistory(), GameResult.fromOrdinal(game % 4));
+                fens.add(fen);
+                histories.add(match.getMoveHistory());
+                finals.add(Fen.write(match));
+            }
+            assertEquals(300, writer.getGames());
+        }
+
+        try (GameRecordReader reader = new GameRecordReader(file)) {
+            assertEquals(300, reader.getGames());
+            assertEquals(histories.stream().mapToLong(h -> h.length).sum(), reader.getTotalPlies());
+            int[] index = {0};
+            reader.forEach(record -> {
+                int game = index[0]++;
+                assertEquals(game, record.getIndex());
+                assertEquals(fens.get(game), record.getStartFen());
+                assertEquals(GameResult.fromOrdinal(game % 4), record.getResult());
+                assertEquals(histories.get(game).length, record.getPlies());
+                ChessMatch replayed = record.replay(BoardType.BITBOARD);
+                assertArrayEquals(histories.get(game), replayed.getMoveHistory());
+                assertEquals(finals.get(game), Fen.write(replayed));
+            });
+            assertEquals(300, index[0]);
+            GameRecord last = reader.get(299);
+            assertEquals(finals.get(299), Fen.write(last.replay(BoardType.MATRIX)));
+        }
+    }
+
+    @Test
+    void writesTheStartPositionOfTheMatch() throws IOException {
+        Random random = new Random(7);
+        ChessMatch standard = randomGame(null, random, 20);
+        ChessMatch fromFen = randomGame(START_FENS[1], random, 20);
+        ChessMatch fork = standard.fork();
+        String forkStart = Fen.write(fork);
+        MoveList moves = new MoveList();
+        for (int ply = 0; ply < 6 && fork.legalMoves(moves) > 0; ply++) {
+            fork.makeMove(moves.get(random.nextInt(moves.size())));
+        }
+        ChessMatch[] matches = {standard, fromFen, fork};
+        Path file = directory.resolve("matches.chgr");
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            for (ChessMatch match : matches) {
+                writer.write(match, GameResult.UNKNOWN);
+            }
+        }
+        try (GameRecordReader reader = new GameRecordReader(file)) {
+            assertNull(reader.get(0).getStartFen());
+            assertEquals(START_FENS[1], reader.get(1).getStartFen());
+            assertEquals(forkStart, reader.get(2).getStartFen());
+            for (int game = 0; game < matches.length; game++) {
+                assertEquals(Fen.write(matches[game]), Fen.write(reader.get(game).replay(BoardType.MATRIX)));
+            }
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNotGameRecords() throws IOException {
+        Path file = directory.resolve("not-a-record");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> new GameRecordReader(file).close());
+    }
+
+    @Test
+    void writesEmptyGames() throws IOException {
+        Path file = directory.resolve("empty.chgr");
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            writer.write(null, new int[0], GameResult.UNKNOWN);
+        }
+        try (GameRecordReader reader = new GameRecordReader(file)) {
+            GameRecord record = reader.get(0);
+            assertEquals(0, record.getPlies());
+            assertNull(record.getStartFen());
+            assertEquals(Fen.START, Fen.write(record.replay(BoardType.BITBOARD)));
+        }
+    }
+
+    /**
+     * Partida com movimentos legais aleatórios, até o número de meios-movimentos ou o fim da partida
+     */
+    private static ChessMatch randomGame(String fen, Random random, int plies) {
+        ChessMatch match = (fen == null) ? new ChessMatch(BoardType.BITBOARD) : Fen.read(fen, BoardType.BITBOARD);
+        MoveList moves = new MoveList();
+        for (int ply = 0; ply < plies; ply++) {
+            int count = match.legalMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            match.makeMove(moves.get(random.nextInt(count)));
+        }
+        return match;
+    }
+}
@@ -0,0 +1,118 @@
+package chess.tablebase;
+
+import chess.BoardType;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Fen;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Posições conhecidas de KRvK e KPvK, nas tabelas geradas uma vez para a classe
+ */
+class TablebaseTest {
+    @TempDir
+    static Path directory;
+
+    private static TablebaseGenerator generator;
+
+    @BeforeAll
+    static void generate() throws IOException {
+        generator = new TablebaseGenerator(directory);
+        generator.generate("KRvK");
+        generator.generate("KPvK");
+    }
+
+    @AfterAll
+    static void close() throws IOException {
+        generator.close();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            //KRvK: mate em um, o mate dado e uma posição de defesa
+            "k7/8/1K6/8/8/8/8/7R w - - 0 1, WIN 1",
+            "k6R/8/1K6/8/8/8/8/8 b - - 1 1, LOSS 0",
+            "k7/7R/1K6/8/8/8/8/8 b - - 0 1, LOSS 1",
+            //Só os reis sobram depois da captura da torre
+            "k7/1R6/8/8/8/8/8/7K b - - 0 1, DRAW",
+            //KPvK: oposição com o rei na frente do peão ganha; o rei do defensor na frente do peão empata
+            "4k3/8/4K3/4P3/8/8/8/8 b - - 0 1, LOSS 12",
+            "4k3/8/4K3/4P3/8/8/8/8 w - - 0 1, WIN 11",
+            "8/8/8/8/8/4k3/4P3/4K3 w - - 0 1, DRAW",
+            "8/8/8/8/8/4k3/4P3/4K3 b - - 0 1, DRAW",
+            "k7/P7/1K6/8/8/8/8/8 b - - 0 1, DRAW",
+    })
+    void answersKnownPositions(String fen, String expected) {
+        Tablebase tablebase = generator.getTablebase();
+        for (BoardType boardType : BoardType.values()) {
+            assertEquals(expected, String.valueOf(tablebase.probe(Fen.read(fen, boardType))), fen);
+        }
+    }
+
+    @Test
+    void evictsPagesWhenTheCacheIsFull() throws IOException {
+        Tablebase reference = generator.getTablebase();
+        try (Tablebase small = new Tablebase(directory, 256, 2)) {
+            for (char type : new char[] {'R', 'P'}) {
+                for (String side : new String[] {"w", "b"}) {
+                    for (int king = 0; king < 64; king += 9) {
+                        for (int piece = 8; piece < 56; piece++) {
+                            ChessMatch match = read(king, piece, type, side);
+                            if (match != null) {
+                                assertEquals(String.valueOf(reference.probe(match)), String.valueOf(small.probe(match)));
+                            }
+                        }
+                    }
+                }
+            }
+            assertTrue(small.getCacheEvictions() > 0);
+            assertTrue(small.getCacheHits() > 0);
+        }
+    }
+
+    /**
+     * Posição com o rei preto na casa informada, o rei branco em h1 (ou a1) e uma peça branca, ou null se não for legal
+     */
+    private static ChessMatch read(int king, int piece, char type, String side) {
+        char[] squares = new char[64];
+        Arrays.fill(squares, '1');
+        int white = (king == 63 || piece == 63) ? 56 : 63;
+        if (piece == king || piece == white) {
+            return null;
+        }
+        squares[king] = 'k';
+        squares[white] = 'K';
+        squares[piece] = type;
+        StringBuilder fen = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            fen.append(squares, row * 8, 8).append(row < 7 ? "/" : " ");
+        }
+        try {
+            return Fen.read(fen + side + " - - 0 1", BoardType.BITBOARD);
+        } catch (ChessException e) {
+            return null;
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "4k3/8/8/8/8/8/8/R3K3 w Q - 0 1",
+            "4k3/8/8/8/8/8/RR6/4K3 w - - 0 1",
+    })
+    void skipsPositionsOutsideTheTables(String fen) {
+        assertNull(generator.getTablebase().probe(Fen.read(fen, BoardType.BITBOARD)));
+    }
+}